@@ -18,6 +18,7 @@ import eu.arrowhead.common.messages.InterCloudAuthEntry;
 import eu.arrowhead.common.messages.IntraCloudAuthEntry;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -215,6 +216,7 @@ public class AuthorizationApi {
       }
     }
 
+    AuthorizationRights.addIntraCloud(savedAuthRights);
     log.info("addSystemToAuthorized: " + savedAuthRights.size() + " authorization rights created.");
     GenericEntity<List<IntraCloudAuthorization>> entity = new GenericEntity<List<IntraCloudAuthorization>>(
         savedAuthRights) {
@@ -229,6 +231,8 @@ public class AuthorizationApi {
         () -> new DataNotFoundException("IntraCloudAuthorization entry not found with id: " + updatedEntry.getId()));
     entry.updateEntryWith(updatedEntry);
     entry = dm.merge(entry);
+    //The consumer, provider and service can all change, so it is simpler to reload the index than to track the old and the new right
+    AuthorizationRights.reload();
     log.info("updateIntraEntry successfully returns.");
     return Response.ok().entity(entry).build();
   }
@@ -241,6 +245,7 @@ public class AuthorizationApi {
   public Response deleteIntraEntry(@PathParam("id") long id) {
     return dm.get(IntraCloudAuthorization.class, id).map(entry -> {
       dm.delete(entry);
+      AuthorizationRights.removeIntraCloud(Collections.singletonList(entry));
       log.info("deleteIntraEntry successfully returns.");
       return Response.ok().build();
     }).<DataNotFoundException>orElseThrow(() -> {
@@ -274,6 +279,7 @@ public class AuthorizationApi {
       for (IntraCloudAuthorization authRight : authRightsList) {
         dm.delete(authRight);
       }
+      AuthorizationRights.removeIntraCloud(authRightsList);
 
       log.info("deleteSystemRelations successfully returns.");
       return Response.ok().build();
@@ -427,6 +433,7 @@ public class AuthorizationApi {
       }
     }
 
+    AuthorizationRights.addInterCloud(savedAuthRights);
     log.info("addCloudToAuthorized: " + savedAuthRights.size() + " authorization rights created.");
     GenericEntity<List<InterCloudAuthorization>> entity = new GenericEntity<List<InterCloudAuthorization>>(
         savedAuthRights) {
@@ -441,6 +448,7 @@ public class AuthorizationApi {
         () -> new DataNotFoundException("InterCloudAuthorization entry not found with id: " + updatedEntry.getId()));
     entry.updateEntryWith(updatedEntry);
     entry = dm.merge(entry);
+    AuthorizationRights.reload();
     log.info("InterCloudAuthorization successfully returns.");
     return Response.ok().entity(entry).build();
   }
@@ -455,6 +463,7 @@ public class AuthorizationApi {
   public Response deleteInterEntry(@PathParam("id") long id) {
     return dm.get(InterCloudAuthorization.class, id).map(entry -> {
       dm.delete(entry);
+      AuthorizationRights.removeInterCloud(Collections.singletonList(entry));
       log.info("deleteInterEntry successfully returns.");
       return Response.ok().build();
     }).<DataNotFoundException>orElseThrow(() -> {
@@ -489,6 +498,7 @@ public class AuthorizationApi {
       for (InterCloudAuthorization authRight : authRightsList) {
         dm.delete(authRight);
       }
+      AuthorizationRights.removeInterCloud(authRightsList);
 
       log.info("deleteCloudRelations successfully returns.");
       return Response.ok().build();
@@ -13,23 +13,44 @@ import eu.arrowhead.common.misc.SecurityUtils;
 import java.security.KeyStore;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.util.Timer;
+import java.util.TimerTask;
 
 public class AuthorizationMain extends ArrowheadMain {
 
   public static boolean enableAuthForCloud;
+  static int RIGHTS_RELOAD_INTERVAL;
 
   static PrivateKey privateKey;
   static PublicKey publicKey;
 
+  {
+    RIGHTS_RELOAD_INTERVAL = props.getIntProperty("rights_reload_interval", 10);
+  }
+
   private AuthorizationMain(String[] args) {
     KeyStore keyStore = SecurityUtils.loadKeyStore(props.getProperty("keystore"), props.getProperty("keystorepass"));
     privateKey = SecurityUtils.getPrivateKey(keyStore, props.getProperty("keystorepass"));
     publicKey = SecurityUtils.getFirstCertFromKeyStore(keyStore).getPublicKey();
     enableAuthForCloud = props.getBooleanProperty("enable_auth_for_cloud", false);
+    AuthorizationRights.reload();
 
     String[] packages = {"eu.arrowhead.common", "eu.arrowhead.core.authorization"};
     init(CoreSystem.AUTHORIZATION, args, null, packages);
 
+    //The other core systems can modify the systems, services and clouds in the shared database, so the cached data is reloaded periodically
+    if (RIGHTS_RELOAD_INTERVAL > 0) {
+      TimerTask reloadTask = new TimerTask() {
+        @Override
+        public void run() {
+          AuthorizationRights.reload();
+          TokenGenerationService.resetOwnCloud();
+        }
+      };
+      Timer reloadTimer = new Timer();
+      reloadTimer.schedule(reloadTask, RIGHTS_RELOAD_INTERVAL * 60L * 1000L, RIGHTS_RELOAD_INTERVAL * 60L * 1000L);
+    }
+
     listenForInput();
   }
 
@@ -7,14 +7,10 @@
 
 package eu.arrowhead.core.authorization;
 
-import eu.arrowhead.common.DatabaseManager;
-import eu.arrowhead.common.database.ArrowheadCloud;
-import eu.arrowhead.common.database.ArrowheadService;
 import eu.arrowhead.common.database.ArrowheadSystem;
-import eu.arrowhead.common.database.InterCloudAuthorization;
-import eu.arrowhead.common.database.IntraCloudAuthorization;
 import eu.arrowhead.common.exception.DataNotFoundException;
 import eu.arrowhead.common.messages.ArrowheadToken;
+import eu.arrowhead.common.messages.AuthorizedProvidersRequest;
 import eu.arrowhead.common.messages.InterCloudAuthRequest;
 import eu.arrowhead.common.messages.InterCloudAuthResponse;
 import eu.arrowhead.common.messages.IntraCloudAuthRequest;
@@ -25,6 +21,7 @@ import eu.arrowhead.common.messages.TokenGenerationResponse;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Set;
 import javax.validation.Valid;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
@@ -44,8 +41,6 @@ import org.apache.log4j.Logger;
 @Produces(MediaType.APPLICATION_JSON)
 public class AuthorizationResource {
 
-  private final HashMap<String, Object> restrictionMap = new HashMap<>();
-  private static final DatabaseManager dm = DatabaseManager.getInstance();
   private static final Logger log = Logger.getLogger(AuthorizationResource.class.getName());
 
   @GET
@@ -65,57 +60,132 @@ public class AuthorizationResource {
   @PUT
   @Path("intracloud")
   public Response isSystemAuthorized(@Valid IntraCloudAuthRequest request) {
-    restrictionMap.put("systemName", request.getConsumer().getSystemName());
-    restrictionMap.put("address", request.getConsumer().getAddress());
-    restrictionMap.put("port", request.getConsumer().getPort());
-    ArrowheadSystem consumer = dm.get(ArrowheadSystem.class, restrictionMap);
-    if (consumer == null) {
+    if (!AuthorizationRights.containsSystem(request.getConsumer())) {
       log.error("Consumer is not in the database. isSystemAuthorized DataNotFoundException");
       throw new DataNotFoundException("Consumer System is not in the authorization database. " + request.getConsumer().getSystemName(),
                                       Status.NOT_FOUND.getStatusCode());
     }
 
-    IntraCloudAuthResponse response = new IntraCloudAuthResponse();
     HashMap<ArrowheadSystem, Boolean> authorizationState = new HashMap<>();
-    restrictionMap.clear();
-    restrictionMap.put("serviceDefinition", request.getService().getServiceDefinition());
-    ArrowheadService service = dm.get(ArrowheadService.class, restrictionMap);
-    if (service == null) {
-      log.info("Service " + request.getService().toString() + " is not in the database. Returning NOT AUTHORIZED state for the consumer.");
-      for (ArrowheadSystem provider : request.getProviders()) {
-        authorizationState.put(provider, false);
-      }
-      response.setAuthorizationMap(authorizationState);
-      return Response.status(Status.OK).entity(response).build();
-    }
-
-    IntraCloudAuthorization authRight;
     int authorizedCount = 0;
     for (ArrowheadSystem provider : request.getProviders()) {
-      restrictionMap.clear();
-      restrictionMap.put("systemName", provider.getSystemName());
-      restrictionMap.put("address", provider.getAddress());
-      restrictionMap.put("port", provider.getPort());
-      ArrowheadSystem retrievedSystem = dm.get(ArrowheadSystem.class, restrictionMap);
-
-      restrictionMap.clear();
-      restrictionMap.put("consumer", consumer);
-      restrictionMap.put("provider", retrievedSystem);
-      restrictionMap.put("service", service);
-      authRight = dm.get(IntraCloudAuthorization.class, restrictionMap);
-
-      if (authRight == null) {
-        authorizationState.put(provider, false);
-      } else {
-        authorizationState.put(provider, true);
+      boolean isAuthorized = AuthorizationRights.isSystemAuthorized(request.getConsumer(), provider, request.getService().getServiceDefinition());
+      authorizationState.put(provider, isAuthorized);
+      if (isAuthorized) {
         authorizedCount++;
       }
     }
 
     log.info(
         "IntraCloud auth check for consumer " + request.getConsumer().getSystemName() + " returns with " + authorizedCount + " possible provider");
-    response.setAuthorizationMap(authorizationState);
-    return Response.status(Status.OK).entity(response).build();
+    return Response.status(Status.OK).entity(new IntraCloudAuthResponse(authorizationState)).build();
+  }
+
+  /**
+   * Returns every provider System the consumer System is allowed to consume the Service from. The Orchestrator can send this request in
+   * parallel with its Service Registry query, since no provider list is needed.
+   *
+   * @return IntraCloudAuthResponse, where every returned provider is mapped to true
+   *
+   * @throws DataNotFoundException if the consumer System is not in the database
+   */
+  @PUT
+  @Path("intracloud/providers")
+  public Response getAuthorizedProviders(@Valid AuthorizedProvidersRequest request) {
+    Set<ArrowheadSystem> authorized = AuthorizationRights
+        .getAuthorizedProviders(request.getConsumer(), request.getService().getServiceDefinition());
+    if (authorized == null) {
+      log.error("Consumer is not in the database. getAuthorizedProviders DataNotFoundException");
+      throw new DataNotFoundException("Consumer System is not in the authorization database. " + request.getConsumer().getSystemName(),
+                                      Status.NOT_FOUND.getStatusCode());
+    }
+
+    HashMap<ArrowheadSystem, Boolean> authorizationState = new HashMap<>();
+    for (ArrowheadSystem provider : authorized) {
+      authorizationState.put(provider, true);
+    }
+
+    log.info("getAuthorizedProviders for consumer " + request.getConsumer().getSystemName() + " returns with " + authorizationState.size()
+                 + " possible provider");
+    return Response.status(Status.OK).entity(new IntraCloudAuthResponse(authorizationState)).build();
+  }
+
+  /**
+   * Bulk version of {@link #isSystemAuthorized(IntraCloudAuthRequest)}: checks many consumer-service-providers combinations in one request. A
+   * consumer missing from the database fails only its own request (the single endpoint returns 404 for it): the response has null at its
+   * position.
+   *
+   * @return the IntraCloudAuthResponses in the same order as the requests
+   */
+  @PUT
+  @Path("intracloud/batch")
+  public List<IntraCloudAuthResponse> areSystemsAuthorized(@Valid List<IntraCloudAuthRequest> requests) {
+    List<ArrowheadSystem> consumers = new ArrayList<>(requests.size());
+    List<String> serviceDefinitions = new ArrayList<>(requests.size());
+    for (IntraCloudAuthRequest request : requests) {
+      consumers.add(request.getConsumer());
+      serviceDefinitions.add(request.getService().getServiceDefinition());
+    }
+    List<Set<ArrowheadSystem>> authorizedProviders = AuthorizationRights.getAuthorizedProviders(consumers, serviceDefinitions);
+
+    List<IntraCloudAuthResponse> responses = new ArrayList<>(requests.size());
+    int authorizedCount = 0;
+    for (int i = 0; i < requests.size(); i++) {
+      Set<ArrowheadSystem> authorized = authorizedProviders.get(i);
+      if (authorized == null) {
+        log.info("Consumer is not in the database: " + requests.get(i).getConsumer().getSystemName());
+        responses.add(null);
+        continue;
+      }
+      HashMap<ArrowheadSystem, Boolean> authorizationState = new HashMap<>();
+      for (ArrowheadSystem provider : requests.get(i).getProviders()) {
+        boolean isAuthorized = authorized.contains(provider);
+        authorizationState.put(provider, isAuthorized);
+        if (isAuthorized) {
+          authorizedCount++;
+        }
+      }
+      responses.add(new IntraCloudAuthResponse(authorizationState));
+    }
+
+    log.info("IntraCloud batch auth check for " + requests.size() + " requests returns with " + authorizedCount + " authorized provider");
+    return responses;
+  }
+
+  /**
+   * Bulk version of {@link #getAuthorizedProviders(AuthorizedProvidersRequest)}. A consumer missing from the database fails only its own request
+   * (the single endpoint returns 404 for it): the response has null at its position.
+   *
+   * @return the IntraCloudAuthResponses in the same order as the requests
+   */
+  @PUT
+  @Path("intracloud/providers/batch")
+  public List<IntraCloudAuthResponse> getAuthorizedProvidersBatch(@Valid List<AuthorizedProvidersRequest> requests) {
+    List<ArrowheadSystem> consumers = new ArrayList<>(requests.size());
+    List<String> serviceDefinitions = new ArrayList<>(requests.size());
+    for (AuthorizedProvidersRequest request : requests) {
+      consumers.add(request.getConsumer());
+      serviceDefinitions.add(request.getService().getServiceDefinition());
+    }
+
+    List<IntraCloudAuthResponse> responses = new ArrayList<>(requests.size());
+    List<Set<ArrowheadSystem>> authorizedProviders = AuthorizationRights.getAuthorizedProviders(consumers, serviceDefinitions);
+    for (int i = 0; i < requests.size(); i++) {
+      Set<ArrowheadSystem> authorized = authorizedProviders.get(i);
+      if (authorized == null) {
+        log.info("Consumer is not in the database: " + requests.get(i).getConsumer().getSystemName());
+        responses.add(null);
+        continue;
+      }
+      HashMap<ArrowheadSystem, Boolean> authorizationState = new HashMap<>();
+      for (ArrowheadSystem provider : authorized) {
+        authorizationState.put(provider, true);
+      }
+      responses.add(new IntraCloudAuthResponse(authorizationState));
+    }
+
+    log.info("getAuthorizedProvidersBatch returns with " + responses.size() + " authorization maps");
+    return responses;
   }
 
   /**
@@ -128,34 +198,13 @@ public class AuthorizationResource {
   @PUT
   @Path("intercloud")
   public Response isCloudAuthorized(@Valid InterCloudAuthRequest request) {
-    restrictionMap.put("operator", request.getCloud().getOperator());
-    restrictionMap.put("cloudName", request.getCloud().getCloudName());
-    ArrowheadCloud cloud = dm.get(ArrowheadCloud.class, restrictionMap);
-    if (cloud == null) {
+    if (!AuthorizationRights.containsCloud(request.getCloud())) {
       log.error("Requester cloud is not in the database. isCloudAuthorized DataNotFoundException");
       throw new DataNotFoundException("Consumer Cloud is not in the authorization database. " + request.getCloud().toString(),
                                       Status.NOT_FOUND.getStatusCode());
     }
 
-    restrictionMap.clear();
-    restrictionMap.put("serviceDefinition", request.getService().getServiceDefinition());
-    ArrowheadService service = dm.get(ArrowheadService.class, restrictionMap);
-    if (service == null) {
-      log.info("Service " + request.getService().toString() + " is not in the database. Returning NOT AUTHORIZED state for the consumer.");
-      return Response.status(Status.OK).entity(new InterCloudAuthResponse(false)).build();
-    }
-
-    InterCloudAuthorization authRight;
-    restrictionMap.clear();
-    restrictionMap.put("cloud", cloud);
-    restrictionMap.put("service", service);
-    authRight = dm.get(InterCloudAuthorization.class, restrictionMap);
-
-    boolean isAuthorized = false;
-    if (authRight != null) {
-      isAuthorized = true;
-    }
-
+    boolean isAuthorized = AuthorizationRights.isCloudAuthorized(request.getCloud(), request.getService().getServiceDefinition());
     log.info("Consumer Cloud is authorized: " + isAuthorized);
     return Response.status(Status.OK).entity(new InterCloudAuthResponse(isAuthorized)).build();
   }
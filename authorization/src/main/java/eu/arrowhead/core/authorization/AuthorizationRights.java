@@ -0,0 +1,265 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.authorization;
+
+import eu.arrowhead.common.DatabaseManager;
+import eu.arrowhead.common.database.ArrowheadCloud;
+import eu.arrowhead.common.database.ArrowheadService;
+import eu.arrowhead.common.database.ArrowheadSystem;
+import eu.arrowhead.common.database.InterCloudAuthorization;
+import eu.arrowhead.common.database.IntraCloudAuthorization;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.log4j.Logger;
+
+/**
+ * In-memory copy of the intra- and inter-cloud authorization rights, used to answer the authorization checks of {@link AuthorizationResource}
+ * without touching the database.
+ * <p>
+ * Systems, services and clouds are resolved to their database IDs, and the rights are stored as sorted <tt>long</tt> arrays: the provider IDs for
+ * each consumer and service ID, and the service IDs for each cloud ID. Readers never lock, writers replace the arrays they change. The index is
+ * loaded at startup, {@link AuthorizationApi} updates it after every change of the rights, and it is reloaded after the systems, services or
+ * clouds change through the common mgmt APIs (see {@link AuthorizationRightsFilter}) and periodically, since other core systems can modify
+ * these tables too.
+ */
+final class AuthorizationRights {
+
+  private static final long[] EMPTY = new long[0];
+
+  private static volatile Rights rights = new Rights();
+  private static final Object writeLock = new Object();
+  private static final DatabaseManager dm = DatabaseManager.getInstance();
+  private static final Logger log = Logger.getLogger(AuthorizationRights.class.getName());
+
+  private AuthorizationRights() throws AssertionError {
+    throw new AssertionError("AuthorizationRights is a non-instantiable class");
+  }
+
+  //Drops the whole index and loads the systems, services, clouds and authorization rights from the database
+  static void reload() {
+    synchronized (writeLock) {
+      Rights loaded = new Rights();
+      for (ArrowheadSystem system : dm.getAll(ArrowheadSystem.class, null)) {
+        loaded.addSystem(system);
+      }
+      for (ArrowheadService service : dm.getAll(ArrowheadService.class, null)) {
+        loaded.addService(service);
+      }
+      for (ArrowheadCloud cloud : dm.getAll(ArrowheadCloud.class, null)) {
+        loaded.addCloud(cloud);
+      }
+      List<IntraCloudAuthorization> intraRights = dm.getAll(IntraCloudAuthorization.class, null);
+      for (IntraCloudAuthorization authRight : intraRights) {
+        loaded.addIntraCloud(authRight);
+      }
+      List<InterCloudAuthorization> interRights = dm.getAll(InterCloudAuthorization.class, null);
+      for (InterCloudAuthorization authRight : interRights) {
+        loaded.addInterCloud(authRight);
+      }
+      rights = loaded;
+      log.info("Authorization index loaded with " + intraRights.size() + " intra-cloud and " + interRights.size() + " inter-cloud rights.");
+    }
+  }
+
+  static void addIntraCloud(Collection<IntraCloudAuthorization> authRights) {
+    synchronized (writeLock) {
+      for (IntraCloudAuthorization authRight : authRights) {
+        rights.addIntraCloud(authRight);
+      }
+    }
+  }
+
+  static void removeIntraCloud(Collection<IntraCloudAuthorization> authRights) {
+    synchronized (writeLock) {
+      for (IntraCloudAuthorization authRight : authRights) {
+        rights.removeIntraCloud(authRight);
+      }
+    }
+  }
+
+  static void addInterCloud(Collection<InterCloudAuthorization> authRights) {
+    synchronized (writeLock) {
+      for (InterCloudAuthorization authRight : authRights) {
+        rights.addInterCloud(authRight);
+      }
+    }
+  }
+
+  static void removeInterCloud(Collection<InterCloudAuthorization> authRights) {
+    synchronized (writeLock) {
+      for (InterCloudAuthorization authRight : authRights) {
+        rights.removeInterCloud(authRight);
+      }
+    }
+  }
+
+  /**
+   * @return true, if the system (identified by its name, address and port) is in the database
+   */
+  static boolean containsSystem(ArrowheadSystem system) {
+    return rights.systemIds.containsKey(system);
+  }
+
+  static boolean containsCloud(ArrowheadCloud cloud) {
+    return rights.cloudIds.containsKey(cloudKey(cloud));
+  }
+
+  static boolean isSystemAuthorized(ArrowheadSystem consumer, ArrowheadSystem provider, String serviceDefinition) {
+    Rights current = rights;
+    Long providerId = current.systemIds.get(provider);
+    return providerId != null && Arrays.binarySearch(current.getProviderIds(consumer, serviceDefinition), providerId) >= 0;
+  }
+
+  static boolean isCloudAuthorized(ArrowheadCloud cloud, String serviceDefinition) {
+    Rights current = rights;
+    Long cloudId = current.cloudIds.get(cloudKey(cloud));
+    Long serviceId = current.serviceIds.get(serviceDefinition);
+    return cloudId != null && serviceId != null && Arrays.binarySearch(current.interCloud.getOrDefault(cloudId, EMPTY), serviceId) >= 0;
+  }
+
+  /**
+   * @return the provider systems the consumer is allowed to consume the service from, or null, if the consumer is not in the database
+   */
+  static Set<ArrowheadSystem> getAuthorizedProviders(ArrowheadSystem consumer, String serviceDefinition) {
+    Rights current = rights;
+    if (!current.systemIds.containsKey(consumer)) {
+      return null;
+    }
+
+    Set<ArrowheadSystem> providers = new HashSet<>();
+    for (long providerId : current.getProviderIds(consumer, serviceDefinition)) {
+      ArrowheadSystem provider = current.systems.get(providerId);
+      if (provider != null) {
+        providers.add(provider);
+      }
+    }
+    return providers;
+  }
+
+  /**
+   * Looks up the provider systems each consumer is allowed to consume the paired service from.
+   *
+   * @param consumers the consumer systems, each paired with the service definition at the same position
+   * @param serviceDefinitions the service definitions, each paired with the consumer at the same position
+   *
+   * @return the set of authorized providers for each pair (in the same order), or null for a pair, if its consumer is not in the database
+   */
+  static List<Set<ArrowheadSystem>> getAuthorizedProviders(List<ArrowheadSystem> consumers, List<String> serviceDefinitions) {
+    List<Set<ArrowheadSystem>> authorizedProviders = new ArrayList<>(consumers.size());
+    for (int i = 0; i < consumers.size(); i++) {
+      authorizedProviders.add(getAuthorizedProviders(consumers.get(i), serviceDefinitions.get(i)));
+    }
+    return authorizedProviders;
+  }
+
+  private static String cloudKey(ArrowheadCloud cloud) {
+    return cloud.getOperator() + "|" + cloud.getCloudName();
+  }
+
+  private static long[] with(long[] ids, long id) {
+    int index = Arrays.binarySearch(ids, id);
+    if (index >= 0) {
+      return ids;
+    }
+    index = -index - 1;
+    long[] extended = new long[ids.length + 1];
+    System.arraycopy(ids, 0, extended, 0, index);
+    extended[index] = id;
+    System.arraycopy(ids, index, extended, index + 1, ids.length - index);
+    return extended;
+  }
+
+  //Returns null instead of an empty array, so the emptied map entries are removed by compute
+  private static long[] without(long[] ids, long id) {
+    int index = Arrays.binarySearch(ids, id);
+    if (index < 0) {
+      return ids;
+    }
+    if (ids.length == 1) {
+      return null;
+    }
+    long[] reduced = new long[ids.length - 1];
+    System.arraycopy(ids, 0, reduced, 0, index);
+    System.arraycopy(ids, index + 1, reduced, index, ids.length - index - 1);
+    return reduced;
+  }
+
+  private static final class Rights {
+
+    private final ConcurrentHashMap<ArrowheadSystem, Long> systemIds = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, ArrowheadSystem> systems = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> serviceIds = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> cloudIds = new ConcurrentHashMap<>();
+    //Consumer ID -> service ID -> sorted provider IDs
+    private final ConcurrentHashMap<Long, Map<Long, long[]>> intraCloud = new ConcurrentHashMap<>();
+    //Cloud ID -> sorted service IDs
+    private final ConcurrentHashMap<Long, long[]> interCloud = new ConcurrentHashMap<>();
+
+    private long[] getProviderIds(ArrowheadSystem consumer, String serviceDefinition) {
+      Long consumerId = systemIds.get(consumer);
+      Long serviceId = serviceIds.get(serviceDefinition);
+      if (consumerId == null || serviceId == null) {
+        return EMPTY;
+      }
+      Map<Long, long[]> services = intraCloud.get(consumerId);
+      return services == null ? EMPTY : services.getOrDefault(serviceId, EMPTY);
+    }
+
+    private void addSystem(ArrowheadSystem system) {
+      systemIds.put(system, system.getId());
+      systems.put(system.getId(), system);
+    }
+
+    private void addService(ArrowheadService service) {
+      serviceIds.put(service.getServiceDefinition(), service.getId());
+    }
+
+    private void addCloud(ArrowheadCloud cloud) {
+      cloudIds.put(cloudKey(cloud), cloud.getId());
+    }
+
+    private void addIntraCloud(IntraCloudAuthorization authRight) {
+      addSystem(authRight.getConsumer());
+      addSystem(authRight.getProvider());
+      addService(authRight.getService());
+      long providerId = authRight.getProvider().getId();
+      intraCloud.computeIfAbsent(authRight.getConsumer().getId(), id -> new ConcurrentHashMap<>())
+                .compute(authRight.getService().getId(), (id, providerIds) -> with(providerIds == null ? EMPTY : providerIds, providerId));
+    }
+
+    private void removeIntraCloud(IntraCloudAuthorization authRight) {
+      Map<Long, long[]> services = intraCloud.get(authRight.getConsumer().getId());
+      if (services != null) {
+        long providerId = authRight.getProvider().getId();
+        services.computeIfPresent(authRight.getService().getId(), (id, providerIds) -> without(providerIds, providerId));
+        if (services.isEmpty()) {
+          intraCloud.remove(authRight.getConsumer().getId());
+        }
+      }
+    }
+
+    private void addInterCloud(InterCloudAuthorization authRight) {
+      addCloud(authRight.getCloud());
+      addService(authRight.getService());
+      long serviceId = authRight.getService().getId();
+      interCloud.compute(authRight.getCloud().getId(), (id, serviceIdArray) -> with(serviceIdArray == null ? EMPTY : serviceIdArray, serviceId));
+    }
+
+    private void removeInterCloud(InterCloudAuthorization authRight) {
+      long serviceId = authRight.getService().getId();
+      interCloud.computeIfPresent(authRight.getCloud().getId(), (id, serviceIdArray) -> without(serviceIdArray, serviceId));
+    }
+  }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.authorization;
+
+import javax.annotation.Priority;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.Response.Status.Family;
+import javax.ws.rs.ext.Provider;
+
+/*
+  The mgmt/services, mgmt/systems and mgmt/clouds APIs come from the common module and do not know about the AuthorizationRights index.
+  Updating or deleting services/systems/clouds there changes (or cascade deletes) authorization rights, so the index is reloaded after each
+  successful modifying request. The own cloud cached by the TokenGenerationService is dropped after cloud changes too.
+ */
+@Provider
+@Priority(Priorities.USER)
+public class AuthorizationRightsFilter implements ContainerResponseFilter {
+
+  @Override
+  public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+    if (requestContext.getMethod().equals(HttpMethod.GET) || responseContext.getStatusInfo().getFamily() != Family.SUCCESSFUL) {
+      return;
+    }
+
+    String path = requestContext.getUriInfo().getPath();
+    if (path.contains("mgmt/services") || path.contains("mgmt/systems") || path.contains("mgmt/clouds")) {
+      AuthorizationRights.reload();
+    }
+    if (path.contains("mgmt/clouds")) {
+      TokenGenerationService.resetOwnCloud();
+    }
+  }
+
+}
@@ -24,115 +24,87 @@ import java.security.PublicKey;
 import java.security.Security;
 import java.security.Signature;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
 import java.util.ServiceConfigurationError;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import javax.crypto.Cipher;
 import javax.crypto.NoSuchPaddingException;
 import javax.ws.rs.core.Response.Status;
 import org.apache.log4j.Logger;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 
-class TokenGenerationService {
+/**
+ * Generates the encrypted and signed ArrowheadTokens for the providers of an orchestration. The expensive, request independent objects are
+ * reused: the parsed provider public keys are cached, every thread gets its own <tt>Cipher</tt> and <tt>Signature</tt> instance, and the own cloud
+ * is only loaded from the database once. Since the raw token info is the same for every provider, it is serialized once per request, and only the
+ * RSA operations run for each provider (in parallel, if there are more providers).
+ */
+final class TokenGenerationService {
+
+  //The cache is simply cleared when it is full, the keys are parsed again on demand
+  private static final int MAX_CACHED_KEYS = 10000;
+  //RSA/PKCS1 can not encrypt more than this with a 2048 bit key
+  private static final int MAX_TOKEN_INFO_LENGTH = 244;
 
+  private static final ConcurrentHashMap<String, PublicKey> publicKeys = new ConcurrentHashMap<>();
+  private static final ThreadLocal<Cipher> ciphers = ThreadLocal.withInitial(TokenGenerationService::createCipher);
+  private static final ThreadLocal<Signature> signatures = ThreadLocal.withInitial(TokenGenerationService::createSignature);
+  private static volatile ArrowheadCloud ownCloud;
   private static final Logger log = Logger.getLogger(TokenGenerationService.class.getName());
 
+  static {
+    Security.addProvider(new BouncyCastleProvider());
+  }
+
+  private TokenGenerationService() throws AssertionError {
+    throw new AssertionError("TokenGenerationService is a non-instantiable class");
+  }
+
   static List<ArrowheadToken> generateTokens(TokenGenerationRequest request) {
     // First get the public key for each provider
-    List<PublicKey> publicKeys = getProviderPublicKeys(request.getProviders());
-
-    // Cryptographic object initializations
-    Security.addProvider(new BouncyCastleProvider());
-    Cipher cipher;
-    try {
-      cipher = Cipher.getInstance("RSA/NONE/PKCS1Padding", "BC");
-    } catch (NoSuchAlgorithmException | NoSuchPaddingException | NoSuchProviderException e) {
-      log.fatal("Cipher.getInstance(String) throws exception, code needs to be changed!");
-      throw new AssertionError("Cipher.getInstance(String) throws exception, code needs to be changed!", e);
-    }
-    Signature signature;
-    try {
-      signature = Signature.getInstance("SHA256withRSA", "BC");
-      signature.initSign(AuthorizationMain.privateKey);
-    } catch (NoSuchAlgorithmException | NoSuchProviderException e) {
-      log.fatal("Signature.getInstance(String) throws exception, code needs to be changed!");
-      throw new AssertionError("Signature.getInstance(String) throws exception, code needs to be changed!", e);
-    } catch (InvalidKeyException e) {
-      log.fatal("The private key of the Authorization module is invalid, keystore needs to be changed!");
-      throw new ServiceConfigurationError("The private key of the Authorization module is invalid, keystore needs to be changed!", e);
-    }
+    List<PublicKey> keys = getProviderPublicKeys(request.getProviders());
 
-    // Create the ArrowheadToken for each provider
+    // The token info is the same for every provider, only the encryption key changes
     RawTokenInfo rawTokenInfo = new RawTokenInfo();
-    List<ArrowheadToken> tokens = new ArrayList<>();
-    for (PublicKey key : publicKeys) {
-      // Can not generate token without the provider public key
-      if (key == null) {
-        tokens.add(null);
-        continue;
-      }
-
-      // Set consumer info string
-      String c = request.getConsumer().getSystemName();
-      if (request.getConsumerCloud() != null) {
-        c = c.concat(".").concat(request.getConsumerCloud().getCloudName()).concat(".").concat(request.getConsumerCloud().getOperator());
-      } else {
-        boolean secureMode = Boolean.valueOf(System.getProperty("is_secure", "false"));
-        ArrowheadCloud ownCloud = Utility.getOwnCloud(secureMode);
-        c = c.concat(".").concat(ownCloud.getCloudName()).concat(".").concat(ownCloud.getOperator());
-      }
-      rawTokenInfo.setC(c);
+    String c = request.getConsumer().getSystemName();
+    ArrowheadCloud consumerCloud = request.getConsumerCloud() != null ? request.getConsumerCloud() : getOwnCloud();
+    rawTokenInfo.setC(c.concat(".").concat(consumerCloud.getCloudName()).concat(".").concat(consumerCloud.getOperator()));
+
+    String s = request.getService().getServiceDefinition();
+    // Set service info string
+    List<String> interfaces = new ArrayList<>(request.getService().getInterfaces());
+    if (!interfaces.isEmpty()) {
+      s = interfaces.get(0) + "." + s;
+    }
+    rawTokenInfo.setS(s);
 
-      String s = request.getService().getServiceDefinition();
-      // Set service info string
-      List<String> interfaces = new ArrayList<>(request.getService().getInterfaces());
-      if (!interfaces.isEmpty()) {
-        s = interfaces.get(0) + "." + s;
-      }
-      rawTokenInfo.setS(s);
-
-      // Set the token validity duration
-      if (request.getDuration() != 0) {
-        long endTime = System.currentTimeMillis() + request.getDuration();
-        rawTokenInfo.setE(endTime);
-      } else {
-        // duration = 0 means a token is valid without a time limitation
-        rawTokenInfo.setE(0L);
-      }
+    // Set the token validity duration (duration = 0 means a token is valid without a time limitation)
+    rawTokenInfo.setE(request.getDuration() != 0 ? System.currentTimeMillis() + request.getDuration() : 0L);
 
-      // There is an upper limit for the size of the token info, skip providers which exceeds this limit
-      String json = Utility.toPrettyJson(null, rawTokenInfo);
-      if (json == null) {
-        log.error("RawTokenInfo serialization failed. Skipped provider.");
-        continue;
-      }
-      System.out.println("Raw token info: ");
-      System.out.println(json);
-      if (json.length() > 244) {
-        tokens.add(null);
-        log.error("ArrowheadToken exceeded the size limit. Skipped provider.");
-        continue;
-      }
+    String json = Utility.toPrettyJson(null, rawTokenInfo);
+    if (json == null) {
+      log.error("RawTokenInfo serialization failed.");
+      throw new ArrowheadException("Token generation failed for all the provider ArrowheadSystems.", Status.INTERNAL_SERVER_ERROR.getStatusCode());
+    }
+    log.debug("Raw token info: " + json);
+    // There is an upper limit for the size of the token info
+    if (json.length() > MAX_TOKEN_INFO_LENGTH) {
+      log.error("ArrowheadToken exceeded the size limit.");
+      throw new ArrowheadException("Token generation failed for all the provider ArrowheadSystems, the token info is too long.",
+                                   Status.INTERNAL_SERVER_ERROR.getStatusCode());
+    }
+    byte[] tokenInfo = json.getBytes(StandardCharsets.UTF_8);
 
-      // Finally, generate the token and signature strings
-      try {
-        cipher.init(Cipher.ENCRYPT_MODE, key);
-        byte[] tokenBytes = cipher.doFinal(json.getBytes(StandardCharsets.UTF_8));
-        System.out.println("Token bytes: " + Arrays.toString(tokenBytes));
-        signature.update(tokenBytes);
-        byte[] sigBytes = signature.sign();
-        System.out.println("Signature bytes: " + Arrays.toString(sigBytes));
-
-        String tokenString = Base64.getEncoder().encodeToString(tokenBytes);
-        String signatureString = Base64.getEncoder().encodeToString(sigBytes);
-        tokens.add(new ArrowheadToken(tokenString, signatureString));
-      } catch (Exception e) {
-        e.printStackTrace();
-        log.error("Cipher or Signature class throws public key specific exception: " + e.getMessage());
-        tokens.add(null);
-      }
+    // Create the ArrowheadToken for each provider, in the same order as the providers
+    IntStream indexes = IntStream.range(0, keys.size());
+    if (keys.size() > 1) {
+      indexes = indexes.parallel();
     }
+    List<ArrowheadToken> tokens = indexes.mapToObj(i -> keys.get(i) == null ? null : generateToken(tokenInfo, keys.get(i)))
+                                         .collect(Collectors.toList());
 
     // Throw an exception if none of the token generation was successful
     boolean nonNullTokenExists = false;
@@ -150,20 +122,86 @@ class TokenGenerationService {
     return tokens;
   }
 
+  //The own cloud is loaded again on the next token generation (called when the clouds are modified)
+  static void resetOwnCloud() {
+    ownCloud = null;
+  }
+
+  // Encrypts the token info with the provider public key, and signs the encrypted bytes with the private key of the Authorization
+  private static ArrowheadToken generateToken(byte[] tokenInfo, PublicKey key) {
+    try {
+      Cipher cipher = ciphers.get();
+      cipher.init(Cipher.ENCRYPT_MODE, key);
+      byte[] tokenBytes = cipher.doFinal(tokenInfo);
+      Signature signature = signatures.get();
+      signature.update(tokenBytes);
+      byte[] sigBytes = signature.sign();
+
+      String tokenString = Base64.getEncoder().encodeToString(tokenBytes);
+      String signatureString = Base64.getEncoder().encodeToString(sigBytes);
+      return new ArrowheadToken(tokenString, signatureString);
+    } catch (Exception e) {
+      log.error("Cipher or Signature class throws public key specific exception: " + e.getMessage(), e);
+      // The instances might be left in an unusable state, new ones are created on the next use
+      ciphers.remove();
+      signatures.remove();
+      return null;
+    }
+  }
+
+  private static ArrowheadCloud getOwnCloud() {
+    ArrowheadCloud cloud = ownCloud;
+    if (cloud == null) {
+      boolean secureMode = Boolean.valueOf(System.getProperty("is_secure", "false"));
+      cloud = Utility.getOwnCloud(secureMode);
+      ownCloud = cloud;
+    }
+    return cloud;
+  }
+
+  private static Cipher createCipher() {
+    try {
+      return Cipher.getInstance("RSA/NONE/PKCS1Padding", "BC");
+    } catch (NoSuchAlgorithmException | NoSuchPaddingException | NoSuchProviderException e) {
+      log.fatal("Cipher.getInstance(String) throws exception, code needs to be changed!");
+      throw new AssertionError("Cipher.getInstance(String) throws exception, code needs to be changed!", e);
+    }
+  }
+
+  private static Signature createSignature() {
+    try {
+      Signature signature = Signature.getInstance("SHA256withRSA", "BC");
+      signature.initSign(AuthorizationMain.privateKey);
+      return signature;
+    } catch (NoSuchAlgorithmException | NoSuchProviderException e) {
+      log.fatal("Signature.getInstance(String) throws exception, code needs to be changed!");
+      throw new AssertionError("Signature.getInstance(String) throws exception, code needs to be changed!", e);
+    } catch (InvalidKeyException e) {
+      log.fatal("The private key of the Authorization module is invalid, keystore needs to be changed!");
+      throw new ServiceConfigurationError("The private key of the Authorization module is invalid, keystore needs to be changed!", e);
+    }
+  }
 
   private static List<PublicKey> getProviderPublicKeys(List<ArrowheadSystem> providers) {
     List<PublicKey> keys = new ArrayList<>();
 
     for (ArrowheadSystem provider : providers) {
-      try {
-        PublicKey key = SecurityUtils.getPublicKey(provider.getAuthenticationInfo(), false);
-        keys.add(key);
-      } catch (AuthException e) {
-        log.error("The stored auth info for the ArrowheadSystem (" + provider.getSystemName()
-                      + ") is not a proper RSA public key spec, or it is incorrectly encoded, or missing. The public key can not be decoded from "
-                      + "it.");
-        keys.add(null);
+      String authInfo = provider.getAuthenticationInfo();
+      PublicKey key = authInfo == null ? null : publicKeys.get(authInfo);
+      if (key == null) {
+        try {
+          key = SecurityUtils.getPublicKey(authInfo, false);
+          if (publicKeys.size() >= MAX_CACHED_KEYS) {
+            publicKeys.clear();
+          }
+          publicKeys.put(authInfo, key);
+        } catch (AuthException e) {
+          log.error("The stored auth info for the ArrowheadSystem (" + provider.getSystemName()
+                        + ") is not a proper RSA public key spec, or it is incorrectly encoded, or missing. The public key can not be decoded from "
+                        + "it.");
+        }
       }
+      keys.add(key);
     }
 
     // Throw an exception if none of the public keys could be acquired from the specs
@@ -182,4 +220,4 @@ class TokenGenerationService {
     return keys;
   }
 
-}
\ No newline at end of file
+}
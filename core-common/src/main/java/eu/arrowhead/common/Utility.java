@@ -51,6 +51,8 @@ import java.util.List;
 import java.util.Optional;
 import java.util.ServiceConfigurationError;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
@@ -60,10 +62,12 @@ import javax.validation.Validator;
 import javax.validation.ValidatorFactory;
 import javax.ws.rs.NotAllowedException;
 import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.AsyncInvoker;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation.Builder;
+import javax.ws.rs.client.InvocationCallback;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.Response.Status.Family;
@@ -74,10 +78,21 @@ import org.glassfish.jersey.client.ClientProperties;
 
 public final class Utility {
 
+  //Upper limit for the number of in-flight async requests per client, extra requests wait in the queue of the pool
+  private static final int ASYNC_THREADPOOL_SIZE = 32;
+
+  static {
+    //Size of the idle keep-alive connection cache per destination, used by the JDK HTTP connector of Jersey (default: 5)
+    if (System.getProperty("http.maxConnections") == null) {
+      System.setProperty("http.maxConnections", "32");
+    }
+  }
+
   private static Client client = createClient(null);
   private static Client sslClient;
   private static SSLContext sslContext;
   private static String SR_QUERY_URI;
+  private static final ConcurrentHashMap<SSLContext, Client> contextClients = new ConcurrentHashMap<>();
 
   private static final ObjectMapper mapper = JacksonJsonProviderAtRest.getMapper();
   private static final Logger log = Logger.getLogger(Utility.class.getName());
@@ -99,6 +114,7 @@ public final class Utility {
     ClientConfig configuration = new ClientConfig();
     configuration.property(ClientProperties.CONNECT_TIMEOUT, 30000);
     configuration.property(ClientProperties.READ_TIMEOUT, 30000);
+    configuration.property(ClientProperties.ASYNC_THREADPOOL_SIZE, ASYNC_THREADPOOL_SIZE);
 
     Client client;
     if (context != null) {
@@ -123,10 +139,12 @@ public final class Utility {
     SR_QUERY_URI = UriBuilder.fromUri(uri).path("query").build().toString();
   }
 
-  public static <T> Response sendRequest(String uri, String method, T payload, SSLContext givenContext) {
-    log.info("Sending " + method + " request to: " + uri);
-
-    boolean isSecure = false;
+  /*
+    A Client (and the SSLSocketFactory inside it) has to be reused between requests, otherwise neither the keep-alive
+    connection cache of the JDK, nor the TLS session cache of the SSLContext can be used, and every request pays
+    for a new TCP connection and a full TLS handshake.
+   */
+  private static Client getClient(String uri, SSLContext givenContext) {
     if (uri == null) {
       log.error("sendRequest received null uri");
       throw new NullPointerException(
@@ -134,20 +152,35 @@ public final class Utility {
               + "fetch the service"
               + " of another Core System from the Service Registry!");
     }
-    if (uri.startsWith("https")) {
-      isSecure = true;
+    if (!uri.startsWith("https")) {
+      return client;
     }
 
-    if (isSecure && sslClient == null) {
+    if (sslClient == null) {
       throw new AuthException(
           "SSL Context is not set, but secure request sending was invoked. An insecure module can not send requests "
               + "to secure modules.",
           Status.UNAUTHORIZED.getStatusCode());
     }
-    Client usedClient = isSecure ? givenContext != null ? createClient(givenContext) : sslClient : client;
+    return givenContext != null ? contextClients.computeIfAbsent(givenContext, Utility::createClient) : sslClient;
+  }
+
+  public static <T> Response sendRequest(String uri, String method, T payload, SSLContext givenContext) {
+    return sendRequest(uri, method, payload, givenContext, 0);
+  }
 
-    Builder request = usedClient.target(UriBuilder.fromUri(uri).build()).request()
-                                .header("Content-type", "application/json");
+  /*
+    The timeout (milliseconds) overrides the 30 seconds connect and read timeouts of the client for this request (0 keeps them), so callers
+    can adapt it to the measured latency of the target.
+   */
+  public static <T> Response sendRequest(String uri, String method, T payload, SSLContext givenContext, int timeout) {
+    log.info("Sending " + method + " request to: " + uri);
+
+    Builder request = getClient(uri, givenContext).target(UriBuilder.fromUri(uri).build()).request()
+                                                  .header("Content-type", "application/json");
+    if (timeout > 0) {
+      request.property(ClientProperties.CONNECT_TIMEOUT, timeout).property(ClientProperties.READ_TIMEOUT, timeout);
+    }
     Response response; // will not be null after the switch-case
     try {
       switch (method) {
@@ -167,15 +200,7 @@ public final class Utility {
           throw new NotAllowedException("Invalid method type was given to the Utility.sendRequest() method");
       }
     } catch (ProcessingException e) {
-      if (e.getCause().getMessage().contains("PKIX path")) {
-        log.error("The system at " + uri + " is not part of the same certificate chain of trust!");
-        throw new AuthException("The system at " + uri + " is not part of the same certificate chain of trust!",
-                                Status.UNAUTHORIZED.getStatusCode(), e);
-      } else {
-        log.error("UnavailableServerException occurred at " + uri, e);
-        throw new UnavailableServerException("Could not get any response from: " + uri,
-                                             Status.SERVICE_UNAVAILABLE.getStatusCode(), e);
-      }
+      throw toArrowheadException(e, uri);
     }
 
     // If the response status code does not start with 2 the request was not successful
@@ -190,7 +215,81 @@ public final class Utility {
     return sendRequest(uri, method, payload, null);
   }
 
-  //TODO option for async request sending which can be used by the event handler
+  /**
+   * Asynchronous version of {@link #sendRequest(String, String, Object, SSLContext)}. The request is sent on the
+   * bounded async thread pool of the (cached) Jersey client, so many core-to-core requests can be in flight at the
+   * same time, while reusing the pooled keep-alive connections and TLS sessions of the synchronous version.
+   * <p>
+   * The returned future completes with the response if the status code is 2xx, otherwise it completes exceptionally
+   * with the same exceptions the synchronous version would throw.
+   */
+  public static <T> CompletableFuture<Response> sendRequestAsync(String uri, String method, T payload, SSLContext givenContext) {
+    log.info("Sending async " + method + " request to: " + uri);
+
+    CompletableFuture<Response> future = new CompletableFuture<>();
+    InvocationCallback<Response> callback = new InvocationCallback<Response>() {
+      @Override
+      public void completed(Response response) {
+        try {
+          if (!(response.getStatusInfo().getFamily() == Family.SUCCESSFUL)) {
+            handleException(response, uri);
+          }
+          future.complete(response);
+        } catch (RuntimeException e) {
+          future.completeExceptionally(e);
+        }
+      }
+
+      @Override
+      public void failed(Throwable throwable) {
+        if (throwable instanceof ProcessingException) {
+          future.completeExceptionally(toArrowheadException((ProcessingException) throwable, uri));
+        } else {
+          future.completeExceptionally(throwable);
+        }
+      }
+    };
+
+    try {
+      AsyncInvoker request = getClient(uri, givenContext).target(UriBuilder.fromUri(uri).build()).request()
+                                                         .header("Content-type", "application/json").async();
+      switch (method) {
+        case "GET":
+          request.get(callback);
+          break;
+        case "POST":
+          request.post(Entity.json(payload), callback);
+          break;
+        case "PUT":
+          request.put(Entity.json(payload), callback);
+          break;
+        case "DELETE":
+          request.delete(callback);
+          break;
+        default:
+          throw new NotAllowedException("Invalid method type was given to the Utility.sendRequestAsync() method");
+      }
+    } catch (RuntimeException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  public static <T> CompletableFuture<Response> sendRequestAsync(String uri, String method, T payload) {
+    return sendRequestAsync(uri, method, payload, null);
+  }
+
+  private static ArrowheadException toArrowheadException(ProcessingException e, String uri) {
+    if (e.getCause() != null && e.getCause().getMessage() != null && e.getCause().getMessage().contains("PKIX path")) {
+      log.error("The system at " + uri + " is not part of the same certificate chain of trust!");
+      return new AuthException("The system at " + uri + " is not part of the same certificate chain of trust!",
+                               Status.UNAUTHORIZED.getStatusCode(), e);
+    } else {
+      log.error("UnavailableServerException occurred at " + uri, e);
+      return new UnavailableServerException("Could not get any response from: " + uri,
+                                            Status.SERVICE_UNAVAILABLE.getStatusCode(), e);
+    }
+  }
 
   private static void handleException(Response response, String uri) {
     //The response body has to be extracted before the stream closes
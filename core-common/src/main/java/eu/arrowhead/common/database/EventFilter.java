@@ -32,6 +32,8 @@ import javax.persistence.MapKeyColumn;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import org.hibernate.annotations.GenericGenerator;
@@ -89,6 +91,18 @@ public class EventFilter {
   @Type(type = "yes_no")
   private Boolean matchMetadata = false;
 
+  //Opt-in batching: the events are sent to the consumer in lists of at most batchSize events (null or 1 means every event is sent alone)
+  @Min(value = 1, message = "Batch size can not be less than 1")
+  @Max(value = 1000, message = "Batch size can not be greater than 1000")
+  @Column(name = "batch_size")
+  private Integer batchSize;
+
+  //The maximum number of milliseconds an event waits for its batch to fill up (null or 0 means the events already queued are sent right away)
+  @Min(value = 0, message = "Batch linger time can not be negative")
+  @Max(value = 60000, message = "Batch linger time can not be greater than 60000 milliseconds")
+  @Column(name = "batch_linger")
+  private Integer batchLinger;
+
   public EventFilter() {
   }
 
@@ -189,6 +203,22 @@ public class EventFilter {
     this.matchMetadata = matchMetadata;
   }
 
+  public Integer getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(Integer batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  public Integer getBatchLinger() {
+    return batchLinger;
+  }
+
+  public void setBatchLinger(Integer batchLinger) {
+    this.batchLinger = batchLinger;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -219,5 +249,7 @@ public class EventFilter {
     this.filterMetadata = other.filterMetadata;
     this.notifyUri = other.notifyUri;
     this.matchMetadata = other.matchMetadata;
+    this.batchSize = other.batchSize;
+    this.batchLinger = other.batchLinger;
   }
 }
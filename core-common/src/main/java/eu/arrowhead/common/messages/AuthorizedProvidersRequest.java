@@ -0,0 +1,49 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.common.messages;
+
+import eu.arrowhead.common.database.ArrowheadService;
+import eu.arrowhead.common.database.ArrowheadSystem;
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
+//Asks the Authorization for every provider the consumer is allowed to consume the service from (no provider list is needed)
+public class AuthorizedProvidersRequest {
+
+  @Valid
+  @NotNull
+  private ArrowheadSystem consumer;
+  @Valid
+  @NotNull
+  private ArrowheadService service;
+
+  public AuthorizedProvidersRequest() {
+  }
+
+  public AuthorizedProvidersRequest(ArrowheadSystem consumer, ArrowheadService service) {
+    this.consumer = consumer;
+    this.service = service;
+  }
+
+  public ArrowheadSystem getConsumer() {
+    return consumer;
+  }
+
+  public void setConsumer(ArrowheadSystem consumer) {
+    this.consumer = consumer;
+  }
+
+  public ArrowheadService getService() {
+    return service;
+  }
+
+  public void setService(ArrowheadService service) {
+    this.service = service;
+  }
+
+}
@@ -25,6 +25,11 @@ public class ConnectToConsumerRequest {
   private Boolean isSecure;
   private int timeout;
   private String providerGWPublicKey;
+  //Payload compression algorithm negotiated by the Gatekeepers, null if the payload is not compressed
+  private String compression;
+  //Where the provider side Gateway accepts the direct connection, null if the session uses the broker
+  private String directAddress;
+  private Integer directPort;
 
   public ConnectToConsumerRequest() {
   }
@@ -142,4 +147,27 @@ public class ConnectToConsumerRequest {
     this.providerGWPublicKey = providerGWPublicKey;
   }
 
-}
\ No newline at end of file
+  public String getCompression() {
+    return compression;
+  }
+
+  public void setCompression(String compression) {
+    this.compression = compression;
+  }
+
+  public String getDirectAddress() {
+    return directAddress;
+  }
+
+  public void setDirectAddress(String directAddress) {
+    this.directAddress = directAddress;
+  }
+
+  public Integer getDirectPort() {
+    return directPort;
+  }
+
+  public void setDirectPort(Integer directPort) {
+    this.directPort = directPort;
+  }
+}
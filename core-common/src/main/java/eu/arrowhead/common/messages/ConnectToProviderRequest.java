@@ -23,6 +23,10 @@ public class ConnectToProviderRequest {
   private boolean isSecure;
   private int timeout;
   private String consumerGWPublicKey;
+  //Payload compression algorithm negotiated by the Gatekeepers, null if the payload is not compressed
+  private String compression;
+  //Whether the consumer side Gateway should connect directly (over mutual TLS) instead of using the broker
+  private boolean direct;
 
   public ConnectToProviderRequest() {
   }
@@ -121,4 +125,19 @@ public class ConnectToProviderRequest {
     this.consumerGWPublicKey = consumerGWPublicKey;
   }
 
+  public String getCompression() {
+    return compression;
+  }
+
+  public void setCompression(String compression) {
+    this.compression = compression;
+  }
+
+  public boolean isDirect() {
+    return direct;
+  }
+
+  public void setDirect(boolean direct) {
+    this.direct = direct;
+  }
 }
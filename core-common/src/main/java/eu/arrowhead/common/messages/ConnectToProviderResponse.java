@@ -11,6 +11,9 @@ public class ConnectToProviderResponse {
 
   private String queueName;
   private String controlQueueName;
+  //Where the Gateway accepts the direct connection of the consumer side Gateway, null if the session uses the broker
+  private String directAddress;
+  private Integer directPort;
 
   public ConnectToProviderResponse() {
   }
@@ -36,4 +39,20 @@ public class ConnectToProviderResponse {
     this.controlQueueName = controlQueueName;
   }
 
+  public String getDirectAddress() {
+    return directAddress;
+  }
+
+  public void setDirectAddress(String directAddress) {
+    this.directAddress = directAddress;
+  }
+
+  public Integer getDirectPort() {
+    return directPort;
+  }
+
+  public void setDirectPort(Integer directPort) {
+    this.directPort = directPort;
+  }
+
 }
@@ -14,6 +14,10 @@ public class GatewayConnectionInfo {
   private String queueName;
   private String controlQueueName;
   private String gatewayPublicKey;
+  private String compression;
+  //Where the provider side Gateway accepts the direct connection, null if the session uses the broker
+  private String directAddress;
+  private Integer directPort;
 
   public GatewayConnectionInfo() {
   }
@@ -66,4 +70,27 @@ public class GatewayConnectionInfo {
     this.gatewayPublicKey = gatewayPublicKey;
   }
 
+  public String getCompression() {
+    return compression;
+  }
+
+  public void setCompression(String compression) {
+    this.compression = compression;
+  }
+
+  public String getDirectAddress() {
+    return directAddress;
+  }
+
+  public void setDirectAddress(String directAddress) {
+    this.directAddress = directAddress;
+  }
+
+  public Integer getDirectPort() {
+    return directPort;
+  }
+
+  public void setDirectPort(Integer directPort) {
+    this.directPort = directPort;
+  }
 }
@@ -34,6 +34,10 @@ public class ICNProposal {
   private List<Broker> preferredBrokers;
   private int timeout;
   private String gatewayPublicKey;
+  //Payload compression algorithms the requester Gateway accepts, in order of preference
+  private List<String> gatewayCompressions = new ArrayList<>();
+  //Whether the requester Gateway can be connected directly by the provider side Gateway, bypassing the broker
+  private boolean gatewayDirect;
 
   public ICNProposal() {
   }
@@ -114,4 +118,20 @@ public class ICNProposal {
   public void setGatewayPublicKey(String gatewayPublicKey) {
     this.gatewayPublicKey = gatewayPublicKey;
   }
+
+  public List<String> getGatewayCompressions() {
+    return gatewayCompressions;
+  }
+
+  public void setGatewayCompressions(List<String> gatewayCompressions) {
+    this.gatewayCompressions = gatewayCompressions;
+  }
+
+  public boolean isGatewayDirect() {
+    return gatewayDirect;
+  }
+
+  public void setGatewayDirect(boolean gatewayDirect) {
+    this.gatewayDirect = gatewayDirect;
+  }
 }
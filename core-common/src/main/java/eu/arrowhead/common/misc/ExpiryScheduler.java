@@ -0,0 +1,71 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.common.misc;
+
+import java.util.function.Consumer;
+
+/**
+ * Calls the expiry handler with the id of a database row at the expiry date of the row, using a {@link TimingWheel} with one second ticks
+ * (the first wheel covers 64 seconds). Until {@link #start(Consumer)} is called, scheduling and cancelling does nothing, so the removal of the
+ * expired rows can be turned off in the configuration.
+ */
+public final class ExpiryScheduler {
+
+  private static final long TICK = 1000L;
+  private static final int WHEEL_SIZE = 64;
+
+  private final String name;
+  private volatile TimingWheel<Long> wheel;
+
+  public ExpiryScheduler(String name) {
+    this.name = name;
+  }
+
+  //Called once at startup, before the rows are scheduled
+  public void start(Consumer<Long> expiryHandler) {
+    wheel = new TimingWheel<>(name, TICK, WHEEL_SIZE, expiryHandler);
+  }
+
+  /**
+   * Schedules (or moves) the expiry of a saved row. Rows without an id are not saved yet, and are ignored.
+   *
+   * @param expiresAt epoch milliseconds, null cancels the expiry of the row
+   */
+  public void schedule(Long id, Long expiresAt) {
+    TimingWheel<Long> expiry = wheel;
+    if (expiry == null || id == null) {
+      return;
+    }
+    if (expiresAt == null) {
+      expiry.cancel(id);
+    } else {
+      expiry.schedule(id, expiresAt);
+    }
+  }
+
+  public void cancel(Long id) {
+    TimingWheel<Long> expiry = wheel;
+    if (expiry != null && id != null) {
+      expiry.cancel(id);
+    }
+  }
+
+  public void cancelAll() {
+    TimingWheel<Long> expiry = wheel;
+    if (expiry != null) {
+      expiry.clear();
+    }
+  }
+
+  //The number of scheduled rows, 0 if the scheduler is not started
+  public int size() {
+    TimingWheel<Long> expiry = wheel;
+    return expiry == null ? 0 : expiry.size();
+  }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.common.misc;
+
+import eu.arrowhead.common.Utility;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.ws.rs.core.UriBuilder;
+import org.apache.log4j.Logger;
+
+/**
+ * Tells the Orchestrator to evict its cached orchestration results, when a core system changes data the orchestration results depend on (service
+ * offerings, authorization rights). Notifications are sent in the background. An invalidation that could not be delivered (the Orchestrator
+ * lookup or the request failed) stays pending, and it is retried with an increasing delay (up to a minute) until it gets through. Pending
+ * invalidations of the same service are merged, and an invalidation of everything replaces them all.
+ * <p>
+ * By default the Orchestrator is looked up from the Service Registry. The Service Registry itself has to provide its own resolver with
+ * {@link #setOrchestratorUriResolver(Supplier)}.
+ */
+public final class OrchestrationCacheNotifier {
+
+  private static final long MIN_RETRY_DELAY = 1000L;
+  private static final long MAX_RETRY_DELAY = 60L * 1000L;
+
+  private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "orchestration-cache-notifier");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private static volatile Supplier<Optional<String>> uriResolver = () -> Utility.getServiceInfo(CoreSystemService.ORCH_SERVICE.getServiceDef())
+                                                                                 .map(info -> info[0]);
+  private static volatile String cacheUri;
+  //Guarded by OrchestrationCacheNotifier.class
+  private static final Set<String> pendingServices = new HashSet<>();
+  private static boolean allPending;
+  //True while a flush is submitted or waiting for its retry, the pending invalidations are sent by it
+  private static boolean flushScheduled;
+  private static long retryDelay = MIN_RETRY_DELAY;
+  private static final Logger log = Logger.getLogger(OrchestrationCacheNotifier.class.getName());
+
+  private OrchestrationCacheNotifier() throws AssertionError {
+    throw new AssertionError("OrchestrationCacheNotifier is a non-instantiable class");
+  }
+
+  /**
+   * @param resolver returns the URI of the Orchestration Service (if there is an Orchestrator in the local cloud)
+   */
+  public static void setOrchestratorUriResolver(Supplier<Optional<String>> resolver) {
+    uriResolver = resolver;
+    cacheUri = null;
+    synchronized (OrchestrationCacheNotifier.class) {
+      retryDelay = MIN_RETRY_DELAY;
+    }
+  }
+
+  //The offerings of a specific service changed
+  public static void serviceChanged(String serviceDefinition) {
+    notifyOrchestrator(serviceDefinition);
+  }
+
+  //Anything else changed, every cached result has to be evicted
+  public static void allChanged() {
+    notifyOrchestrator(null);
+  }
+
+  private static void notifyOrchestrator(String serviceDefinition) {
+    synchronized (OrchestrationCacheNotifier.class) {
+      addPending(serviceDefinition);
+      if (flushScheduled) {
+        return;
+      }
+      flushScheduled = true;
+    }
+    executor.execute(OrchestrationCacheNotifier::flush);
+  }
+
+  //Guarded by OrchestrationCacheNotifier.class
+  private static void addPending(String serviceDefinition) {
+    if (serviceDefinition == null) {
+      allPending = true;
+      pendingServices.clear();
+    } else if (!allPending) {
+      pendingServices.add(serviceDefinition);
+    }
+  }
+
+  //Runs on the executor thread
+  private static void flush() {
+    String uri = getCacheUri();
+    boolean all;
+    List<String> serviceDefinitions;
+    synchronized (OrchestrationCacheNotifier.class) {
+      if (uri == null) {
+        retryLater();
+        return;
+      }
+      all = allPending;
+      serviceDefinitions = new ArrayList<>(pendingServices);
+      allPending = false;
+      pendingServices.clear();
+      flushScheduled = false;
+    }
+
+    if (all) {
+      send(uri, null);
+    } else {
+      for (String serviceDefinition : serviceDefinitions) {
+        send(uri, serviceDefinition);
+      }
+    }
+  }
+
+  private static void send(String uri, String serviceDefinition) {
+    UriBuilder builder = UriBuilder.fromPath(uri);
+    if (serviceDefinition != null) {
+      builder.queryParam("serviceDefinition", serviceDefinition);
+    }
+    Utility.sendRequestAsync(builder.toString(), "DELETE", null).whenComplete((response, error) -> {
+      synchronized (OrchestrationCacheNotifier.class) {
+        if (error == null) {
+          retryDelay = MIN_RETRY_DELAY;
+          return;
+        }
+        log.info("Orchestration cache invalidation failed, it is retried: " + error.getMessage());
+        // The Orchestrator might have moved, look it up again next time
+        cacheUri = null;
+        addPending(serviceDefinition);
+        if (!flushScheduled) {
+          flushScheduled = true;
+          retryLater();
+        }
+      }
+    });
+  }
+
+  //Guarded by OrchestrationCacheNotifier.class, the flush stays scheduled
+  private static void retryLater() {
+    executor.schedule(OrchestrationCacheNotifier::flush, retryDelay, TimeUnit.MILLISECONDS);
+    retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY);
+  }
+
+  private static String getCacheUri() {
+    String uri = cacheUri;
+    if (uri != null) {
+      return uri;
+    }
+
+    try {
+      Optional<String> orchestrationUri = uriResolver.get();
+      if (orchestrationUri.isPresent()) {
+        uri = UriBuilder.fromPath(orchestrationUri.get()).path("cache").toString();
+        cacheUri = uri;
+      }
+    } catch (RuntimeException e) {
+      log.info("Orchestrator lookup for cache invalidation failed: " + e.getMessage());
+    }
+    return uri;
+  }
+
+}
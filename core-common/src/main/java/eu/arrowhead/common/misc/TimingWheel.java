@@ -0,0 +1,263 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.common.misc;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.apache.log4j.Logger;
+
+/**
+ * Hierarchical timing wheel: calls the expiry handler with the key of an item, when the deadline of the item is reached. Scheduling,
+ * rescheduling and cancelling an item is O(1), and a tick only touches the items expiring in it, so the database does not have to be scanned
+ * for expired rows, and there is no thread per item.
+ * <p>
+ * The first wheel has <tt>wheelSize</tt> slots of one tick, every further wheel has <tt>wheelSize</tt> slots of the whole range of the previous
+ * one (the wheels are created on demand). An item is put into the lowest wheel covering its deadline, and moves down a wheel when the slot of
+ * the higher wheel comes up, until it expires from the first wheel. An item never expires before its deadline, and at most one tick after it.
+ * <p>
+ * The ticks are run by a single daemon thread, which also calls the expiry handler, so the handler should not block for long. The thread sleeps
+ * while the wheel is empty.
+ */
+public final class TimingWheel<K> {
+
+  private static final Logger log = Logger.getLogger(TimingWheel.class.getName());
+
+  private final long tickNanos;
+  private final int wheelSize;
+  private final Consumer<K> expiryHandler;
+  private final long startNanos = System.nanoTime();
+  private final Thread ticker;
+  //Guarded by this
+  private final List<Slot<K>[]> wheels = new ArrayList<>();
+  private final Map<K, Item<K>> items = new HashMap<>();
+  //The last tick that was run, counted from the start
+  private long currentTick;
+  private boolean stopped;
+
+  public TimingWheel(String name, long tickMillis, int wheelSize, Consumer<K> expiryHandler) {
+    if (tickMillis < 1 || wheelSize < 2) {
+      throw new IllegalArgumentException("The tick has to be at least 1 ms, and a wheel needs at least 2 slots.");
+    }
+    this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+    this.wheelSize = wheelSize;
+    this.expiryHandler = expiryHandler;
+    this.ticker = new Thread(this::runTicks, name);
+    ticker.setDaemon(true);
+    ticker.start();
+  }
+
+  /**
+   * Schedules the item, or moves its deadline if it is already scheduled. A deadline in the past expires the item in the next tick.
+   *
+   * @param deadline epoch milliseconds
+   */
+  public synchronized void schedule(K key, long deadline) {
+    long delayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, deadline - System.currentTimeMillis()));
+    long elapsed = System.nanoTime() - startNanos;
+    if (items.isEmpty()) {
+      //The ticker skips the ticks of an empty wheel
+      currentTick = Math.max(currentTick, elapsed / tickNanos);
+    }
+    //Rounded up, so the item can not expire early
+    long tick = Math.max(currentTick + 1, (elapsed + delayNanos + tickNanos - 1) / tickNanos);
+
+    Item<K> item = items.get(key);
+    if (item == null) {
+      item = new Item<>(key);
+      items.put(key, item);
+    } else {
+      item.unlink();
+    }
+    item.tick = tick;
+    place(item);
+    if (items.size() == 1) {
+      //The ticker might be waiting for the first item
+      notifyAll();
+    }
+  }
+
+  //Returns false if the item was not scheduled (or it has already expired)
+  public synchronized boolean cancel(K key) {
+    Item<K> item = items.remove(key);
+    if (item == null) {
+      return false;
+    }
+    item.unlink();
+    return true;
+  }
+
+  public synchronized void clear() {
+    for (Item<K> item : items.values()) {
+      item.unlink();
+    }
+    items.clear();
+  }
+
+  public synchronized int size() {
+    return items.size();
+  }
+
+  public synchronized void stop() {
+    stopped = true;
+    notifyAll();
+  }
+
+  //Puts the item into the lowest wheel whose range (counted from the current tick) covers its deadline
+  private void place(Item<K> item) {
+    long delay = item.tick - currentTick;
+    long slotTicks = 1;
+    int level = 0;
+    while (delay >= slotTicks * wheelSize) {
+      slotTicks *= wheelSize;
+      level++;
+    }
+    wheel(level)[(int) ((item.tick / slotTicks) % wheelSize)].add(item);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Slot<K>[] wheel(int level) {
+    while (wheels.size() <= level) {
+      Slot<K>[] wheel = new Slot[wheelSize];
+      for (int i = 0; i < wheelSize; i++) {
+        wheel[i] = new Slot<>();
+      }
+      wheels.add(wheel);
+    }
+    return wheels.get(level);
+  }
+
+  private void runTicks() {
+    while (true) {
+      List<K> expired;
+      synchronized (this) {
+        try {
+          while (!stopped && items.isEmpty()) {
+            wait();
+          }
+          if (stopped) {
+            return;
+          }
+          long due = (System.nanoTime() - startNanos) / tickNanos;
+          if (due <= currentTick) {
+            TimeUnit.NANOSECONDS.timedWait(this, startNanos + (currentTick + 1) * tickNanos - System.nanoTime());
+            continue;
+          }
+          //Catches up with the ticks missed while the expiry handler was running
+          expired = new ArrayList<>();
+          while (currentTick < due) {
+            currentTick++;
+            tick(expired);
+          }
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+
+      for (K key : expired) {
+        try {
+          expiryHandler.accept(key);
+        } catch (RuntimeException e) {
+          log.error("Expiry handler failed for " + key + ": " + e.getMessage());
+        }
+      }
+    }
+  }
+
+  private void tick(List<K> expired) {
+    //The higher wheels move their items down when their slot comes up, the items of a slot are due within the range of the lower wheels
+    long slotTicks = 1;
+    for (int level = 1; level < wheels.size(); level++) {
+      slotTicks *= wheelSize;
+      if (currentTick % slotTicks != 0) {
+        break;
+      }
+      Slot<K> slot = wheels.get(level)[(int) ((currentTick / slotTicks) % wheelSize)];
+      for (Item<K> item = slot.detachAll(); item != null; ) {
+        Item<K> next = item.next;
+        item.next = null;
+        place(item);
+        item = next;
+      }
+    }
+
+    if (wheels.isEmpty()) {
+      return;
+    }
+    Slot<K> slot = wheels.get(0)[(int) (currentTick % wheelSize)];
+    for (Item<K> item = slot.detachAll(); item != null; ) {
+      Item<K> next = item.next;
+      item.next = null;
+      items.remove(item.key);
+      expired.add(item.key);
+      item = next;
+    }
+  }
+
+  //Doubly linked list of the items of a slot, so an item can be removed without a search
+  private static final class Slot<K> {
+
+    private Item<K> head;
+
+    private void add(Item<K> item) {
+      item.slot = this;
+      item.previous = null;
+      item.next = head;
+      if (head != null) {
+        head.previous = item;
+      }
+      head = item;
+    }
+
+    //Empties the slot, the returned items are still linked by their next field
+    private Item<K> detachAll() {
+      Item<K> first = head;
+      head = null;
+      for (Item<K> item = first; item != null; item = item.next) {
+        item.slot = null;
+        item.previous = null;
+      }
+      return first;
+    }
+  }
+
+  private static final class Item<K> {
+
+    private final K key;
+    //Absolute tick of the deadline
+    private long tick;
+    private Slot<K> slot;
+    private Item<K> previous;
+    private Item<K> next;
+
+    private Item(K key) {
+      this.key = key;
+    }
+
+    private void unlink() {
+      if (slot == null) {
+        return;
+      }
+      if (previous == null) {
+        slot.head = next;
+      } else {
+        previous.next = next;
+      }
+      if (next != null) {
+        next.previous = previous;
+      }
+      slot = null;
+      previous = null;
+      next = null;
+    }
+  }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.common.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class ExpirySchedulerTest {
+
+  private final BlockingQueue<Long> expired = new LinkedBlockingQueue<>();
+
+  @Test
+  public void ignoresRowsUntilStarted() {
+    ExpiryScheduler scheduler = new ExpiryScheduler("test-expiry");
+    scheduler.schedule(1L, System.currentTimeMillis());
+    scheduler.cancel(1L);
+    scheduler.cancelAll();
+    assertEquals(0, scheduler.size());
+  }
+
+  @Test
+  public void ignoresUnsavedRows() {
+    ExpiryScheduler scheduler = startScheduler();
+    scheduler.schedule(null, System.currentTimeMillis() + 60000);
+    scheduler.cancel(null);
+    assertEquals(0, scheduler.size());
+  }
+
+  @Test
+  public void missingExpiryCancelsTheRow() {
+    ExpiryScheduler scheduler = startScheduler();
+    scheduler.schedule(1L, System.currentTimeMillis() + 60000);
+    scheduler.schedule(2L, System.currentTimeMillis() + 60000);
+    assertEquals(2, scheduler.size());
+
+    scheduler.schedule(1L, null);
+    assertEquals(1, scheduler.size());
+    scheduler.cancel(2L);
+    assertEquals(0, scheduler.size());
+  }
+
+  @Test
+  public void cancelAllClearsTheRows() {
+    ExpiryScheduler scheduler = startScheduler();
+    for (long id = 1; id <= 10; id++) {
+      scheduler.schedule(id, System.currentTimeMillis() + 60000);
+    }
+    scheduler.cancelAll();
+    assertEquals(0, scheduler.size());
+  }
+
+  @Test
+  public void expiresRowsPastTheirExpiry() throws InterruptedException {
+    ExpiryScheduler scheduler = startScheduler();
+    scheduler.schedule(1L, System.currentTimeMillis() - 1000);
+    scheduler.schedule(2L, System.currentTimeMillis() + 60000);
+
+    //Expires in the next one second tick
+    assertEquals(Long.valueOf(1), expired.poll(3, TimeUnit.SECONDS));
+    assertNull(expired.poll(100, TimeUnit.MILLISECONDS));
+    assertEquals(1, scheduler.size());
+    scheduler.cancelAll();
+  }
+
+  private ExpiryScheduler startScheduler() {
+    ExpiryScheduler scheduler = new ExpiryScheduler("test-expiry");
+    scheduler.start(expired::add);
+    return scheduler;
+  }
+
+}
@@ -0,0 +1,195 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.common.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class TimingWheelTest {
+
+  private static final long TICK = 2;
+  //Slack for a loaded build machine, the wheel itself expires an item at most one tick late
+  private static final long LATENESS = 250;
+
+  private final BlockingQueue<Expiry> expiries = new LinkedBlockingQueue<>();
+  private TimingWheel<Integer> wheel;
+
+  @After
+  public void stopWheel() {
+    if (wheel != null) {
+      wheel.stop();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsZeroTick() {
+    new TimingWheel<Integer>("test-wheel", 0, 8, key -> {
+    });
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsSingleSlotWheel() {
+    new TimingWheel<Integer>("test-wheel", 1, 1, key -> {
+    });
+  }
+
+  @Test
+  public void expiresItemsInDeadlineOrder() throws InterruptedException {
+    wheel = createWheel(4);
+    long now = System.currentTimeMillis();
+    wheel.schedule(1, now + 60);
+    wheel.schedule(2, now + 10);
+    wheel.schedule(3, now + 30);
+
+    assertEquals(2, take().key);
+    assertEquals(3, take().key);
+    assertEquals(1, take().key);
+    assertEquals(0, wheel.size());
+  }
+
+  //With 2 slots per wheel, the deadlines up to a second are spread over 8 wheels, and cascade down through all of them
+  @Test
+  public void cascadesItemsThroughEveryWheel() throws InterruptedException {
+    wheel = createWheel(2);
+    Map<Integer, Long> deadlines = new HashMap<>();
+    long now = System.currentTimeMillis();
+    for (int key = 0; key < 100; key++) {
+      long deadline = now + 5 + key * 10;
+      deadlines.put(key, deadline);
+      wheel.schedule(key, deadline);
+    }
+
+    while (!deadlines.isEmpty()) {
+      Expiry expiry = take();
+      long deadline = deadlines.remove(expiry.key);
+      assertNotEarly(expiry, deadline);
+      assertTrue("Item " + expiry.key + " expired " + (expiry.at - deadline) + " ms late", expiry.at - deadline <= LATENESS);
+    }
+    assertEquals(0, wheel.size());
+  }
+
+  @Test
+  public void rescheduleMovesTheDeadline() throws InterruptedException {
+    wheel = createWheel(8);
+    long now = System.currentTimeMillis();
+    wheel.schedule(1, now + 20);
+    wheel.schedule(1, now + 120);
+    assertEquals(1, wheel.size());
+
+    Expiry expiry = take();
+    assertEquals(1, expiry.key);
+    assertNotEarly(expiry, now + 120);
+    assertNull(expiries.poll(50, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void cancelledItemDoesNotExpire() throws InterruptedException {
+    wheel = createWheel(8);
+    long now = System.currentTimeMillis();
+    wheel.schedule(1, now + 20);
+    wheel.schedule(2, now + 40);
+    assertTrue(wheel.cancel(1));
+    assertFalse(wheel.cancel(1));
+
+    assertEquals(2, take().key);
+    assertNull(expiries.poll(50, TimeUnit.MILLISECONDS));
+    assertFalse(wheel.cancel(2));
+  }
+
+  @Test
+  public void clearRemovesEveryItem() throws InterruptedException {
+    wheel = createWheel(8);
+    long now = System.currentTimeMillis();
+    for (int key = 0; key < 10; key++) {
+      wheel.schedule(key, now + 30 + key);
+    }
+    wheel.clear();
+    assertEquals(0, wheel.size());
+    assertNull(expiries.poll(100, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void pastDeadlineExpiresInTheNextTick() throws InterruptedException {
+    wheel = createWheel(8);
+    wheel.schedule(1, System.currentTimeMillis() - 1000);
+    assertEquals(1, take().key);
+  }
+
+  //The ticker sleeps while the wheel is empty, an item scheduled after that must not expire early because of the skipped ticks
+  @Test
+  public void itemAfterIdlePeriodIsNotEarly() throws InterruptedException {
+    wheel = createWheel(4);
+    Thread.sleep(100);
+    long deadline = System.currentTimeMillis() + 40;
+    wheel.schedule(1, deadline);
+    assertNotEarly(take(), deadline);
+  }
+
+  @Test
+  public void failingHandlerDoesNotStopTheTicker() throws InterruptedException {
+    List<Integer> expired = new ArrayList<>();
+    wheel = new TimingWheel<>("test-wheel", TICK, 8, key -> {
+      if (key == 1) {
+        throw new IllegalStateException("test");
+      }
+      synchronized (expired) {
+        expired.add(key);
+      }
+      expiries.add(new Expiry(key, System.currentTimeMillis()));
+    });
+    long now = System.currentTimeMillis();
+    wheel.schedule(1, now + 10);
+    wheel.schedule(2, now + 30);
+
+    assertEquals(2, take().key);
+    synchronized (expired) {
+      assertEquals(1, expired.size());
+    }
+  }
+
+  private TimingWheel<Integer> createWheel(int wheelSize) {
+    return new TimingWheel<>("test-wheel", TICK, wheelSize, key -> expiries.add(new Expiry(key, System.currentTimeMillis())));
+  }
+
+  private Expiry take() throws InterruptedException {
+    Expiry expiry = expiries.poll(5, TimeUnit.SECONDS);
+    if (expiry == null) {
+      throw new AssertionError("No item expired in 5 seconds");
+    }
+    return expiry;
+  }
+
+  //The wheel counts in System.nanoTime() ticks, the deadlines are wall clock milliseconds, so 1 ms is allowed for the truncation
+  private static void assertNotEarly(Expiry expiry, long deadline) {
+    assertTrue("Item " + expiry.key + " expired " + (deadline - expiry.at) + " ms early", expiry.at >= deadline - 1);
+  }
+
+  private static final class Expiry {
+
+    private final int key;
+    private final long at;
+
+    private Expiry(int key, long at) {
+      this.key = key;
+      this.at = at;
+    }
+  }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.eventhandler;
+
+import eu.arrowhead.common.exception.ArrowheadException;
+import eu.arrowhead.common.messages.PublishEvent;
+import eu.arrowhead.core.eventhandler.model.PublishStatus;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import javax.ws.rs.core.Response.Status;
+import org.apache.log4j.Logger;
+
+/**
+ * Fire-and-forget publishing: the accepted events wait in a bounded intake queue (<tt>async_publish_queue_size</tt>), and a single thread
+ * matches and dispatches them, so the publisher does not wait for anything that depends on the number or the health of the subscribers. When
+ * the intake queue is full, the publish is rejected with 503.
+ * <p>
+ * The delivery status of the last <tt>publish_status_capacity</tt> events is kept for <tt>publish_status_retention</tt> seconds.
+ */
+final class AsyncPublisher {
+
+  private static final Logger log = Logger.getLogger(AsyncPublisher.class.getName());
+  private static final ThreadPoolExecutor intake = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                                                                          new ArrayBlockingQueue<>(EventHandlerMain.ASYNC_PUBLISH_QUEUE_SIZE),
+                                                                          runnable -> {
+                                                                            Thread thread = new Thread(runnable, "event-intake");
+                                                                            thread.setDaemon(true);
+                                                                            return thread;
+                                                                          });
+  private static final ConcurrentHashMap<String, PublishStatus> statuses = new ConcurrentHashMap<>();
+  //Event ids in the order of acceptance, to remove the oldest statuses
+  private static final ConcurrentLinkedQueue<String> order = new ConcurrentLinkedQueue<>();
+  //Event ids are unique within a run (the prefix is the start time), and cheaper to create than random UUIDs
+  private static final String idPrefix = Long.toHexString(System.currentTimeMillis()) + "-";
+  private static final AtomicLong idCounter = new AtomicLong();
+
+  private AsyncPublisher() throws AssertionError {
+    throw new AssertionError("AsyncPublisher is a non-instantiable class");
+  }
+
+  //Queues the (already validated) event, and returns its status with the event id
+  static PublishStatus publish(PublishEvent event, Consumer<Map<String, Boolean>> onComplete) {
+    String eventId = idPrefix + idCounter.incrementAndGet();
+    PublishStatus accepted = new PublishStatus(eventId, event.getSource().getSystemName(), "ACCEPTED", ZonedDateTime.now(), null, null, null,
+                                               null);
+    removeOldStatuses();
+    statuses.put(eventId, accepted);
+    order.add(eventId);
+
+    try {
+      intake.execute(() -> {
+        int subscribers;
+        try {
+          subscribers = EventHandlerService.propagateEvent(event, results -> {
+            int delivered = (int) results.values().stream().filter(Boolean::booleanValue).count();
+            statuses.computeIfPresent(eventId, (id, status) -> new PublishStatus(id, status.getPublisher(), "COMPLETED", status.getAcceptedAt(),
+                                                                                  results.size(), delivered, results.size() - delivered,
+                                                                                  results));
+            if (onComplete != null) {
+              onComplete.accept(results);
+            }
+          });
+        } catch (RuntimeException e) {
+          log.error("Dispatching the async published event " + eventId + " failed.", e);
+          statuses.computeIfPresent(eventId, (id, status) -> {
+            PublishStatus failed = new PublishStatus(id, status.getPublisher(), "FAILED", status.getAcceptedAt(), null, null, null, null);
+            failed.setError(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            return failed;
+          });
+          return;
+        }
+        //The deliveries may have been completed already
+        statuses.computeIfPresent(eventId, (id, status) -> "ACCEPTED".equals(status.getState())
+            ? new PublishStatus(id, status.getPublisher(), "DISPATCHED", status.getAcceptedAt(), subscribers, null, null, null) : status);
+      });
+    } catch (RejectedExecutionException e) {
+      statuses.remove(eventId);
+      log.warn("Async publish rejected, the intake queue is full.");
+      throw new ArrowheadException("The Event Handler is overloaded, the event was not accepted. Try again later.",
+                                   Status.SERVICE_UNAVAILABLE.getStatusCode());
+    }
+    return accepted;
+  }
+
+  //Null if the event id is unknown, or its status is already removed
+  static PublishStatus getStatus(String eventId) {
+    return statuses.get(eventId);
+  }
+
+  private static void removeOldStatuses() {
+    long limit = System.currentTimeMillis() - EventHandlerMain.PUBLISH_STATUS_RETENTION * 1000L;
+    String oldest;
+    while ((oldest = order.peek()) != null) {
+      PublishStatus status = statuses.get(oldest);
+      if (status != null && statuses.size() < EventHandlerMain.PUBLISH_STATUS_CAPACITY
+          && status.getAcceptedAt().toInstant().toEpochMilli() > limit) {
+        return;
+      }
+      //A concurrent publisher may have removed the checked id already, the next one is not younger
+      String removed = order.poll();
+      if (removed != null) {
+        statuses.remove(removed);
+      }
+    }
+  }
+
+}
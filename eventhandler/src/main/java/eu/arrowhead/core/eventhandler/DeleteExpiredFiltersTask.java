@@ -9,25 +9,56 @@ package eu.arrowhead.core.eventhandler;
 
 import eu.arrowhead.common.DatabaseManager;
 import eu.arrowhead.common.database.EventFilter;
+import eu.arrowhead.common.misc.ExpiryScheduler;
 import java.time.ZonedDateTime;
-import java.util.List;
-import java.util.TimerTask;
+import java.util.Optional;
+import java.util.function.Consumer;
 import org.apache.log4j.Logger;
 
-public class DeleteExpiredFiltersTask extends TimerTask {
+/*
+  Deletes the filters at their endDate. The EventFilterIndex registers the endDate of every filter it holds in a timing wheel, so the
+  filter table is not scanned. The wheel only exists if "remove_old_filters" is true.
+ */
+final class DeleteExpiredFiltersTask implements Consumer<Long> {
 
-  private static final DatabaseManager dm = DatabaseManager.getInstance();
+  private static final ExpiryScheduler expiry = new ExpiryScheduler("filter-expiry");
   private static final Logger log = Logger.getLogger(DeleteExpiredFiltersTask.class.getName());
 
+  //Only the expiry handler uses the database, the index can schedule and cancel filters without it
+  private final DatabaseManager dm = DatabaseManager.getInstance();
+
+  private DeleteExpiredFiltersTask() {
+  }
+
+  //Called once at startup, before the index is loaded
+  static void start() {
+    expiry.start(new DeleteExpiredFiltersTask());
+  }
+
+  //Schedules (or moves) the deletion of a saved filter
+  static void schedule(EventFilter filter) {
+    expiry.schedule(filter.getId(), filter.getEndDate() == null ? null : filter.getEndDate().toInstant().toEpochMilli());
+  }
+
+  static void cancel(EventFilter filter) {
+    expiry.cancel(filter.getId());
+  }
+
   @Override
-  public void run() {
-    List<EventFilter> filterList = dm.getAll(EventFilter.class, null);
-    for (EventFilter filter : filterList) {
-      if (filter.getEndDate() != null && filter.getEndDate().isBefore(ZonedDateTime.now())) {
-        dm.delete(filter);
-        log.debug(filter.toString() + " removed do to expired end date.");
-      }
+  public void accept(Long id) {
+    //The filter might have been deleted or updated directly in the database since it was scheduled
+    Optional<EventFilter> stored = dm.get(EventFilter.class, id);
+    if (!stored.isPresent() || stored.get().getEndDate() == null) {
+      return;
+    }
+    EventFilter filter = stored.get();
+    if (filter.getEndDate().isAfter(ZonedDateTime.now())) {
+      schedule(filter);
+      return;
     }
+    dm.delete(filter);
+    EventFilterIndex.remove(filter);
+    log.debug(filter.toString() + " removed do to expired end date.");
   }
 
 }
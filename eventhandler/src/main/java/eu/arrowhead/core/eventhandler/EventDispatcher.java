@@ -0,0 +1,262 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.eventhandler;
+
+import eu.arrowhead.common.database.EventFilter;
+import eu.arrowhead.common.messages.Event;
+import eu.arrowhead.common.messages.PublishEvent;
+import eu.arrowhead.core.eventhandler.model.SubscriberHealthStatus;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.apache.log4j.Logger;
+
+/**
+ * Delivers the published events to the subscribers on a dedicated, fixed size thread pool (<tt>delivery_threads</tt>), through a bounded
+ * {@link SubscriberQueue} per notify URL (<tt>subscriber_queue_size</tt>). Dispatching an event only puts it into the queues, so the
+ * publisher does not wait for the subscribers, and a slow subscriber only delays the events in its own queue.
+ * <p>
+ * The executor queue holds at most one drain task per subscriber queue, so it is bounded by the number of subscribers. The partial event
+ * batches are waited for on a single timer thread.
+ * <p>
+ * If the {@link EventLog} is enabled, a subscriber whose delivery failed gets no live events until its events are replayed from the log (on
+ * the same executor, in chunks, so a long replay does not hold a thread). The open circuits of the {@link SubscriberHealth}s are probed every
+ * second.
+ */
+final class EventDispatcher {
+
+  //Records read by one replay task, before it is resubmitted
+  private static final int REPLAY_LIMIT = 256;
+  private static final Logger log = Logger.getLogger(EventDispatcher.class.getName());
+  private static final ThreadPoolExecutor executor = createExecutor(EventHandlerMain.DELIVERY_THREADS);
+  private static final ScheduledExecutorService timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+    Thread thread = new Thread(runnable, "event-batch-timer");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private static final ConcurrentHashMap<String, SubscriberQueue> queues = new ConcurrentHashMap<>();
+
+  static {
+    timer.scheduleWithFixedDelay(EventDispatcher::probeOpenCircuits, 1, 1, TimeUnit.SECONDS);
+  }
+
+  private EventDispatcher() throws AssertionError {
+    throw new AssertionError("EventDispatcher is a non-instantiable class");
+  }
+
+  private static ThreadPoolExecutor createExecutor(int threads) {
+    AtomicInteger threadCount = new AtomicInteger();
+    return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+      Thread thread = new Thread(runnable, "event-delivery-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /*
+    Queues the event for every notify URL (with the batching settings of its filter) and returns immediately. The optional callback gets the
+    delivery results (URL -> delivered) on a delivery thread, after every subscriber answered, or its delivery failed. An event that does not
+    fit into the queue of a subscriber counts as a failed delivery. The record is null if the event is not in the event log.
+   */
+  static void dispatch(Event event, EventLog.Record record, Map<String, EventFilter> subscribers, Consumer<Map<String, Boolean>> onComplete) {
+    Delivery delivery = new Delivery(event, record, subscribers.size(), onComplete);
+    if (subscribers.isEmpty()) {
+      delivery.complete();
+      return;
+    }
+    for (Map.Entry<String, EventFilter> subscriber : subscribers.entrySet()) {
+      String url = subscriber.getKey();
+      if (record != null && EventLog.getCursor(url, record.getOffset()).isBehind()) {
+        //The event will be replayed from the log, after the earlier events of the subscriber
+        delivery.done(url, false);
+        continue;
+      }
+      SubscriberQueue queue = queues.computeIfAbsent(url, key -> new SubscriberQueue(key, EventHandlerMain.SUBSCRIBER_QUEUE_SIZE, executor, timer));
+      queue.setBatching(subscriber.getValue().getBatchSize(), subscriber.getValue().getBatchLinger());
+      if (!queue.offer(delivery)) {
+        log.warn("The event queue of " + url + " is full, the event is not delivered to it.");
+        delivery.done(url, false);
+      }
+    }
+  }
+
+  //Submits the replay of the subscribers whose cursor is behind, called by the EventLogTask
+  static void replayFailedDeliveries() {
+    for (SubscriberCursor cursor : EventLog.getCursors()) {
+      if (cursor.isBehind() && cursor.startReplay()) {
+        submitReplay(cursor);
+      }
+    }
+  }
+
+  private static void submitReplay(SubscriberCursor cursor) {
+    try {
+      executor.execute(() -> replay(cursor));
+    } catch (RejectedExecutionException e) {
+      cursor.finishReplay();
+    }
+  }
+
+  /*
+    Sends the events of the subscriber from its cursor, with the batching settings of its filter. It stops at the first failed delivery (the
+    next run of the EventLogTask tries again), and the cursor stays behind, until a replay reaches the end of the log.
+   */
+  private static void replay(SubscriberCursor cursor) {
+    String url = cursor.getUrl();
+    boolean resubmit = false;
+    try {
+      long offset = cursor.getOffset();
+      if (offset < EventLog.getStartOffset()) {
+        log.warn("Events of " + url + " were removed from the event log before they could be replayed.");
+        offset = EventLog.getStartOffset();
+        cursor.advance(offset);
+      }
+
+      List<Event> batch = new ArrayList<>();
+      int batchSize = 1;
+      int read = 0;
+      EventLog.Record record;
+      while (read < REPLAY_LIMIT && (record = EventLog.read(offset)) != null) {
+        read++;
+        offset = record.getNextOffset();
+        EventFilter filter = record.getEvent() == null ? null : getSubscription(record.getEvent(), url);
+        if (filter != null) {
+          batch.add(record.getEvent().getEvent());
+          batchSize = filter.getBatchSize() == null ? 1 : filter.getBatchSize();
+        }
+        if (batch.isEmpty()) {
+          cursor.advance(offset);
+        } else if (batch.size() >= batchSize) {
+          if (!SubscriberQueue.send(url, batchSize > 1 ? batch : batch.get(0))) {
+            return;
+          }
+          batch.clear();
+          cursor.advance(offset);
+        }
+      }
+      if (!batch.isEmpty()) {
+        if (!SubscriberQueue.send(url, batchSize > 1 ? batch : batch.get(0))) {
+          return;
+        }
+        cursor.advance(offset);
+      }
+
+      if (read == REPLAY_LIMIT || !cursor.catchUp()) {
+        resubmit = true;
+      } else {
+        log.info("Replay of the events of " + url + " reached the end of the event log.");
+      }
+    } finally {
+      if (resubmit) {
+        submitReplay(cursor);
+      } else {
+        cursor.finishReplay();
+      }
+    }
+  }
+
+  //The filter of the subscriber matching the event, null if the event is not for this subscriber
+  private static EventFilter getSubscription(PublishEvent event, String url) {
+    for (EventFilter filter : EventFilterIndex.match(event)) {
+      if (url.equals(EventHandlerService.getNotifyUrl(filter))) {
+        return filter;
+      }
+    }
+    return null;
+  }
+
+  //Submits the probes of the open circuits whose open period is over (a probe can block, so it runs on the executor)
+  private static void probeOpenCircuits() {
+    for (SubscriberHealth health : SubscriberHealth.getAll()) {
+      if (health.isProbeDue() && health.startProbe()) {
+        try {
+          executor.execute(() -> {
+            try {
+              //The replay of the events missed while the circuit was open is the trial delivery
+              if (health.probe() && EventLog.isEnabled()) {
+                SubscriberCursor cursor = EventLog.getCursor(health.getUrl(), EventLog.getEndOffset());
+                if (cursor.isBehind() && cursor.startReplay()) {
+                  submitReplay(cursor);
+                }
+              }
+            } finally {
+              health.finishProbe();
+            }
+          });
+        } catch (RejectedExecutionException e) {
+          health.finishProbe();
+          log.error("Probe of " + health.getUrl() + " could not be scheduled.");
+        }
+      }
+    }
+  }
+
+  static List<SubscriberHealthStatus> getHealth() {
+    List<SubscriberHealthStatus> statuses = new ArrayList<>();
+    for (SubscriberHealth health : SubscriberHealth.getAll()) {
+      SubscriberQueue queue = queues.get(health.getUrl());
+      statuses.add(health.toStatus(queue == null ? 0 : queue.size()));
+    }
+    return statuses;
+  }
+
+  //One published event, shared by the queues of its subscribers
+  static final class Delivery {
+
+    private final Event event;
+    //Null if the event is not in the event log
+    private final EventLog.Record record;
+    private final long createdAt = System.nanoTime();
+    private final Map<String, Boolean> results = new ConcurrentHashMap<>();
+    private final AtomicInteger remaining;
+    private final Consumer<Map<String, Boolean>> onComplete;
+
+    private Delivery(Event event, EventLog.Record record, int subscribers, Consumer<Map<String, Boolean>> onComplete) {
+      this.event = event;
+      this.record = record;
+      this.remaining = new AtomicInteger(subscribers);
+      this.onComplete = onComplete;
+    }
+
+    Event getEvent() {
+      return event;
+    }
+
+    //System.nanoTime() of the dispatch, the batch linger time is counted from it
+    long getCreatedAt() {
+      return createdAt;
+    }
+
+    void done(String url, boolean delivered) {
+      results.put(url, delivered);
+      if (record != null) {
+        EventLog.getCursor(url, record.getOffset()).acknowledge(record.getOffset(), record.getNextOffset(), delivered);
+      }
+      if (remaining.decrementAndGet() == 0) {
+        complete();
+      }
+    }
+
+    //The callback can block (e.g. it sends a request), so it does not run on the thread of a subscriber queue
+    private void complete() {
+      if (onComplete != null) {
+        executor.execute(() -> onComplete.accept(results));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,182 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.eventhandler;
+
+import eu.arrowhead.common.DatabaseManager;
+import eu.arrowhead.common.database.ArrowheadSystem;
+import eu.arrowhead.common.database.EventFilter;
+import eu.arrowhead.common.messages.Event;
+import eu.arrowhead.common.messages.PublishEvent;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.log4j.Logger;
+
+/**
+ * In-memory copy of the <tt>EventFilter</tt> table, indexed by event type and then by source system, so matching a published event does not
+ * need a database query. The filters of an event type form an immutable bucket, which is replaced on every change: publishers read the
+ * buckets without locking, only the (rare) subscription changes are serialized.
+ * <p>
+ * Every code path of the Event Handler that saves or deletes an <tt>EventFilter</tt> has to update the index too. Filters changed directly in
+ * the database are only seen after a restart. The index also registers the endDate of the filters for the {@link DeleteExpiredFiltersTask}.
+ */
+final class EventFilterIndex {
+
+  private static final Logger log = Logger.getLogger(EventFilterIndex.class.getName());
+
+  private static final ConcurrentHashMap<String, TypeBucket> buckets = new ConcurrentHashMap<>();
+  //The indexed filters by id, to find the previous version of an updated filter
+  private static final ConcurrentHashMap<Long, CompiledFilter> filters = new ConcurrentHashMap<>();
+
+  private EventFilterIndex() throws AssertionError {
+    throw new AssertionError("EventFilterIndex is a non-instantiable class");
+  }
+
+  //Called once at startup, before the REST interface is available
+  static synchronized void load() {
+    buckets.clear();
+    filters.clear();
+    Map<String, List<CompiledFilter>> byType = new HashMap<>();
+    for (EventFilter filter : DatabaseManager.getInstance().getAll(EventFilter.class, null)) {
+      CompiledFilter compiled = new CompiledFilter(filter);
+      filters.put(filter.getId(), compiled);
+      DeleteExpiredFiltersTask.schedule(filter);
+      byType.computeIfAbsent(filter.getEventType(), type -> new ArrayList<>()).add(compiled);
+    }
+    byType.forEach((type, list) -> buckets.put(type, new TypeBucket(list)));
+    log.info(filters.size() + " event filters loaded into the index.");
+  }
+
+  //Adds a saved filter to the index, or replaces the previous version of it (the event type might have changed)
+  static synchronized void put(EventFilter filter) {
+    CompiledFilter previous = filters.remove(filter.getId());
+    if (previous != null) {
+      removeFromBucket(previous);
+    }
+    CompiledFilter compiled = new CompiledFilter(filter);
+    filters.put(filter.getId(), compiled);
+    TypeBucket bucket = buckets.get(compiled.eventType);
+    List<CompiledFilter> list = bucket == null ? new ArrayList<>() : new ArrayList<>(bucket.all);
+    list.add(compiled);
+    buckets.put(compiled.eventType, new TypeBucket(list));
+    DeleteExpiredFiltersTask.schedule(filter);
+  }
+
+  static synchronized void remove(EventFilter filter) {
+    CompiledFilter previous = filters.remove(filter.getId());
+    if (previous != null) {
+      removeFromBucket(previous);
+    }
+    DeleteExpiredFiltersTask.cancel(filter);
+  }
+
+  private static void removeFromBucket(CompiledFilter compiled) {
+    TypeBucket bucket = buckets.get(compiled.eventType);
+    if (bucket == null) {
+      return;
+    }
+    List<CompiledFilter> list = new ArrayList<>(bucket.all);
+    list.remove(compiled);
+    if (list.isEmpty()) {
+      buckets.remove(compiled.eventType);
+    } else {
+      buckets.put(compiled.eventType, new TypeBucket(list));
+    }
+  }
+
+  /*
+    The filters accepting the event: the event type is the same, the source of the event is in the sources of the filter (every source is
+    accepted, if the filter has no sources), the event timestamp is between the startDate and endDate of the filter, and if matchMetadata is
+    true, the metadata of the event and the filter are the same.
+   */
+  static List<EventFilter> match(PublishEvent pe) {
+    TypeBucket bucket = buckets.get(pe.getEvent().getType());
+    if (bucket == null) {
+      return new ArrayList<>();
+    }
+    List<EventFilter> result = new ArrayList<>();
+    Event event = pe.getEvent();
+    Instant timestamp = event.getTimestamp().toInstant();
+    for (CompiledFilter compiled : bucket.anySource) {
+      if (compiled.accepts(timestamp, event.getEventMetadata())) {
+        result.add(compiled.filter);
+      }
+    }
+    List<CompiledFilter> sourceFilters = pe.getSource() == null ? null : bucket.bySource.get(pe.getSource());
+    if (sourceFilters != null) {
+      for (CompiledFilter compiled : sourceFilters) {
+        if (compiled.accepts(timestamp, event.getEventMetadata())) {
+          result.add(compiled.filter);
+        }
+      }
+    }
+    return result;
+  }
+
+  //The filters of one event type, never modified after it is created
+  private static final class TypeBucket {
+
+    private final List<CompiledFilter> all;
+    private final List<CompiledFilter> anySource = new ArrayList<>();
+    private final Map<ArrowheadSystem, List<CompiledFilter>> bySource = new HashMap<>();
+
+    private TypeBucket(List<CompiledFilter> all) {
+      this.all = Collections.unmodifiableList(all);
+      for (CompiledFilter compiled : all) {
+        if (compiled.sources.isEmpty()) {
+          anySource.add(compiled);
+        } else {
+          for (ArrowheadSystem source : compiled.sources) {
+            bySource.computeIfAbsent(source, key -> new ArrayList<>()).add(compiled);
+          }
+        }
+      }
+    }
+  }
+
+  //The conditions of a filter, evaluated in advance to the form the matching needs
+  private static final class CompiledFilter {
+
+    private final EventFilter filter;
+    private final String eventType;
+    private final List<ArrowheadSystem> sources;
+    private final Instant start;
+    private final Instant end;
+    //Null if the metadata does not have to match
+    private final Map<String, String> metadata;
+
+    private CompiledFilter(EventFilter filter) {
+      this.filter = filter;
+      this.eventType = filter.getEventType();
+      this.sources = filter.getSources() == null ? Collections.emptyList() : new ArrayList<>(filter.getSources());
+      this.start = filter.getStartDate() == null ? null : filter.getStartDate().toInstant();
+      this.end = filter.getEndDate() == null ? null : filter.getEndDate().toInstant();
+      boolean matchMetadata = filter.isMatchMetadata() != null && filter.isMatchMetadata();
+      if (matchMetadata) {
+        this.metadata = filter.getFilterMetadata() == null ? new HashMap<>() : new HashMap<>(filter.getFilterMetadata());
+      } else {
+        this.metadata = null;
+      }
+    }
+
+    private boolean accepts(Instant timestamp, Map<String, String> eventMetadata) {
+      if (start != null && timestamp.isBefore(start)) {
+        return false;
+      }
+      if (end != null && timestamp.isAfter(end)) {
+        return false;
+      }
+      return metadata == null || metadata.equals(eventMetadata == null ? Collections.emptyMap() : eventMetadata);
+    }
+  }
+
+}
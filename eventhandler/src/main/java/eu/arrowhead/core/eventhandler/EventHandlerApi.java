@@ -3,6 +3,9 @@ package eu.arrowhead.core.eventhandler;
 import eu.arrowhead.common.DatabaseManager;
 import eu.arrowhead.common.database.EventFilter;
 import eu.arrowhead.common.exception.DataNotFoundException;
+import eu.arrowhead.core.eventhandler.model.SubscriberCursorStatus;
+import eu.arrowhead.core.eventhandler.model.SubscriberHealthStatus;
+import java.util.ArrayList;
 import java.util.List;
 import javax.validation.Valid;
 import javax.ws.rs.Consumes;
@@ -42,12 +45,35 @@ public class EventHandlerApi {
   public Response deleteEventSubscriptionById(@PathParam("id") long id) {
     return dm.get(EventFilter.class, id).map(entry -> {
       dm.delete(entry);
+      EventFilterIndex.remove(entry);
       return Response.ok().build();
     }).<DataNotFoundException>orElseThrow(() -> {
       throw new DataNotFoundException("EventFilter not found with id: " + id);
     });
   }
 
+  //Delivery health and circuit breaker state of every subscriber that got an event since the start
+  @GET
+  @Path("subscribers/health")
+  public List<SubscriberHealthStatus> getSubscriberHealth() {
+    return EventDispatcher.getHealth();
+  }
+
+  //Positions of the subscribers in the event log, empty if the event log is disabled
+  @GET
+  @Path("cursors")
+  public List<SubscriberCursorStatus> getSubscriberCursors() {
+    List<SubscriberCursorStatus> cursors = new ArrayList<>();
+    if (EventLog.isEnabled()) {
+      long end = EventLog.getEndOffset();
+      for (SubscriberCursor cursor : EventLog.getCursors()) {
+        long offset = cursor.getOffset();
+        cursors.add(new SubscriberCursorStatus(cursor.getUrl(), offset, Math.max(0, end - offset), cursor.isBehind()));
+      }
+    }
+    return cursors;
+  }
+
   @PUT
   @Path("subscriptions/{id}")
   public Response updateEventSubscriptionById(@PathParam("id") long id, @Valid EventFilter updatedFilter) {
@@ -55,6 +81,7 @@ public class EventHandlerApi {
         () -> new DataNotFoundException("EventFilter not found with id: " + id));
     filter.partialUpdateFilter(updatedFilter);
     filter = dm.merge(filter);
+    EventFilterIndex.put(filter);
     return Response.ok().entity(filter).build();
   }
 
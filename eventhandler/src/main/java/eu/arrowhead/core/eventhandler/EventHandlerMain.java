@@ -14,30 +14,56 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.Timer;
-import java.util.TimerTask;
 
 public class EventHandlerMain extends ArrowheadMain {
 
   static int EVENT_PUBLISHING_TOLERANCE;
+  static int DELIVERY_THREADS;
+  static int SUBSCRIBER_QUEUE_SIZE;
+  static int CIRCUIT_FAILURE_THRESHOLD;
+  static int CIRCUIT_OPEN_TIME;
+  static int MIN_DELIVERY_TIMEOUT;
+  static int MAX_DELIVERY_TIMEOUT;
+  static int ASYNC_PUBLISH_QUEUE_SIZE;
+  static int PUBLISH_STATUS_CAPACITY;
+  static int PUBLISH_STATUS_RETENTION;
 
   {
     EVENT_PUBLISHING_TOLERANCE = props.getIntProperty("event_publishing_tolerance", 60);
+    DELIVERY_THREADS = props.getIntProperty("delivery_threads", 16);
+    SUBSCRIBER_QUEUE_SIZE = props.getIntProperty("subscriber_queue_size", 1000);
+    CIRCUIT_FAILURE_THRESHOLD = props.getIntProperty("circuit_failure_threshold", 5);
+    CIRCUIT_OPEN_TIME = props.getIntProperty("circuit_open_time", 30);
+    MIN_DELIVERY_TIMEOUT = props.getIntProperty("min_delivery_timeout", 2000);
+    MAX_DELIVERY_TIMEOUT = props.getIntProperty("max_delivery_timeout", 30000);
+    ASYNC_PUBLISH_QUEUE_SIZE = props.getIntProperty("async_publish_queue_size", 10000);
+    PUBLISH_STATUS_CAPACITY = props.getIntProperty("publish_status_capacity", 10000);
+    PUBLISH_STATUS_RETENTION = props.getIntProperty("publish_status_retention", 600);
   }
 
   private EventHandlerMain(String[] args) {
+    //if removing old filters (based on endDate field) is requested, the index registers the filters for deletion at their endDate
+    if (props.getBooleanProperty("remove_old_filters", false)) {
+      DeleteExpiredFiltersTask.start();
+    }
+    EventFilterIndex.load();
+
+    //if the event log is enabled, open it and start the TimerTask that replays the failed deliveries from it
+    if (props.getBooleanProperty("event_log", false)) {
+      EventLog.open(props.getProperty("event_log_dir", "event_log"), props.getIntProperty("event_log_segment_size", 64),
+                    props.getIntProperty("event_log_retention", 24));
+      Timer eventLogTimer = new Timer();
+      long interval = props.getIntProperty("event_log_replay_interval", 30) * 1000L;
+      eventLogTimer.schedule(new EventLogTask(), interval, interval);
+      //shutdown() exits the JVM, the hook saves the cursors of the deliveries since the last run of the task
+      Runtime.getRuntime().addShutdownHook(new Thread(EventLog::flush));
+    }
+
     Set<Class<?>> classes = new HashSet<>(
         Arrays.asList(ArrowheadSystemApi.class, EventHandlerResource.class, EventHandlerApi.class));
     String[] packages = {"eu.arrowhead.common.exception", "eu.arrowhead.common.json", "eu.arrowhead.common.filter"};
     init(CoreSystem.EVENT_HANDLER, args, classes, packages);
 
-    //if removing old filters (based on endDate field) is requested, start the TimerTask that provides it
-    if (props.getBooleanProperty("remove_old_filters", false)) {
-      TimerTask pingTask = new DeleteExpiredFiltersTask();
-      Timer pingTimer = new Timer();
-      int interval = props.getIntProperty("check_interval", 60);
-      pingTimer.schedule(pingTask, 60L * 1000L, (interval * 60L * 1000L));
-    }
-
     listenForInput();
   }
 
@@ -9,10 +9,15 @@ package eu.arrowhead.core.eventhandler;
 
 import eu.arrowhead.common.Utility;
 import eu.arrowhead.common.database.EventFilter;
+import eu.arrowhead.common.exception.AuthException;
 import eu.arrowhead.common.exception.BadPayloadException;
+import eu.arrowhead.common.exception.DataNotFoundException;
 import eu.arrowhead.common.messages.PublishEvent;
+import eu.arrowhead.common.misc.SecurityUtils;
+import eu.arrowhead.core.eventhandler.model.PublishStatus;
 import java.time.ZonedDateTime;
-import java.util.concurrent.CompletableFuture;
+import java.util.Map;
+import java.util.function.Consumer;
 import javax.validation.Valid;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
@@ -48,6 +53,50 @@ public class EventHandlerResource {
   @POST
   @Path("publish")
   public Response publishEvent(@Valid PublishEvent eventPublished, @Context ContainerRequestContext requestContext) {
+    validateTimestamp(eventPublished);
+    boolean isSecure = requestContext.getSecurityContext().isSecure();
+
+    /* The event is queued to the consumers, then the results will be sent back to the publisher (if it asked for them), summarizing which
+       consumers received the event without an error. */
+    EventHandlerService.propagateEvent(eventPublished, deliveryCallback(eventPublished, isSecure));
+
+    //return OK while the event publishing happens in async
+    return Response.status(Status.OK).build();
+  }
+
+  /*
+    Returns 202 right after the validation, with the event id, even the matching of the subscribers happens in the background. The delivery
+    status can be queried with the event id.
+   */
+  @POST
+  @Path("publish/async")
+  public Response publishEventAsync(@Valid PublishEvent eventPublished, @Context ContainerRequestContext requestContext) {
+    validateTimestamp(eventPublished);
+    boolean isSecure = requestContext.getSecurityContext().isSecure();
+    PublishStatus status = AsyncPublisher.publish(eventPublished, deliveryCallback(eventPublished, isSecure));
+    return Response.status(Status.ACCEPTED).entity(status).build();
+  }
+
+  //In secure mode only the publisher of the event (and the sysop) can query the status, since it contains the notify URLs of the subscribers
+  @GET
+  @Path("publish/{eventId}")
+  public Response getPublishStatus(@PathParam("eventId") String eventId, @Context ContainerRequestContext requestContext) {
+    PublishStatus status = AsyncPublisher.getStatus(eventId);
+    if (status == null) {
+      throw new DataNotFoundException("Publish status not found for the event id: " + eventId);
+    }
+    if (requestContext.getSecurityContext().isSecure()) {
+      String clientCN = SecurityUtils.getCertCNFromSubject(requestContext.getSecurityContext().getUserPrincipal().getName());
+      String clientName = clientCN.split("\\.", 2)[0];
+      if (!clientName.equalsIgnoreCase(status.getPublisher()) && !clientName.equalsIgnoreCase("sysop")) {
+        log.error(clientCN + " is not the publisher of the event " + eventId + ", publish status query denied!");
+        throw new AuthException(clientCN + " is not the publisher of the event " + eventId);
+      }
+    }
+    return Response.status(Status.OK).entity(status).build();
+  }
+
+  private static void validateTimestamp(PublishEvent eventPublished) {
     if (eventPublished.getEvent().getTimestamp() == null) {
       eventPublished.getEvent().setTimestamp(ZonedDateTime.now());
     }
@@ -62,26 +111,23 @@ public class EventHandlerResource {
             "This event is too far in the future. Maximum allowed timestamp tolerance for events: " + EventHandlerMain.EVENT_PUBLISHING_TOLERANCE);
       }
     }
-    boolean isSecure = requestContext.getSecurityContext().isSecure();
+  }
 
-    /* First the event will be propagated to consumers, then the results will be sent back to the publisher, summarizing which consumers received the
-       event without an error. */
-    CompletableFuture.supplyAsync(() -> EventHandlerService.propagateEvent(eventPublished)).thenAccept(map -> {
-      if (eventPublished.getDeliveryCompleteUri() != null) {
-        String callbackUrl = Utility
-            .getUri(eventPublished.getSource().getAddress(), eventPublished.getSource().getPort(), eventPublished.getDeliveryCompleteUri(), isSecure,
-                    false);
-        try {
-          Utility.sendRequest(callbackUrl, "POST", map);
-        } catch (RuntimeException e) {
-          log.error("Callback after event publishing failed at: " + callbackUrl);
-          e.printStackTrace();
-        }
+  //Sends the delivery results to the publisher, null if it did not ask for them
+  private static Consumer<Map<String, Boolean>> deliveryCallback(PublishEvent eventPublished, boolean isSecure) {
+    String deliveryCompleteUri = eventPublished.getDeliveryCompleteUri();
+    if (deliveryCompleteUri == null) {
+      return null;
+    }
+    return map -> {
+      String callbackUrl = Utility
+          .getUri(eventPublished.getSource().getAddress(), eventPublished.getSource().getPort(), deliveryCompleteUri, isSecure, false);
+      try {
+        Utility.sendRequest(callbackUrl, "POST", map);
+      } catch (RuntimeException e) {
+        log.error("Callback after event publishing failed at: " + callbackUrl, e);
       }
-    });
-
-    //return OK while the event publishing happens in async
-    return Response.status(Status.OK).build();
+    };
   }
 
   @POST
@@ -12,17 +12,14 @@ import eu.arrowhead.common.Utility;
 import eu.arrowhead.common.database.ArrowheadSystem;
 import eu.arrowhead.common.database.EventFilter;
 import eu.arrowhead.common.exception.ArrowheadException;
-import eu.arrowhead.common.messages.Event;
 import eu.arrowhead.common.messages.PublishEvent;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Stream;
+import java.util.function.Consumer;
 import org.apache.log4j.Logger;
 
 final class EventHandlerService {
@@ -31,66 +28,39 @@ final class EventHandlerService {
   private static final DatabaseManager dm = DatabaseManager.getInstance();
   private static final HashMap<String, Object> restrictionMap = new HashMap<>();
 
-  private static List<EventFilter> getMatchingEventFilters(PublishEvent pe) {
-    restrictionMap.clear();
-    restrictionMap.put("eventType", pe.getEvent().getType());
-    List<EventFilter> filters = dm.getAll(EventFilter.class, restrictionMap);
-    // Remove the filter if the event source is not in the filter's source list (every source is accepted, if the
-    // filter has no sources)
-    filters.removeIf(current -> !current.getSources().isEmpty() && !current.getSources().contains(pe.getSource()));
-    // Remove the filter if the event timestamp is not between the filter's startDate and endDate
-    filters.removeIf(
-        current -> current.getStartDate() != null && pe.getEvent().getTimestamp().isBefore(current.getStartDate()));
-    filters.removeIf(
-        current -> current.getEndDate() != null && pe.getEvent().getTimestamp().isAfter(current.getEndDate()));
-    // Remove the filter if MatchMetadata = true and the event and filter metadata do not match perfectly
-    filters.removeIf(
-        current -> current.isMatchMetadata() && !pe.getEvent().getEventMetadata().equals(current.getFilterMetadata()));
+  /*
+    Queues the event to the matching subscribers, and returns the number of them without waiting for the deliveries. The optional callback
+    gets the delivery results (notify URL -> delivered) when every delivery is finished.
+   */
+  static int propagateEvent(PublishEvent eventPublished, Consumer<Map<String, Boolean>> onComplete) {
+    // Get the event relevant filters from the in-memory index
+    List<EventFilter> filters = EventFilterIndex.match(eventPublished);
+    // Create the URLs from the filters (if more filters of a consumer share the URL, the batching settings of the first one are used)
+    Map<String, EventFilter> subscribers = new LinkedHashMap<>();
+    for (EventFilter filter : filters) {
+      String url = getNotifyUrl(filter);
+      if (url != null) {
+        subscribers.putIfAbsent(url, filter);
+      }
+    }
+    // Keep the event in the event log (if it is enabled), so failed deliveries can be replayed
+    EventLog.Record record = EventLog.isEnabled() ? EventLog.append(eventPublished) : null;
 
-    return filters;
+    EventDispatcher.dispatch(eventPublished.getEvent(), record, subscribers, onComplete);
+    log.info("Event queued for " + subscribers.size() + " subscribers.");
+    return subscribers.size();
   }
 
-  private static boolean sendRequest(String url, Event event) {
+  //Null if the URL can not be created from the filter
+  static String getNotifyUrl(EventFilter filter) {
     try {
-      Utility.sendRequest(url, "POST", event);
-    } catch (Exception e) {
-      log.error("Publishing event to " + url + " failed.");
+      boolean isSecure = filter.getConsumer().getAuthenticationInfo() != null;
+      return Utility
+          .getUri(filter.getConsumer().getAddress(), filter.getConsumer().getPort(), filter.getNotifyUri(), isSecure, false);
+    } catch (ArrowheadException | NullPointerException e) {
       e.printStackTrace();
-      return false;
-    }
-    return true;
-  }
-
-  static Map<String, Boolean> propagateEvent(PublishEvent eventPublished) {
-    // Get the event relevant filters from the DB
-    List<EventFilter> filters = getMatchingEventFilters(eventPublished);
-    // Create the URLs from the filters
-    List<String> urls = new ArrayList<>();
-    for (EventFilter filter : filters) {
-      String url;
-      try {
-        boolean isSecure = filter.getConsumer().getAuthenticationInfo() != null;
-        url = Utility
-            .getUri(filter.getConsumer().getAddress(), filter.getConsumer().getPort(), filter.getNotifyUri(), isSecure,
-                    false);
-      } catch (ArrowheadException | NullPointerException e) {
-        e.printStackTrace();
-        continue;
-      }
-      urls.add(url);
+      return null;
     }
-
-    Map<String, Boolean> result = new ConcurrentHashMap<>();
-    /*Note: ForkJoinPool.commonPool (used by CompletableFuture as default) has a default size equal to one less than
-    the number of cores of your CPU. For faster execution (when there is a large number of urls),
-    use custom thread pool manager:
-      Executor myThreadPool = Executors.newFixedThreadPool(numberOfThreads);*/
-    Stream<CompletableFuture> stream = urls.stream().map(
-        url -> CompletableFuture.supplyAsync(() -> sendRequest(url, eventPublished.getEvent()))
-                                .thenAcceptAsync(published -> result.put(url, published)));
-    CompletableFuture.allOf(stream.toArray(CompletableFuture[]::new)).join();
-    log.info("Event published to " + urls.size() + " subscribers.");
-    return result;
   }
 
   static EventFilter saveEventFilter(EventFilter filter) {
@@ -125,7 +95,9 @@ final class EventHandlerService {
       }
 
       filter.setSources(sources);
-      return dm.save(filter);
+      EventFilter savedFilter = dm.save(filter);
+      EventFilterIndex.put(savedFilter);
+      return savedFilter;
     }
 
     return null;
@@ -146,6 +118,7 @@ final class EventHandlerService {
       EventFilter filter = dm.get(EventFilter.class, restrictionMap);
       if (filter != null) {
         dm.delete(filter);
+        EventFilterIndex.remove(filter);
       }
     }
     return 200; //OK ~ delete was successful
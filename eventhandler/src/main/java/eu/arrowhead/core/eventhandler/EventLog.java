@@ -0,0 +1,271 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.eventhandler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import eu.arrowhead.common.exception.ArrowheadException;
+import eu.arrowhead.common.json.JacksonJsonProviderAtRest;
+import eu.arrowhead.common.messages.PublishEvent;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import org.apache.log4j.Logger;
+
+/**
+ * Append-only log of the published events, in memory-mapped segment files of <tt>event_log_segment_size</tt> megabytes in the
+ * <tt>event_log_dir</tt> directory. An event is identified by its offset: the position of its record in the (virtual) concatenation of the
+ * segments, the name of a segment file is the offset of its first record. A segment is deleted when its last event is older than
+ * <tt>event_log_retention</tt> hours.
+ * <p>
+ * Every subscriber (notify URL) has a {@link SubscriberCursor}. The cursors are saved to the <tt>cursors.properties</tt> file of the log
+ * directory by the {@link EventLogTask}, not per event, and after a restart every subscriber is replayed from its saved cursor. The events are
+ * delivered at least once: a replay can send an event again, that was delivered after the cursor was saved.
+ */
+final class EventLog {
+
+  private static final Logger log = Logger.getLogger(EventLog.class.getName());
+  private static final ObjectMapper mapper = JacksonJsonProviderAtRest.getMapper();
+  private static final ObjectWriter writer = mapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+  private static final String SEGMENT_SUFFIX = ".log";
+  private static final String CURSORS_FILE = "cursors.properties";
+
+  //Segments by their base offset
+  private static final ConcurrentSkipListMap<Long, LogSegment> segments = new ConcurrentSkipListMap<>();
+  private static final ConcurrentHashMap<String, SubscriberCursor> cursors = new ConcurrentHashMap<>();
+  private static volatile boolean enabled;
+  private static File directory;
+  private static int segmentSize;
+  private static long retentionMillis;
+  //The segment the events are appended to, guarded by EventLog.class
+  private static LogSegment active;
+
+  private EventLog() throws AssertionError {
+    throw new AssertionError("EventLog is a non-instantiable class");
+  }
+
+  //Opens the existing segments and cursors of the directory, called once at startup
+  static synchronized void open(String dir, int segmentSizeMb, int retentionHours) {
+    directory = new File(dir);
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new ArrowheadException("Event log directory could not be created: " + directory.getAbsolutePath());
+    }
+    segmentSize = segmentSizeMb * 1024 * 1024;
+    retentionMillis = retentionHours * 3600_000L;
+
+    File[] files = directory.listFiles((file, name) -> name.endsWith(SEGMENT_SUFFIX));
+    if (files == null) {
+      files = new File[0];
+    }
+    Arrays.sort(files);
+    try {
+      for (File file : files) {
+        long baseOffset = Long.parseLong(file.getName().substring(0, file.getName().length() - SEGMENT_SUFFIX.length()));
+        segments.put(baseOffset, new LogSegment(file, baseOffset, segmentSize, false));
+      }
+      active = segments.isEmpty() ? createSegment(0) : segments.lastEntry().getValue();
+    } catch (IOException | NumberFormatException e) {
+      throw new ArrowheadException("Event log could not be opened in " + directory.getAbsolutePath(), e);
+    }
+    loadCursors();
+    enabled = true;
+    log.info("Event log opened with " + segments.size() + " segments, offsets " + getStartOffset() + " - " + getEndOffset());
+  }
+
+  static boolean isEnabled() {
+    return enabled;
+  }
+
+  private static LogSegment createSegment(long baseOffset) throws IOException {
+    File file = new File(directory, String.format("%020d", baseOffset) + SEGMENT_SUFFIX);
+    LogSegment segment = new LogSegment(file, baseOffset, segmentSize, true);
+    segments.put(baseOffset, segment);
+    return segment;
+  }
+
+  //Returns the record of the event, or null if it could not be logged (the event is still delivered live)
+  static Record append(PublishEvent event) {
+    byte[] payload;
+    try {
+      payload = writer.writeValueAsBytes(event);
+    } catch (IOException e) {
+      log.error("Event could not be serialized for the event log: " + e.getMessage());
+      return null;
+    }
+    if (payload.length + LogSegment.HEADER_SIZE > segmentSize) {
+      log.error("Event of " + payload.length + " bytes is larger than the event log segments, it is not logged.");
+      return null;
+    }
+    long offset;
+    synchronized (EventLog.class) {
+      if (!active.fits(payload.length)) {
+        try {
+          active = createSegment(active.getEndOffset());
+        } catch (IOException e) {
+          log.error("New event log segment could not be created: " + e.getMessage());
+          return null;
+        }
+      }
+      offset = active.append(payload);
+    }
+    return new Record(offset, offset + LogSegment.HEADER_SIZE + payload.length, event);
+  }
+
+  static long getStartOffset() {
+    return segments.firstKey();
+  }
+
+  static long getEndOffset() {
+    return segments.lastEntry().getValue().getEndOffset();
+  }
+
+  //The first record at or after the offset, null at the end of the log
+  static Record read(long offset) {
+    Map.Entry<Long, LogSegment> entry = segments.floorEntry(offset);
+    if (entry == null) {
+      entry = segments.firstEntry();
+      offset = entry.getKey();
+    }
+    byte[] payload = entry.getValue().read(offset);
+    if (payload == null) {
+      //The rest of a segment can be empty after a crash, the records continue in the next segment
+      Long next = segments.higherKey(offset);
+      return next == null ? null : read(next);
+    }
+    try {
+      PublishEvent event = mapper.readValue(payload, PublishEvent.class);
+      return new Record(offset, offset + LogSegment.HEADER_SIZE + payload.length, event);
+    } catch (IOException e) {
+      log.error("Event log record at " + offset + " could not be parsed, it is skipped: " + e.getMessage());
+      return new Record(offset, offset + LogSegment.HEADER_SIZE + payload.length, null);
+    }
+  }
+
+  //The cursor of the subscriber, a new subscriber starts at the given offset
+  static SubscriberCursor getCursor(String url, long offset) {
+    return cursors.computeIfAbsent(url, key -> new SubscriberCursor(key, offset, false));
+  }
+
+  static List<SubscriberCursor> getCursors() {
+    return new ArrayList<>(cursors.values());
+  }
+
+  //Deletes the segments (except the active one) without an event younger than the retention time
+  static void deleteExpiredSegments() {
+    long limit = System.currentTimeMillis() - retentionMillis;
+    Iterator<LogSegment> iterator = segments.values().iterator();
+    while (iterator.hasNext()) {
+      LogSegment segment = iterator.next();
+      synchronized (EventLog.class) {
+        if (segment == active || segment.getLastAppendAt() > limit) {
+          return;
+        }
+        iterator.remove();
+      }
+      //The memory of the mapping is reclaimed when the garbage collector frees the buffer (on Windows the file can not be deleted until then)
+      segment.close();
+      if (!segment.getFile().delete()) {
+        log.warn("Expired event log segment could not be deleted: " + segment.getFile().getAbsolutePath());
+      }
+      log.debug("Event log segment " + segment.getFile().getName() + " removed due to the retention time.");
+    }
+  }
+
+  //Writes the segments and the cursors to the disk
+  static void flush() {
+    for (LogSegment segment : segments.values()) {
+      segment.flush();
+    }
+    saveCursors();
+  }
+
+  private static void loadCursors() {
+    File file = new File(directory, CURSORS_FILE);
+    if (!file.exists()) {
+      return;
+    }
+    Properties properties = new Properties();
+    try (InputStream in = new FileInputStream(file)) {
+      properties.load(in);
+    } catch (IOException e) {
+      log.error("Event log cursors could not be loaded, the subscribers get only the new events: " + e.getMessage());
+      return;
+    }
+    long end = getEndOffset();
+    for (String url : properties.stringPropertyNames()) {
+      try {
+        long offset = Long.parseLong(properties.getProperty(url));
+        //Events after the saved position may have been lost from the delivery queues, they are replayed
+        cursors.put(url, new SubscriberCursor(url, offset, offset < end));
+      } catch (NumberFormatException e) {
+        log.warn("Invalid event log cursor for " + url + ": " + properties.getProperty(url));
+      }
+    }
+  }
+
+  private static void saveCursors() {
+    Properties properties = new Properties();
+    for (SubscriberCursor cursor : cursors.values()) {
+      properties.setProperty(cursor.getUrl(), String.valueOf(cursor.getOffset()));
+    }
+    File file = new File(directory, CURSORS_FILE);
+    File temp = new File(directory, CURSORS_FILE + ".tmp");
+    try (OutputStream out = new FileOutputStream(temp)) {
+      properties.store(out, "Event Handler subscriber cursors (notify URL = event log offset)");
+    } catch (IOException e) {
+      log.error("Event log cursors could not be saved: " + e.getMessage());
+      return;
+    }
+    try {
+      Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      log.error("Event log cursors could not be saved: " + e.getMessage());
+    }
+  }
+
+  static final class Record {
+
+    private final long offset;
+    private final long nextOffset;
+    //Null if the record could not be parsed
+    private final PublishEvent event;
+
+    private Record(long offset, long nextOffset, PublishEvent event) {
+      this.offset = offset;
+      this.nextOffset = nextOffset;
+      this.event = event;
+    }
+
+    long getOffset() {
+      return offset;
+    }
+
+    long getNextOffset() {
+      return nextOffset;
+    }
+
+    PublishEvent getEvent() {
+      return event;
+    }
+  }
+
+}
@@ -0,0 +1,30 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.eventhandler;
+
+import java.util.TimerTask;
+import org.apache.log4j.Logger;
+
+//Maintenance of the event log: retention, saving the cursors and replaying the failed deliveries
+public class EventLogTask extends TimerTask {
+
+  private static final Logger log = Logger.getLogger(EventLogTask.class.getName());
+
+  @Override
+  public void run() {
+    try {
+      EventLog.deleteExpiredSegments();
+      EventLog.flush();
+      EventDispatcher.replayFailedDeliveries();
+    } catch (RuntimeException e) {
+      //An exception would cancel the timer
+      log.error("Event log maintenance failed: " + e.getMessage(), e);
+    }
+  }
+
+}
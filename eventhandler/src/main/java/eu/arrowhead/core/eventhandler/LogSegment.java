@@ -0,0 +1,132 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.eventhandler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * One memory-mapped file of the {@link EventLog}. A record is a 4 byte length and the serialized event. The file is zero filled when it is
+ * created, so the first 0 length marks the end of the records: the payload of a record is written before its length, and a record cut short
+ * by a crash is not seen after a restart.
+ * <p>
+ * Only the log appends to a segment (under the lock of the log), the readers see the records below the volatile {@link #size}.
+ * <p>
+ * The file channel is only open while the file is mapped. The mapping itself can not be released explicitly (Java 8 has no public unmap), so
+ * {@link #close()} drops the reference to it, and the memory is reclaimed lazily, when the garbage collector frees the buffer.
+ */
+final class LogSegment {
+
+  static final int HEADER_SIZE = 4;
+
+  private final File file;
+  //Log offset of the first byte of the segment
+  private final long baseOffset;
+  //Null after the segment is closed
+  private volatile MappedByteBuffer buffer;
+  //Retention is counted from the last append
+  private volatile long lastAppendAt;
+  private volatile int size;
+
+  LogSegment(File file, long baseOffset, int capacity, boolean create) throws IOException {
+    this.file = file;
+    this.baseOffset = baseOffset;
+    MappedByteBuffer buffer;
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+      if (create) {
+        raf.setLength(capacity);
+      }
+      //The mapping stays valid after the channel is closed
+      buffer = channel.map(MapMode.READ_WRITE, 0, raf.length());
+    }
+    this.buffer = buffer;
+    this.lastAppendAt = create ? System.currentTimeMillis() : file.lastModified();
+    this.size = create ? 0 : recover(buffer);
+  }
+
+  //The end of the complete records of an existing segment
+  private static int recover(MappedByteBuffer buffer) {
+    int position = 0;
+    while (position + HEADER_SIZE <= buffer.capacity()) {
+      int length = buffer.getInt(position);
+      if (length <= 0 || position + HEADER_SIZE + length > buffer.capacity()) {
+        break;
+      }
+      position += HEADER_SIZE + length;
+    }
+    return position;
+  }
+
+  long getBaseOffset() {
+    return baseOffset;
+  }
+
+  //Log offset after the last record
+  long getEndOffset() {
+    return baseOffset + size;
+  }
+
+  long getLastAppendAt() {
+    return lastAppendAt;
+  }
+
+  File getFile() {
+    return file;
+  }
+
+  boolean fits(int length) {
+    return size + HEADER_SIZE + length <= buffer.capacity();
+  }
+
+  //Returns the log offset of the record, the caller checked that it fits
+  long append(byte[] payload) {
+    int position = size;
+    ByteBuffer target = buffer.duplicate();
+    target.position(position + HEADER_SIZE);
+    target.put(payload);
+    buffer.putInt(position, payload.length);
+    size = position + HEADER_SIZE + payload.length;
+    lastAppendAt = System.currentTimeMillis();
+    return baseOffset + position;
+  }
+
+  //The payload of the record at the log offset, null if there is no record there (yet)
+  byte[] read(long offset) {
+    //A reader may still hold a segment deleted by the retention
+    MappedByteBuffer mapped = buffer;
+    int position = (int) (offset - baseOffset);
+    if (mapped == null || position < 0 || position + HEADER_SIZE > size) {
+      return null;
+    }
+    int length = mapped.getInt(position);
+    byte[] payload = new byte[length];
+    ByteBuffer source = mapped.duplicate();
+    source.position(position + HEADER_SIZE);
+    source.get(payload);
+    return payload;
+  }
+
+  void flush() {
+    MappedByteBuffer mapped = buffer;
+    if (mapped != null) {
+      mapped.force();
+    }
+  }
+
+  //Drops the mapping before the file is deleted, the segment has no records after it
+  void close() {
+    buffer = null;
+    size = 0;
+  }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.eventhandler;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The position of a subscriber (notify URL) in the {@link EventLog}: the events before the offset are delivered to it. A cursor is behind
+ * after a failed delivery: from then on the subscriber gets no live events, its events are replayed from the log in order, until the replay
+ * reaches the end of the log.
+ */
+final class SubscriberCursor {
+
+  private final String url;
+  //Guarded by this
+  private long offset;
+  private boolean behind;
+  //True while a replay of this cursor is submitted or running
+  private final AtomicBoolean replaying = new AtomicBoolean();
+
+  SubscriberCursor(String url, long offset, boolean behind) {
+    this.url = url;
+    this.offset = offset;
+    this.behind = behind;
+  }
+
+  String getUrl() {
+    return url;
+  }
+
+  synchronized long getOffset() {
+    return offset;
+  }
+
+  synchronized boolean isBehind() {
+    return behind;
+  }
+
+  //A live delivery finished, the record after the event starts at nextOffset
+  synchronized void acknowledge(long eventOffset, long nextOffset, boolean delivered) {
+    if (behind) {
+      return;
+    }
+    if (delivered) {
+      offset = Math.max(offset, nextOffset);
+    } else {
+      behind = true;
+      offset = eventOffset;
+    }
+  }
+
+  //The replay delivered (or skipped) the record before nextOffset
+  synchronized void advance(long nextOffset) {
+    offset = Math.max(offset, nextOffset);
+  }
+
+  /*
+    Called by the replay at the end of the log, the subscriber gets the live events again, if no event was appended since. The end of the log
+    is read under the lock, so an event appended later is dispatched after the cursor is no longer behind, and it is delivered live.
+   */
+  synchronized boolean catchUp() {
+    if (offset < EventLog.getEndOffset()) {
+      return false;
+    }
+    behind = false;
+    return true;
+  }
+
+  boolean startReplay() {
+    return replaying.compareAndSet(false, true);
+  }
+
+  void finishReplay() {
+    replaying.set(false);
+  }
+
+}
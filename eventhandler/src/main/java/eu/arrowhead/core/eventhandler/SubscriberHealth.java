@@ -0,0 +1,175 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.eventhandler;
+
+import eu.arrowhead.core.eventhandler.model.SubscriberHealthStatus;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.log4j.Logger;
+
+/**
+ * Delivery health and circuit breaker of a subscriber (notify URL).
+ * <ul>
+ * <li>CLOSED: the events are sent normally. After <tt>circuit_failure_threshold</tt> consecutive failed deliveries the circuit opens.</li>
+ * <li>OPEN: the events are not sent, their delivery fails right away. After <tt>circuit_open_time</tt> seconds a background probe opens a TCP
+ * connection to the subscriber, if it succeeds the circuit becomes half-open, otherwise it stays open for an other period.</li>
+ * <li>HALF_OPEN: one trial delivery is sent, its result closes or opens the circuit again.</li>
+ * </ul>
+ * The timeout of a delivery adapts to the latency of the subscriber, like the retransmission timeout of TCP: the smoothed latency plus 4 times
+ * its smoothed deviation, between <tt>min_delivery_timeout</tt> and <tt>max_delivery_timeout</tt> milliseconds.
+ */
+final class SubscriberHealth {
+
+  enum State {CLOSED, OPEN, HALF_OPEN}
+
+  private static final Logger log = Logger.getLogger(SubscriberHealth.class.getName());
+  private static final ConcurrentHashMap<String, SubscriberHealth> subscribers = new ConcurrentHashMap<>();
+
+  private final String url;
+  //Guarded by this
+  private State state = State.CLOSED;
+  private boolean trialInFlight;
+  private long openUntil;
+  private int consecutiveFailures;
+  //Latency statistics of the successful deliveries in nanoseconds, 0 until the first one
+  private double smoothedLatency;
+  private double latencyDeviation;
+  private long deliveries;
+  private long failures;
+  private long shortCircuited;
+  //True while a probe of this subscriber is submitted or running
+  private final AtomicBoolean probing = new AtomicBoolean();
+
+  private SubscriberHealth(String url) {
+    this.url = url;
+  }
+
+  static SubscriberHealth get(String url) {
+    return subscribers.computeIfAbsent(url, SubscriberHealth::new);
+  }
+
+  static List<SubscriberHealth> getAll() {
+    return new ArrayList<>(subscribers.values());
+  }
+
+  String getUrl() {
+    return url;
+  }
+
+  //False if the delivery has to fail without sending the request
+  synchronized boolean allowRequest() {
+    switch (state) {
+      case CLOSED:
+        return true;
+      case HALF_OPEN:
+        if (!trialInFlight) {
+          trialInFlight = true;
+          return true;
+        }
+        break;
+      default:
+        break;
+    }
+    shortCircuited++;
+    return false;
+  }
+
+  //Connect and read timeout of the next delivery in milliseconds
+  synchronized int getTimeout() {
+    if (deliveries == 0) {
+      return EventHandlerMain.MAX_DELIVERY_TIMEOUT;
+    }
+    long timeout = TimeUnit.NANOSECONDS.toMillis((long) (smoothedLatency + 4 * latencyDeviation));
+    return (int) Math.max(EventHandlerMain.MIN_DELIVERY_TIMEOUT, Math.min(EventHandlerMain.MAX_DELIVERY_TIMEOUT, timeout));
+  }
+
+  synchronized void succeeded(long latency) {
+    if (deliveries == 0) {
+      smoothedLatency = latency;
+      latencyDeviation = latency / 2.0;
+    } else {
+      latencyDeviation += (Math.abs(smoothedLatency - latency) - latencyDeviation) / 4;
+      smoothedLatency += (latency - smoothedLatency) / 8;
+    }
+    deliveries++;
+    consecutiveFailures = 0;
+    if (state != State.CLOSED) {
+      log.info("Circuit of " + url + " closed, the subscriber is reachable again.");
+    }
+    state = State.CLOSED;
+    trialInFlight = false;
+  }
+
+  //Returns true if the circuit is open after the failure
+  synchronized boolean failed() {
+    failures++;
+    consecutiveFailures++;
+    if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= EventHandlerMain.CIRCUIT_FAILURE_THRESHOLD)) {
+      open();
+    }
+    return state == State.OPEN;
+  }
+
+  private void open() {
+    if (state != State.OPEN) {
+      log.warn("Circuit of " + url + " opened after " + consecutiveFailures + " failed deliveries.");
+    }
+    state = State.OPEN;
+    trialInFlight = false;
+    openUntil = System.currentTimeMillis() + EventHandlerMain.CIRCUIT_OPEN_TIME * 1000L;
+  }
+
+  //True if the circuit is open and its open period is over, the caller runs probe() between startProbe() and finishProbe()
+  synchronized boolean isProbeDue() {
+    return state == State.OPEN && System.currentTimeMillis() >= openUntil;
+  }
+
+  boolean startProbe() {
+    return probing.compareAndSet(false, true);
+  }
+
+  void finishProbe() {
+    probing.set(false);
+  }
+
+  //Returns true if the subscriber accepted a TCP connection, and the circuit is half-open now
+  boolean probe() {
+    try {
+      URI uri = URI.create(url);
+      int port = uri.getPort() != -1 ? uri.getPort() : ("https".equals(uri.getScheme()) ? 443 : 80);
+      try (Socket socket = new Socket()) {
+        socket.connect(new InetSocketAddress(uri.getHost(), port), EventHandlerMain.MIN_DELIVERY_TIMEOUT);
+      }
+      synchronized (this) {
+        if (state == State.OPEN) {
+          state = State.HALF_OPEN;
+          log.info("Probe of " + url + " succeeded, the circuit is half-open.");
+        }
+      }
+      return true;
+    } catch (IOException | IllegalArgumentException e) {
+      synchronized (this) {
+        open();
+      }
+      return false;
+    }
+  }
+
+  synchronized SubscriberHealthStatus toStatus(int queuedEvents) {
+    return new SubscriberHealthStatus(url, state.name(), TimeUnit.NANOSECONDS.toMillis((long) smoothedLatency), getTimeout(),
+                                      consecutiveFailures, deliveries, failures, shortCircuited, queuedEvents);
+  }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.eventhandler;
+
+import eu.arrowhead.common.Utility;
+import eu.arrowhead.common.messages.Event;
+import eu.arrowhead.core.eventhandler.EventDispatcher.Delivery;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.log4j.Logger;
+
+/**
+ * The bounded queue of the events waiting to be sent to one subscriber (notify URL). The queue is drained by at most one delivery thread at a
+ * time, so the events of a subscriber arrive in order, and a slow subscriber holds only one thread of the executor while its own queue fills
+ * up. When the queue is full, new events are not delivered to this subscriber.
+ * <p>
+ * If the <tt>EventFilter</tt> of the subscriber asks for batching, the queued events are sent as one list of at most <tt>batchSize</tt>
+ * events. A partial batch is held back until its oldest event has waited <tt>batchLinger</tt> milliseconds: the drain does not keep a thread
+ * while it waits, it is resubmitted by the timer, or by the event that fills up the batch.
+ */
+final class SubscriberQueue implements Runnable {
+
+  //Requests sent in one run, before the thread is handed over to the other subscribers
+  private static final int DRAIN_LIMIT = 32;
+  private static final Logger log = Logger.getLogger(SubscriberQueue.class.getName());
+
+  private final String url;
+  private final BlockingQueue<Delivery> queue;
+  private final Executor executor;
+  private final ScheduledExecutorService timer;
+  //True while a drain of this queue is submitted to the executor, running, or waiting for a partial batch
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+  //True while the drain waits for a partial batch, the timer or a new event resubmits it
+  private final AtomicBoolean lingering = new AtomicBoolean();
+  //From the EventFilter of the subscriber, the last dispatched event sets them
+  private volatile int batchSize = 1;
+  private volatile long batchLingerNanos;
+
+  SubscriberQueue(String url, int capacity, Executor executor, ScheduledExecutorService timer) {
+    this.url = url;
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.executor = executor;
+    this.timer = timer;
+  }
+
+  void setBatching(Integer batchSize, Integer batchLinger) {
+    this.batchSize = batchSize == null ? 1 : batchSize;
+    this.batchLingerNanos = batchLinger == null ? 0 : TimeUnit.MILLISECONDS.toNanos(batchLinger);
+  }
+
+  //False if the queue of the subscriber is full
+  boolean offer(Delivery delivery) {
+    if (!queue.offer(delivery)) {
+      return false;
+    }
+    if (scheduled.compareAndSet(false, true)) {
+      submit();
+    } else if (batchSize > 1 && queue.size() >= batchSize) {
+      wake();
+    }
+    return true;
+  }
+
+  int size() {
+    return queue.size();
+  }
+
+  private void submit() {
+    try {
+      executor.execute(this);
+    } catch (RejectedExecutionException e) {
+      scheduled.set(false);
+      log.error("Event delivery to " + url + " could not be scheduled.");
+    }
+  }
+
+  //Resubmits the drain waiting for a partial batch, if it still waits
+  private void wake() {
+    if (lingering.compareAndSet(true, false)) {
+      submit();
+    }
+  }
+
+  @Override
+  public void run() {
+    boolean waiting = false;
+    try {
+      for (int i = 0; i < DRAIN_LIMIT; i++) {
+        Delivery head = queue.peek();
+        if (head == null) {
+          break;
+        }
+        int size = batchSize;
+        if (size <= 1) {
+          Delivery delivery = queue.poll();
+          delivery.done(url, send(url, delivery.getEvent()));
+          continue;
+        }
+
+        long wait = batchLingerNanos - (System.nanoTime() - head.getCreatedAt());
+        if (queue.size() < size && wait > 0) {
+          lingering.set(true);
+          //The event filling up the batch may have been offered before the flag was set
+          if (queue.size() < size) {
+            waiting = true;
+            timer.schedule(this::wake, wait, TimeUnit.NANOSECONDS);
+            return;
+          }
+          if (!lingering.compareAndSet(true, false)) {
+            //An other thread already resubmitted the drain
+            waiting = true;
+            return;
+          }
+        }
+        sendBatch(size);
+      }
+    } finally {
+      if (!waiting) {
+        scheduled.set(false);
+        //An event offered after the last poll found the drain still scheduled, so it has to be picked up here
+        if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) {
+          submit();
+        }
+      }
+    }
+  }
+
+  private void sendBatch(int size) {
+    List<Delivery> batch = new ArrayList<>(Math.min(size, queue.size()));
+    queue.drainTo(batch, size);
+    List<Event> events = new ArrayList<>(batch.size());
+    for (Delivery delivery : batch) {
+      events.add(delivery.getEvent());
+    }
+    boolean delivered = send(url, events);
+    for (Delivery delivery : batch) {
+      delivery.done(url, delivered);
+    }
+  }
+
+  //The payload is an event, or a list of them. If the circuit of the subscriber is open, the delivery fails without sending the request.
+  static boolean send(String url, Object payload) {
+    SubscriberHealth health = SubscriberHealth.get(url);
+    if (!health.allowRequest()) {
+      return false;
+    }
+    long start = System.nanoTime();
+    try {
+      Utility.sendRequest(url, "POST", payload, null, health.getTimeout());
+    } catch (Exception e) {
+      //The opening of the circuit is logged by the health, the failures after it (the requests still in flight) are expected
+      if (health.failed()) {
+        log.debug("Publishing event to " + url + " failed.", e);
+      } else {
+        log.error("Publishing event to " + url + " failed.", e);
+      }
+      return false;
+    }
+    health.succeeded(System.nanoTime() - start);
+    return true;
+  }
+
+}
@@ -34,7 +34,11 @@ public class EventHandlerACF extends AccessControlFilter {
     if (requestTarget.contains("mgmt")) {
       return clientCN.equalsIgnoreCase("sysop." + serverFields[1]);
     }
-    if (requestTarget.contains("publish")) {
+    if (method.equalsIgnoreCase("GET") && requestTarget.contains("publish/")) {
+      //Publish status query, the resource checks that the client is the publisher of the event (or the sysop)
+      return serverFields[1].equalsIgnoreCase(clientFields[1]);
+    }
+    if (requestTarget.endsWith("publish") || requestTarget.endsWith("publish/async")) {
       PublishEvent event = Utility.fromJson(requestJson, PublishEvent.class);
       if (!clientFields[0].equalsIgnoreCase(event.getSource().getSystemName())) {
         log.error("Source system name and cert common name do not match! Event publishing denied!");
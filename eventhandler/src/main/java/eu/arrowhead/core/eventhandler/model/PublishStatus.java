@@ -0,0 +1,119 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.eventhandler.model;
+
+import java.time.ZonedDateTime;
+import java.util.Map;
+
+//Delivery status of an event published asynchronously
+public class PublishStatus {
+
+  private String eventId;
+  //System name of the publisher, only this system (and the sysop) can query the status
+  private String publisher;
+  //ACCEPTED (queued), DISPATCHED (queued to the subscribers), COMPLETED or FAILED (the event could not be dispatched)
+  private String state;
+  private ZonedDateTime acceptedAt;
+  //Null until the event is dispatched
+  private Integer subscribers;
+  //Null until every delivery is finished
+  private Integer delivered;
+  private Integer failed;
+  //Notify URL -> delivered, null until every delivery is finished
+  private Map<String, Boolean> results;
+  //Only set in the FAILED state
+  private String error;
+
+  public PublishStatus() {
+  }
+
+  public PublishStatus(String eventId, String publisher, String state, ZonedDateTime acceptedAt, Integer subscribers, Integer delivered,
+                       Integer failed, Map<String, Boolean> results) {
+    this.eventId = eventId;
+    this.publisher = publisher;
+    this.state = state;
+    this.acceptedAt = acceptedAt;
+    this.subscribers = subscribers;
+    this.delivered = delivered;
+    this.failed = failed;
+    this.results = results;
+  }
+
+  public String getEventId() {
+    return eventId;
+  }
+
+  public void setEventId(String eventId) {
+    this.eventId = eventId;
+  }
+
+  public String getPublisher() {
+    return publisher;
+  }
+
+  public void setPublisher(String publisher) {
+    this.publisher = publisher;
+  }
+
+  public String getState() {
+    return state;
+  }
+
+  public void setState(String state) {
+    this.state = state;
+  }
+
+  public ZonedDateTime getAcceptedAt() {
+    return acceptedAt;
+  }
+
+  public void setAcceptedAt(ZonedDateTime acceptedAt) {
+    this.acceptedAt = acceptedAt;
+  }
+
+  public Integer getSubscribers() {
+    return subscribers;
+  }
+
+  public void setSubscribers(Integer subscribers) {
+    this.subscribers = subscribers;
+  }
+
+  public Integer getDelivered() {
+    return delivered;
+  }
+
+  public void setDelivered(Integer delivered) {
+    this.delivered = delivered;
+  }
+
+  public Integer getFailed() {
+    return failed;
+  }
+
+  public void setFailed(Integer failed) {
+    this.failed = failed;
+  }
+
+  public Map<String, Boolean> getResults() {
+    return results;
+  }
+
+  public void setResults(Map<String, Boolean> results) {
+    this.results = results;
+  }
+
+  public String getError() {
+    return error;
+  }
+
+  public void setError(String error) {
+    this.error = error;
+  }
+
+}
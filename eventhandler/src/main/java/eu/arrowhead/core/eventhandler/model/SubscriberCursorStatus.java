@@ -0,0 +1,62 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.eventhandler.model;
+
+//Position of a subscriber in the event log
+public class SubscriberCursorStatus {
+
+  private String notifyUrl;
+  private long offset;
+  //Bytes of the event log after the cursor
+  private long lag;
+  //True if the subscriber gets its events from the replay of the log, instead of live
+  private boolean behind;
+
+  public SubscriberCursorStatus() {
+  }
+
+  public SubscriberCursorStatus(String notifyUrl, long offset, long lag, boolean behind) {
+    this.notifyUrl = notifyUrl;
+    this.offset = offset;
+    this.lag = lag;
+    this.behind = behind;
+  }
+
+  public String getNotifyUrl() {
+    return notifyUrl;
+  }
+
+  public void setNotifyUrl(String notifyUrl) {
+    this.notifyUrl = notifyUrl;
+  }
+
+  public long getOffset() {
+    return offset;
+  }
+
+  public void setOffset(long offset) {
+    this.offset = offset;
+  }
+
+  public long getLag() {
+    return lag;
+  }
+
+  public void setLag(long lag) {
+    this.lag = lag;
+  }
+
+  public boolean isBehind() {
+    return behind;
+  }
+
+  public void setBehind(boolean behind) {
+    this.behind = behind;
+  }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.eventhandler.model;
+
+//Delivery health and circuit breaker state of a subscriber
+public class SubscriberHealthStatus {
+
+  private String notifyUrl;
+  //CLOSED, OPEN or HALF_OPEN
+  private String state;
+  //Smoothed latency of the successful deliveries
+  private long latencyMillis;
+  //Timeout of the next delivery
+  private int timeoutMillis;
+  private int consecutiveFailures;
+  private long deliveries;
+  private long failures;
+  //Deliveries failed without a request, because the circuit was open
+  private long shortCircuited;
+  private int queuedEvents;
+
+  public SubscriberHealthStatus() {
+  }
+
+  public SubscriberHealthStatus(String notifyUrl, String state, long latencyMillis, int timeoutMillis, int consecutiveFailures, long deliveries,
+                                long failures, long shortCircuited, int queuedEvents) {
+    this.notifyUrl = notifyUrl;
+    this.state = state;
+    this.latencyMillis = latencyMillis;
+    this.timeoutMillis = timeoutMillis;
+    this.consecutiveFailures = consecutiveFailures;
+    this.deliveries = deliveries;
+    this.failures = failures;
+    this.shortCircuited = shortCircuited;
+    this.queuedEvents = queuedEvents;
+  }
+
+  public String getNotifyUrl() {
+    return notifyUrl;
+  }
+
+  public void setNotifyUrl(String notifyUrl) {
+    this.notifyUrl = notifyUrl;
+  }
+
+  public String getState() {
+    return state;
+  }
+
+  public void setState(String state) {
+    this.state = state;
+  }
+
+  public long getLatencyMillis() {
+    return latencyMillis;
+  }
+
+  public void setLatencyMillis(long latencyMillis) {
+    this.latencyMillis = latencyMillis;
+  }
+
+  public int getTimeoutMillis() {
+    return timeoutMillis;
+  }
+
+  public void setTimeoutMillis(int timeoutMillis) {
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  public int getConsecutiveFailures() {
+    return consecutiveFailures;
+  }
+
+  public void setConsecutiveFailures(int consecutiveFailures) {
+    this.consecutiveFailures = consecutiveFailures;
+  }
+
+  public long getDeliveries() {
+    return deliveries;
+  }
+
+  public void setDeliveries(long deliveries) {
+    this.deliveries = deliveries;
+  }
+
+  public long getFailures() {
+    return failures;
+  }
+
+  public void setFailures(long failures) {
+    this.failures = failures;
+  }
+
+  public long getShortCircuited() {
+    return shortCircuited;
+  }
+
+  public void setShortCircuited(long shortCircuited) {
+    this.shortCircuited = shortCircuited;
+  }
+
+  public int getQueuedEvents() {
+    return queuedEvents;
+  }
+
+  public void setQueuedEvents(int queuedEvents) {
+    this.queuedEvents = queuedEvents;
+  }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.eventhandler;
+
+import static org.junit.Assert.assertEquals;
+
+import eu.arrowhead.common.database.ArrowheadSystem;
+import eu.arrowhead.common.database.EventFilter;
+import eu.arrowhead.common.messages.Event;
+import eu.arrowhead.common.messages.PublishEvent;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Test;
+
+public class EventFilterIndexTest {
+
+  private static final AtomicLong ids = new AtomicLong();
+  private static final ZonedDateTime NOW = ZonedDateTime.now();
+  private static final ArrowheadSystem SENSOR = new ArrowheadSystem("sensor", "10.0.0.1", 8080, null);
+  private static final ArrowheadSystem METER = new ArrowheadSystem("meter", "10.0.0.2", 8080, null);
+  private static final ArrowheadSystem OTHER = new ArrowheadSystem("other", "10.0.0.3", 8080, null);
+
+  private final List<EventFilter> indexed = new ArrayList<>();
+
+  @After
+  public void removeFilters() {
+    for (EventFilter filter : indexed) {
+      EventFilterIndex.remove(filter);
+    }
+  }
+
+  @Test
+  public void matchesTheSourcesOfTheFilters() {
+    EventFilter anySource = put(filter("temperature"));
+    EventFilter sensorOnly = put(filter("temperature", SENSOR));
+    EventFilter sensorOrMeter = put(filter("temperature", SENSOR, METER));
+
+    assertMatches(match("temperature", SENSOR), anySource, sensorOnly, sensorOrMeter);
+    assertMatches(match("temperature", METER), anySource, sensorOrMeter);
+    assertMatches(match("temperature", OTHER), anySource);
+    assertMatches(match("temperature", null), anySource);
+  }
+
+  @Test
+  public void matchesOnlyTheEventType() {
+    put(filter("pressure"));
+    assertMatches(match("humidity", SENSOR));
+  }
+
+  @Test
+  public void matchesTheTimestampBetweenTheDates() {
+    EventFilter window = filter("window");
+    window.setStartDate(NOW.minusMinutes(1));
+    window.setEndDate(NOW.plusMinutes(1));
+    put(window);
+
+    assertMatches(match("window", SENSOR, NOW), window);
+    assertMatches(match("window", SENSOR, NOW.minusMinutes(1)), window);
+    assertMatches(match("window", SENSOR, NOW.plusMinutes(1)), window);
+    assertMatches(match("window", SENSOR, NOW.minusMinutes(2)));
+    assertMatches(match("window", SENSOR, NOW.plusMinutes(2)));
+  }
+
+  @Test
+  public void matchesTheMetadataIfRequested() {
+    EventFilter exact = filter("metadata");
+    exact.setFilterMetadata(Collections.singletonMap("unit", "celsius"));
+    exact.setMatchMetadata(true);
+    EventFilter ignoring = filter("metadata");
+    ignoring.setFilterMetadata(Collections.singletonMap("unit", "celsius"));
+    ignoring.setMatchMetadata(false);
+    EventFilter empty = filter("metadata");
+    empty.setMatchMetadata(true);
+    put(exact);
+    put(ignoring);
+    put(empty);
+
+    assertMatches(match("metadata", SENSOR, NOW, Collections.singletonMap("unit", "celsius")), exact, ignoring);
+    assertMatches(match("metadata", SENSOR, NOW, Collections.singletonMap("unit", "kelvin")), ignoring);
+    assertMatches(match("metadata", SENSOR, NOW, null), ignoring, empty);
+  }
+
+  @Test
+  public void updatedFilterReplacesThePreviousVersion() {
+    EventFilter filter = put(filter("before"));
+    EventFilter updated = filter("after", SENSOR);
+    updated.setId(filter.getId());
+    put(updated);
+
+    assertMatches(match("before", SENSOR));
+    assertMatches(match("after", SENSOR), updated);
+    assertMatches(match("after", METER));
+  }
+
+  @Test
+  public void removedFilterDoesNotMatch() {
+    EventFilter removed = put(filter("removal", SENSOR));
+    EventFilter kept = put(filter("removal"));
+    EventFilterIndex.remove(removed);
+
+    assertMatches(match("removal", SENSOR), kept);
+    EventFilterIndex.remove(kept);
+    assertMatches(match("removal", SENSOR));
+  }
+
+  private EventFilter put(EventFilter filter) {
+    EventFilterIndex.put(filter);
+    indexed.add(filter);
+    return filter;
+  }
+
+  private static EventFilter filter(String eventType, ArrowheadSystem... sources) {
+    EventFilter filter = new EventFilter(eventType, new ArrowheadSystem("consumer", "10.0.1.1", 9090, null), new HashSet<>(Arrays.asList(sources)),
+                                         null, null, null, "notify", false);
+    filter.setId(ids.incrementAndGet());
+    return filter;
+  }
+
+  private static List<EventFilter> match(String eventType, ArrowheadSystem source) {
+    return match(eventType, source, NOW);
+  }
+
+  private static List<EventFilter> match(String eventType, ArrowheadSystem source, ZonedDateTime timestamp) {
+    return match(eventType, source, timestamp, null);
+  }
+
+  private static List<EventFilter> match(String eventType, ArrowheadSystem source, ZonedDateTime timestamp, Map<String, String> metadata) {
+    return EventFilterIndex.match(new PublishEvent(source, new Event(eventType, "payload", timestamp, metadata), null));
+  }
+
+  //EventFilter.equals only compares the event type and the consumer, so the filters are told apart by their ids
+  private static void assertMatches(List<EventFilter> matched, EventFilter... expected) {
+    List<Long> matchedIds = new ArrayList<>();
+    for (EventFilter filter : matched) {
+      matchedIds.add(filter.getId());
+    }
+    List<Long> expectedIds = new ArrayList<>();
+    for (EventFilter filter : expected) {
+      expectedIds.add(filter.getId());
+    }
+    Collections.sort(matchedIds);
+    Collections.sort(expectedIds);
+    assertEquals(expectedIds, matchedIds);
+  }
+
+}
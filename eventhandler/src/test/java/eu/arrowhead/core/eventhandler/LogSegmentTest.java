@@ -0,0 +1,130 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.eventhandler;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LogSegmentTest {
+
+  private static final long BASE_OFFSET = 4096;
+  private static final int CAPACITY = 64;
+
+  private File file;
+
+  @Before
+  public void createFile() throws IOException {
+    file = File.createTempFile("event-log-segment", ".log");
+    assertTrue(file.delete());
+  }
+
+  @After
+  public void deleteFile() {
+    file.delete();
+  }
+
+  @Test
+  public void readsTheAppendedRecords() throws IOException {
+    LogSegment segment = new LogSegment(file, BASE_OFFSET, CAPACITY, true);
+    long first = segment.append(bytes("first"));
+    long second = segment.append(bytes("second"));
+
+    assertEquals(BASE_OFFSET, first);
+    assertEquals(BASE_OFFSET + LogSegment.HEADER_SIZE + 5, second);
+    assertEquals(second + LogSegment.HEADER_SIZE + 6, segment.getEndOffset());
+    assertArrayEquals(bytes("first"), segment.read(first));
+    assertArrayEquals(bytes("second"), segment.read(second));
+    assertNull(segment.read(segment.getEndOffset()));
+    assertNull(segment.read(BASE_OFFSET - 1));
+  }
+
+  @Test
+  public void fitsRecordsUpToTheCapacity() throws IOException {
+    LogSegment segment = new LogSegment(file, BASE_OFFSET, CAPACITY, true);
+    assertTrue(segment.fits(CAPACITY - LogSegment.HEADER_SIZE));
+    assertFalse(segment.fits(CAPACITY - LogSegment.HEADER_SIZE + 1));
+
+    segment.append(new byte[10]);
+    assertTrue(segment.fits(CAPACITY - 2 * LogSegment.HEADER_SIZE - 10));
+    assertFalse(segment.fits(CAPACITY - 2 * LogSegment.HEADER_SIZE - 9));
+  }
+
+  @Test
+  public void recoversTheRecordsOfAnExistingSegment() throws IOException {
+    LogSegment segment = new LogSegment(file, BASE_OFFSET, CAPACITY, true);
+    long first = segment.append(bytes("first"));
+    long second = segment.append(bytes("second"));
+    long end = segment.getEndOffset();
+    segment.flush();
+    segment.close();
+
+    LogSegment reopened = new LogSegment(file, BASE_OFFSET, CAPACITY, false);
+    assertEquals(end, reopened.getEndOffset());
+    assertArrayEquals(bytes("first"), reopened.read(first));
+    assertArrayEquals(bytes("second"), reopened.read(second));
+  }
+
+  //The payload is written before its length, a crash between the two leaves a payload behind a 0 length
+  @Test
+  public void ignoresARecordWithoutLength() throws IOException {
+    LogSegment segment = new LogSegment(file, BASE_OFFSET, CAPACITY, true);
+    segment.append(bytes("complete"));
+    long end = segment.getEndOffset();
+    segment.flush();
+    segment.close();
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.seek(end - BASE_OFFSET + LogSegment.HEADER_SIZE);
+      raf.write(bytes("torn"));
+    }
+
+    LogSegment reopened = new LogSegment(file, BASE_OFFSET, CAPACITY, false);
+    assertEquals(end, reopened.getEndOffset());
+    assertNull(reopened.read(end));
+  }
+
+  @Test
+  public void ignoresALengthBeyondTheSegment() throws IOException {
+    LogSegment segment = new LogSegment(file, BASE_OFFSET, CAPACITY, true);
+    segment.append(bytes("complete"));
+    long end = segment.getEndOffset();
+    segment.flush();
+    segment.close();
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.seek(end - BASE_OFFSET);
+      raf.writeInt(CAPACITY);
+    }
+
+    assertEquals(end, new LogSegment(file, BASE_OFFSET, CAPACITY, false).getEndOffset());
+  }
+
+  @Test
+  public void closedSegmentHasNoRecords() throws IOException {
+    LogSegment segment = new LogSegment(file, BASE_OFFSET, CAPACITY, true);
+    long offset = segment.append(bytes("event"));
+    segment.close();
+
+    assertNull(segment.read(offset));
+    segment.flush();
+  }
+
+  private static byte[] bytes(String text) {
+    return text.getBytes(StandardCharsets.UTF_8);
+  }
+
+}
@@ -170,6 +170,14 @@ public class GatekeeperInboundResource {
                                                                                 Utility.getOwnCloud(GatekeeperMain.IS_SECURE),
                                                                                 icnProposal.getRequestedService(), GatekeeperMain.IS_SECURE, timeout,
                                                                                 icnProposal.getGatewayPublicKey());
+      // The first compression of the requester Gateway, which is allowed for our Gateway too
+      String compression = null;
+      if (icnProposal.getGatewayCompressions() != null) {
+        compression = icnProposal.getGatewayCompressions().stream().filter(GatekeeperMain.GATEWAY_COMPRESSIONS::contains).findFirst().orElse(null);
+      }
+      connectionRequest.setCompression(compression);
+      // The Gateways bypass the broker if both clouds allow it, our Gateway may still choose the broker (e.g. if it has no public address)
+      connectionRequest.setDirect(icnProposal.isGatewayDirect() && GatekeeperMain.GATEWAY_DIRECT && GatekeeperMain.IS_SECURE);
 
       // Sending request, parsing response
       Response gatewayResponse = Utility.sendRequest(GatekeeperMain.getGatewayProviderUri()[0], "PUT", connectionRequest);
@@ -179,6 +187,9 @@ public class GatekeeperInboundResource {
                                                                               connectToProviderResponse.getQueueName(),
                                                                               connectToProviderResponse.getControlQueueName(),
                                                                               GatekeeperMain.getGatewayProviderUri()[3]);
+      gatewayConnectionInfo.setCompression(compression);
+      gatewayConnectionInfo.setDirectAddress(connectToProviderResponse.getDirectAddress());
+      gatewayConnectionInfo.setDirectPort(connectToProviderResponse.getDirectPort());
       // The AMQP broker can only create 1 channel at the moment, so the gatekeeper have to choose an orchestration form
       ICNEnd icnEnd = new ICNEnd(orchResponse.getResponse().get(0), gatewayConnectionInfo);
       log.info("ICNProposal: returning the first OrchestrationForm and the GatewayConnectionInfo to the requester Cloud.");
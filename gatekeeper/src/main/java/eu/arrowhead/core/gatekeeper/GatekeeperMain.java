@@ -62,10 +62,13 @@ public class GatekeeperMain implements NeedsCoreSystemService {
 
   static boolean IS_SECURE;
   static boolean USE_GATEWAY;
+  static boolean GATEWAY_DIRECT;
   static String SERVICE_REGISTRY_URI;
   static SSLContext outboundClientContext;
   static SSLContext outboundServerContext;
   static final int TIMEOUT;
+  //Payload compression algorithms the Gateways of this cloud may use, in order of preference
+  static final List<String> GATEWAY_COMPRESSIONS = new ArrayList<>();
   static final String GATEKEEPER_SERVICE_URI = "gatekeeper";
 
   private static String INBOUND_BASE_URI;
@@ -89,7 +92,13 @@ public class GatekeeperMain implements NeedsCoreSystemService {
     DatabaseManager.init();
     PropertyConfigurator.configure(props);
     USE_GATEWAY = props.getBooleanProperty("use_gateway", false);
+    GATEWAY_DIRECT = props.getBooleanProperty("gateway_direct", false);
     TIMEOUT = props.getIntProperty("timeout", 30000);
+    for (String compression : props.getProperty("gateway_compressions", "").split(",")) {
+      if (!compression.trim().isEmpty()) {
+        GATEWAY_COMPRESSIONS.add(compression.trim().toLowerCase());
+      }
+    }
   }
 
   private GatekeeperMain() {
@@ -157,6 +157,9 @@ public class GatekeeperOutboundResource {
       restrictionMap.put("secure", GatekeeperMain.IS_SECURE);
       icnProposal.setPreferredBrokers(dm.getAll(Broker.class, restrictionMap));
       icnProposal.setGatewayPublicKey(GatekeeperMain.getGatewayConsumerUri()[3]);
+      icnProposal.setGatewayCompressions(GatekeeperMain.GATEWAY_COMPRESSIONS);
+      //The direct connection is authenticated with the certificates of the Gateways, so it is only offered in secure mode
+      icnProposal.setGatewayDirect(GatekeeperMain.GATEWAY_DIRECT && GatekeeperMain.IS_SECURE);
     }
 
     String icnUri = Utility.getUri(requestForm.getTargetCloud().getAddress(), requestForm.getTargetCloud().getPort(),
@@ -185,6 +188,9 @@ public class GatekeeperOutboundResource {
                                                                               Utility.getOwnCloud(GatekeeperMain.IS_SECURE),
                                                                               requestForm.getTargetCloud(), requestForm.getRequestedService(),
                                                                               isSecure, GatekeeperMain.TIMEOUT, gwConnInfo.getGatewayPublicKey());
+    connectionRequest.setCompression(gwConnInfo.getCompression());
+    connectionRequest.setDirectAddress(gwConnInfo.getDirectAddress());
+    connectionRequest.setDirectPort(gwConnInfo.getDirectPort());
 
     // Sending the gateway request and parsing the response
     Response gatewayResponse = Utility
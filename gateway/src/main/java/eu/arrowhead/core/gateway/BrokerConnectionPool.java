@@ -0,0 +1,226 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.gateway;
+
+import com.rabbitmq.client.AlreadyClosedException;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+import eu.arrowhead.common.exception.ArrowheadException;
+import eu.arrowhead.core.gateway.model.GatewaySession;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.apache.log4j.Logger;
+
+/**
+ * Shares the AMQP broker connections between the gateway sessions. The connections are grouped by broker host, port and security, every session
+ * gets its own channel on one of them, and a new connection is only opened when every connection of the group has
+ * <i>broker_channels_per_connection</i> open channels (or is dead). {@link #evictConnections()} closes the unused and the dead connections.
+ * <p>
+ * Automatic recovery is disabled on the pooled connections: a relayed stream can not survive the loss of its channel (the unacknowledged and
+ * unconfirmed messages are lost), so the sessions of a broken connection are closed, and the next sessions get a new connection.
+ */
+final class BrokerConnectionPool {
+
+  private static final ConcurrentHashMap<String, List<PooledConnection>> groups = new ConcurrentHashMap<>();
+  private static final ConcurrentHashMap<Connection, PooledConnection> connections = new ConcurrentHashMap<>();
+  private static final Logger log = Logger.getLogger(BrokerConnectionPool.class.getName());
+
+  private BrokerConnectionPool() throws AssertionError {
+    throw new AssertionError("BrokerConnectionPool is a non-instantiable class");
+  }
+
+  /**
+   * Opens a channel for a new session on a pooled connection, and declares the queues of the session.
+   *
+   * @param brokerHost The hostname of the AMQP broker to use for connections
+   * @param brokerPort The port of the AMQP broker to use for connections
+   * @param queueName The name of the queue, should be unique
+   * @param controlQueueName The name of the queue for control messages, should be unique
+   * @param isSecure The type of the channel (secure or insecure)
+   *
+   * @return GatewaySession, which contains the (shared) connection and the channel of the session
+   */
+  static GatewaySession openSession(String brokerHost, int brokerPort, String queueName, String controlQueueName, boolean isSecure) {
+    PooledConnection pooledConnection = acquireConnection(brokerHost, brokerPort, isSecure);
+    try {
+      Channel channel = pooledConnection.connection.createChannel();
+      if (channel == null) {
+        throw new IOException("The broker connection ran out of channels");
+      }
+      //The declarations are not waited for, the channel is closed by the broker if one of them fails
+      channel.queueDeclareNoWait(queueName, false, false, false, null);
+      channel.queueDeclareNoWait(queueName.concat("_resp"), false, false, false, null);
+      channel.queueDeclareNoWait(controlQueueName, false, false, false, null);
+      channel.queueDeclareNoWait(controlQueueName.concat("_resp"), false, false, false, null);
+
+      GatewaySession gatewaySession = new GatewaySession();
+      gatewaySession.setConnection(pooledConnection.connection);
+      gatewaySession.setChannel(channel);
+      return gatewaySession;
+    } catch (IOException | AlreadyClosedException e) {
+      pooledConnection.release();
+      log.error("Creating the channel to the Broker failed");
+      throw new ArrowheadException(e.getClass().getSimpleName() + ": " + e.getMessage(), e);
+    }
+  }
+
+  //Closes the channel of the session, the connection stays open for the other sessions
+  static void closeSession(GatewaySession gatewaySession) {
+    PooledConnection pooledConnection = connections.get(gatewaySession.getConnection());
+    if (pooledConnection != null) {
+      pooledConnection.blockedListeners.remove(gatewaySession.getChannel());
+      pooledConnection.release();
+    }
+    try {
+      gatewaySession.getChannel().close();
+    } catch (AlreadyClosedException | IOException | TimeoutException e) {
+      log.debug("Channel already closed");
+    }
+  }
+
+  /**
+   * Registers a listener for the flow control of the broker: it is called with true when the broker blocks the connection of the session (e.g.
+   * because of a memory alarm), and with false when it unblocks it. The listener is removed by {@link #closeSession(GatewaySession)}.
+   */
+  static void addBlockedListener(GatewaySession gatewaySession, Consumer<Boolean> listener) {
+    PooledConnection pooledConnection = connections.get(gatewaySession.getConnection());
+    if (pooledConnection != null) {
+      pooledConnection.blockedListeners.put(gatewaySession.getChannel(), listener);
+      if (pooledConnection.blocked) {
+        listener.accept(true);
+      }
+    }
+  }
+
+  //Closes the connections which are dead, or have had no channels for broker_idle_timeout seconds
+  static void evictConnections() {
+    long now = System.currentTimeMillis();
+    for (List<PooledConnection> group : groups.values()) {
+      List<PooledConnection> evicted = new ArrayList<>();
+      synchronized (group) {
+        Iterator<PooledConnection> iterator = group.iterator();
+        while (iterator.hasNext()) {
+          PooledConnection pooledConnection = iterator.next();
+          boolean idle = pooledConnection.channels.get() == 0 && now - pooledConnection.lastUsed > GatewayMain.BROKER_IDLE_TIMEOUT * 1000L;
+          if (idle || !pooledConnection.connection.isOpen()) {
+            iterator.remove();
+            evicted.add(pooledConnection);
+          }
+        }
+      }
+      for (PooledConnection pooledConnection : evicted) {
+        connections.remove(pooledConnection.connection);
+        pooledConnection.close();
+      }
+    }
+  }
+
+  private static PooledConnection acquireConnection(String brokerHost, int brokerPort, boolean isSecure) {
+    List<PooledConnection> group = groups.computeIfAbsent(brokerHost + ":" + brokerPort + ":" + isSecure, key -> new ArrayList<>());
+    //Sessions of the same broker wait for each other while a new connection is opened, they would need it anyway
+    synchronized (group) {
+      for (PooledConnection pooledConnection : group) {
+        if (pooledConnection.connection.isOpen() && pooledConnection.tryAcquire()) {
+          return pooledConnection;
+        }
+      }
+
+      PooledConnection pooledConnection = new PooledConnection(connect(brokerHost, brokerPort, isSecure));
+      pooledConnection.tryAcquire();
+      group.add(pooledConnection);
+      connections.put(pooledConnection.connection, pooledConnection);
+      return pooledConnection;
+    }
+  }
+
+  private static Connection connect(String brokerHost, int brokerPort, boolean isSecure) {
+    ConnectionFactory factory = new ConnectionFactory();
+    factory.setHost(brokerHost);
+    factory.setPort(brokerPort);
+    factory.setAutomaticRecoveryEnabled(false);
+
+    if (isSecure) {
+      try {
+        factory.useSslProtocol(GatewayMain.clientContext);
+      } catch (RuntimeException e) {
+        throw new ArrowheadException("Gateway is in insecure mode, and can not create a secure channel with the AMQP broker!", e);
+      }
+    }
+
+    try {
+      Connection connection = factory.newConnection();
+      log.info("Created a connection for broker: " + brokerHost + ":" + brokerPort);
+      return connection;
+    } catch (IOException | TimeoutException e) {
+      log.error("Creating the connection to the Broker failed");
+      throw new ArrowheadException(e.getClass().getSimpleName() + ": " + e.getMessage(), e);
+    }
+  }
+
+  private static final class PooledConnection {
+
+    private final Connection connection;
+    private final AtomicInteger channels = new AtomicInteger();
+    private final ConcurrentHashMap<Channel, Consumer<Boolean>> blockedListeners = new ConcurrentHashMap<>();
+    private volatile long lastUsed = System.currentTimeMillis();
+    private volatile boolean blocked;
+
+    private PooledConnection(Connection connection) {
+      this.connection = connection;
+      connection.addBlockedListener(reason -> {
+        log.warn("The broker blocked a connection: " + reason);
+        setBlocked(true);
+      }, () -> setBlocked(false));
+    }
+
+    private boolean tryAcquire() {
+      int current;
+      do {
+        current = channels.get();
+        if (current >= GatewayMain.BROKER_CHANNELS_PER_CONNECTION) {
+          return false;
+        }
+      } while (!channels.compareAndSet(current, current + 1));
+      lastUsed = System.currentTimeMillis();
+      return true;
+    }
+
+    private void release() {
+      channels.decrementAndGet();
+      lastUsed = System.currentTimeMillis();
+    }
+
+    private void setBlocked(boolean blocked) {
+      this.blocked = blocked;
+      for (Consumer<Boolean> listener : blockedListeners.values()) {
+        listener.accept(blocked);
+      }
+    }
+
+    //The channels still open (if the connection is dead) are closed with the connection, which closes their sessions too
+    private void close() {
+      try {
+        if (connection.isOpen()) {
+          connection.close();
+        } else {
+          connection.abort();
+        }
+      } catch (AlreadyClosedException | IOException e) {
+        log.debug("Connection already closed");
+      }
+    }
+  }
+
+}
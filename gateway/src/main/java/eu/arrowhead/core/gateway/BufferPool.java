@@ -0,0 +1,85 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.gateway;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of the buffers of the relay engine: direct <tt>ByteBuffer</tt>s with the size of {@link GatewayMain#RELAY_BUFFER_SIZE} for the socket
+ * output, and frame arrays (see {@link RelayFrame}) the socket input is collected in. Sessions only hold them while they have data in flight, and
+ * reuse them between each other instead of leaving the large allocations to the garbage collector.
+ */
+final class BufferPool {
+
+  //Buffers above this count are not pooled, they are left to the garbage collector
+  private static final int MAX_POOLED = 1024;
+
+  private static final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+  private static final AtomicInteger pooledBuffers = new AtomicInteger();
+  private static final ConcurrentLinkedQueue<byte[]> frames = new ConcurrentLinkedQueue<>();
+  private static final AtomicInteger pooledFrames = new AtomicInteger();
+
+  private BufferPool() throws AssertionError {
+    throw new AssertionError("BufferPool is a non-instantiable class");
+  }
+
+  static int getBufferSize() {
+    return GatewayMain.RELAY_BUFFER_SIZE;
+  }
+
+  static int getFrameSize() {
+    return RelayFrame.HEADER_SIZE + GatewayMain.RELAY_FRAME_SIZE;
+  }
+
+  //Returns a cleared buffer with getBufferSize() capacity
+  static ByteBuffer acquire() {
+    ByteBuffer buffer = buffers.poll();
+    if (buffer == null) {
+      return ByteBuffer.allocateDirect(getBufferSize());
+    }
+    pooledBuffers.decrementAndGet();
+    return buffer;
+  }
+
+  //Buffers not coming from the pool (e.g. enlarged ones) are ignored
+  static void release(ByteBuffer buffer) {
+    if (buffer == null || !buffer.isDirect() || buffer.capacity() != getBufferSize() || !reserve(pooledBuffers)) {
+      return;
+    }
+    buffer.clear();
+    buffers.offer(buffer);
+  }
+
+  //Returns an array with getFrameSize() length, its content is undefined
+  static byte[] acquireFrame() {
+    byte[] frame = frames.poll();
+    if (frame == null) {
+      return new byte[getFrameSize()];
+    }
+    pooledFrames.decrementAndGet();
+    return frame;
+  }
+
+  static void releaseFrame(byte[] frame) {
+    if (frame == null || frame.length != getFrameSize() || !reserve(pooledFrames)) {
+      return;
+    }
+    frames.offer(frame);
+  }
+
+  private static boolean reserve(AtomicInteger pooled) {
+    if (pooled.incrementAndGet() > MAX_POOLED) {
+      pooled.decrementAndGet();
+      return false;
+    }
+    return true;
+  }
+
+}
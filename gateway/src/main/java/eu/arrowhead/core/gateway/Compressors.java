@@ -0,0 +1,50 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.gateway;
+
+import eu.arrowhead.common.exception.ArrowheadException;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * The payload compression algorithms the gateway supports. The algorithm of a session is chosen by the Gatekeepers of the two clouds (from the
+ * <i>gateway_compressions</i> lists of their configuration), and arrives in the connection requests.
+ */
+final class Compressors {
+
+  private static final ConcurrentHashMap<String, PayloadCompressor> compressors = new ConcurrentHashMap<>();
+
+  static {
+    register(new DeflateCompressor());
+  }
+
+  private Compressors() throws AssertionError {
+    throw new AssertionError("Compressors is a non-instantiable class");
+  }
+
+  static void register(PayloadCompressor compressor) {
+    compressors.put(compressor.getName(), compressor);
+  }
+
+  /**
+   * @return the compressor with the given name, or null if the payload should not be compressed (no name, or "none")
+   *
+   * @throws ArrowheadException if the gateway does not support the algorithm
+   */
+  static PayloadCompressor get(String name) {
+    if (name == null || name.isEmpty() || name.equalsIgnoreCase("none")) {
+      return null;
+    }
+    PayloadCompressor compressor = compressors.get(name.toLowerCase());
+    if (compressor == null) {
+      throw new ArrowheadException("Payload compression is not supported by the Gateway: " + name, Status.BAD_REQUEST.getStatusCode());
+    }
+    return compressor;
+  }
+
+}
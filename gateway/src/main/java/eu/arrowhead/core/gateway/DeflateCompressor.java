@@ -0,0 +1,92 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.gateway;
+
+import eu.arrowhead.common.exception.ArrowheadException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate (zlib format) compression of the payloads, with the fastest compression level: the relayed payloads are mostly JSON and XML, which
+ * compress well even at this level, and the gateway has to keep up with the streams. The compressed data is preceded by the length of the
+ * original data (4 bytes), so the receiver can allocate the output once, and reject the corrupt or malicious messages before inflating them.
+ */
+final class DeflateCompressor implements PayloadCompressor {
+
+  static final String NAME = "deflate";
+
+  //A compressed message can not expand above this size, the frames are a lot smaller
+  private static final int MAX_DECOMPRESSED_SIZE = 16 * 1024 * 1024;
+
+  //The native zlib streams are expensive to create, every relay and broker consumer thread reuses its own
+  private static final ThreadLocal<Deflater> deflaters = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+  private static final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public int compress(byte[] source, int offset, int length, byte[] destination, int destinationOffset) {
+    //The output is only useful if it is smaller than the source
+    int limit = Math.min(destination.length, destinationOffset + length);
+    int position = destinationOffset + Integer.BYTES;
+    if (position >= limit) {
+      return -1;
+    }
+    ByteBuffer.wrap(destination, destinationOffset, Integer.BYTES).putInt(length);
+
+    Deflater deflater = deflaters.get();
+    deflater.reset();
+    deflater.setInput(source, offset, length);
+    deflater.finish();
+    while (!deflater.finished()) {
+      if (position >= limit) {
+        return -1;
+      }
+      position += deflater.deflate(destination, position, limit - position);
+    }
+    return position - destinationOffset;
+  }
+
+  @Override
+  public byte[] decompress(ByteBuffer compressed) {
+    if (compressed.remaining() < Integer.BYTES) {
+      throw new ArrowheadException("Compressed gateway message is truncated: " + compressed.remaining() + " bytes");
+    }
+    int length = compressed.getInt();
+    if (length < 0 || length > MAX_DECOMPRESSED_SIZE) {
+      throw new ArrowheadException("Compressed gateway message has an invalid original length: " + length);
+    }
+
+    byte[] data = new byte[length];
+    Inflater inflater = inflaters.get();
+    inflater.reset();
+    inflater.setInput(compressed.array(), compressed.arrayOffset() + compressed.position(), compressed.remaining());
+    try {
+      int inflated = 0;
+      while (inflated < length && !inflater.finished()) {
+        int count = inflater.inflate(data, inflated, length - inflated);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        inflated += count;
+      }
+      if (inflated != length || !inflater.finished()) {
+        throw new ArrowheadException("Compressed gateway message is corrupt: expected " + length + " bytes, inflated " + inflated);
+      }
+    } catch (DataFormatException e) {
+      throw new ArrowheadException("Compressed gateway message is corrupt: " + e.getMessage(), e);
+    }
+    return data;
+  }
+
+}
@@ -0,0 +1,353 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.gateway;
+
+import eu.arrowhead.common.exception.ArrowheadException;
+import eu.arrowhead.common.messages.ConnectToConsumerRequest;
+import eu.arrowhead.common.messages.ConnectToProviderRequest;
+import eu.arrowhead.common.misc.SecurityUtils;
+import eu.arrowhead.core.gateway.model.ActiveSession;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.security.PublicKey;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.log4j.Logger;
+
+/**
+ * A gateway session without the broker: the consumer side Gateway connects to the provider side Gateway directly, and both relay the data between
+ * this connection and their consumer/provider socket. It is used when the Gatekeepers of both clouds allow it, and the provider side Gateway has a
+ * <i>direct_address</i> the other cloud can reach, otherwise the sessions go through the broker ({@link RelaySession}).
+ * <p>
+ * The connection between the Gateways is mutually authenticated TLS with the key material of the Gateways. The clouds do not share a trust store,
+ * so instead of the certificate chain, the public key of the certificate the other Gateway presents is compared with the public key its
+ * Gatekeeper sent during the ICN negotiation. No application data is read or sent before the other Gateway is authenticated.
+ * <p>
+ * Both sockets are handled by the same {@link SelectorLoop}. A socket is only read when the data read from it before has been written to the other
+ * one, so a slow reader slows down the writer. The session is closed when either connection ends, or when it has been idle for the timeout of the
+ * connection request.
+ */
+final class DirectSession implements LoopSession {
+
+  private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+  private final SelectorLoop loop;
+  private final String queueName;
+  private final boolean consumerSide;
+  private final boolean isSecure;
+  private final int timeout;
+  //The consumer side listens for the consumer, the provider side for the other Gateway
+  private final PortAllocator.Lease portLease;
+  private final PublicKey peerPublicKey;
+  private final SessionMetrics metrics;
+  private final AtomicBoolean closed = new AtomicBoolean();
+
+  //Confined to the loop thread
+  private ServerSocketChannel serverChannel;
+  private SelectionKey serverKey;
+  //The socket of the consumer/provider
+  private final Endpoint local = new Endpoint();
+  //The connection of the other Gateway
+  private final Endpoint peer = new Endpoint();
+  private final Endpoint[] endpoints = {local, peer};
+  private TlsTransport peerTransport;
+  private boolean peerVerified;
+  private long lastActivity = System.currentTimeMillis();
+
+  private static final Logger log = Logger.getLogger(DirectSession.class.getName());
+
+  private DirectSession(ActiveSession activeSession, boolean consumerSide, boolean isSecure, int timeout, PortAllocator.Lease portLease,
+                        String peerPublicKey) {
+    if (GatewayMain.serverContext == null) {
+      throw new ArrowheadException("Gateway is in insecure mode, and can not create a direct connection with the other Gateway!");
+    }
+    this.loop = RelayEngine.nextLoop();
+    this.queueName = activeSession.getQueueName();
+    this.consumerSide = consumerSide;
+    this.isSecure = isSecure;
+    this.timeout = timeout;
+    this.portLease = portLease;
+    this.peerPublicKey = SecurityUtils.getPublicKey(peerPublicKey, false);
+    this.metrics = SessionMetrics.register(queueName);
+  }
+
+  /**
+   * Starts listening for the consumer on the leased port, and connects to the provider side Gateway in the background.
+   *
+   * @throws ArrowheadException if the port can not be bound, the session is closed in this case
+   */
+  static void startConsumerSide(ActiveSession activeSession, PortAllocator.Lease portLease, ConnectToConsumerRequest connectionRequest) {
+    DirectSession session = new DirectSession(activeSession, true, connectionRequest.getIsSecure(), connectionRequest.getTimeout(), portLease,
+                                              connectionRequest.getProviderGWPublicKey());
+    InetSocketAddress peerAddress = new InetSocketAddress(connectionRequest.getDirectAddress(), connectionRequest.getDirectPort());
+    session.start(peerAddress);
+    log.info("Listening for the consumer at port: " + portLease.getPort() + ", connecting directly to the Gateway at " + peerAddress);
+  }
+
+  /**
+   * Starts listening for the consumer side Gateway on the leased port, and connects to the provider in the background.
+   *
+   * @throws ArrowheadException if the port can not be bound, the session is closed in this case
+   */
+  static void startProviderSide(ActiveSession activeSession, PortAllocator.Lease portLease, ConnectToProviderRequest connectionRequest) {
+    DirectSession session = new DirectSession(activeSession, false, connectionRequest.getIsSecure(), connectionRequest.getTimeout(), portLease,
+                                              connectionRequest.getConsumerGWPublicKey());
+    InetSocketAddress providerAddress = new InetSocketAddress(connectionRequest.getProvider().getAddress(),
+                                                              connectionRequest.getProvider().getPort());
+    session.start(providerAddress);
+    log.info("Listening for the direct connection of the consumer side Gateway at port: " + portLease.getPort());
+  }
+
+  //Binds the server socket, and connects to the given address on the loop thread
+  private void start(InetSocketAddress address) {
+    ServerSocketChannel listeningChannel = null;
+    try {
+      listeningChannel = ServerSocketChannel.open();
+      listeningChannel.configureBlocking(false);
+      listeningChannel.bind(new InetSocketAddress(portLease.getPort()));
+    } catch (IOException e) {
+      if (listeningChannel != null) {
+        try {
+          listeningChannel.close();
+        } catch (IOException ignored) {
+        }
+      }
+      close();
+      throw new ArrowheadException("Starting the direct session failed: " + e.getMessage(), e);
+    }
+
+    ServerSocketChannel acceptingChannel = listeningChannel;
+    loop.execute(() -> {
+      serverChannel = acceptingChannel;
+      if (closed.get()) {
+        closeSockets();
+        return;
+      }
+      try {
+        loop.addSession(this);
+        serverKey = loop.register(serverChannel, SelectionKey.OP_ACCEPT, this);
+
+        //The consumer side connects to the other Gateway, the provider side to the provider
+        Endpoint endpoint = consumerSide ? peer : local;
+        SocketChannel channel = SocketChannel.open();
+        channel.configureBlocking(false);
+        if (consumerSide) {
+          peerTransport = TlsTransport.client(channel, address);
+          endpoint.transport = peerTransport;
+        } else {
+          endpoint.transport = RelaySession.createTransport(channel, address, false, isSecure);
+        }
+        if (channel.connect(address)) {
+          endpoint.key = loop.register(channel, 0, this);
+          onConnected(endpoint);
+          relay();
+        } else {
+          endpoint.key = loop.register(channel, SelectionKey.OP_CONNECT, this);
+        }
+      } catch (IOException | RuntimeException e) {
+        log.error("Connecting to " + address + " failed: " + e.getMessage());
+        close();
+      }
+    });
+  }
+
+  @Override
+  public void handle(SelectionKey readyKey) {
+    try {
+      if (readyKey == serverKey) {
+        if (readyKey.isAcceptable()) {
+          onAcceptable();
+        }
+      } else if (readyKey.isConnectable()) {
+        Endpoint endpoint = readyKey == local.key ? local : peer;
+        endpoint.transport.getChannel().finishConnect();
+        onConnected(endpoint);
+      }
+      relay();
+    } catch (IOException | RuntimeException e) {
+      log.info("Direct session " + queueName + " closed: " + e.getMessage());
+      close();
+    }
+  }
+
+  @Override
+  public void checkIdle(long now) {
+    if (timeout > 0 && now - lastActivity > timeout) {
+      log.info("Session " + queueName + " timed out");
+      close();
+    }
+  }
+
+  //Only one connection is accepted (the consumer, or the other Gateway), the server socket is closed after it
+  private void onAcceptable() throws IOException {
+    SocketChannel channel = serverChannel.accept();
+    if (channel == null) {
+      return;
+    }
+    serverKey.cancel();
+    serverChannel.close();
+    channel.configureBlocking(false);
+
+    Endpoint endpoint = consumerSide ? local : peer;
+    if (consumerSide) {
+      endpoint.transport = RelaySession.createTransport(channel, null, true, isSecure);
+      log.info("Consumer connected to session " + queueName);
+    } else {
+      peerTransport = TlsTransport.server(channel);
+      endpoint.transport = peerTransport;
+      log.info("Gateway connected to session " + queueName + " from " + channel.getRemoteAddress());
+    }
+    endpoint.key = loop.register(channel, 0, this);
+    onConnected(endpoint);
+  }
+
+  private void onConnected(Endpoint endpoint) throws IOException {
+    endpoint.connected = true;
+    lastActivity = System.currentTimeMillis();
+    endpoint.transport.start();
+  }
+
+  //Authenticates the other Gateway, and moves the data between the two connections as far as they can take it
+  private void relay() throws IOException {
+    if (!peerVerified && peer.connected) {
+      //Only the handshake is advanced, the application data is left in the transport until the other Gateway is authenticated
+      if (peerTransport.read(EMPTY) < 0) {
+        throw new IOException("end of stream");
+      }
+      peerTransport.write(EMPTY);
+      if (peerTransport.isHandshakeFinished()) {
+        verifyPeer();
+      }
+    }
+
+    if (peerVerified && local.connected) {
+      pump(local, peer);
+      pump(peer, local);
+    }
+    //Lets the transports send their own pending data (e.g. TLS handshake records)
+    for (Endpoint endpoint : endpoints) {
+      if (endpoint.connected && (endpoint.output == null || !endpoint.output.hasRemaining())) {
+        endpoint.transport.write(EMPTY);
+      }
+    }
+    updateInterest();
+  }
+
+  private void verifyPeer() throws IOException {
+    PublicKey presentedKey = peerTransport.getPeerPublicKey();
+    if (!Arrays.equals(presentedKey.getEncoded(), peerPublicKey.getEncoded())) {
+      log.error("The Gateway connected to session " + queueName + " presented a certificate with an unexpected public key");
+      throw new IOException("authentication of the other Gateway failed");
+    }
+    peerVerified = true;
+    log.info("Direct connection of session " + queueName + " authenticated");
+  }
+
+  //Moves data from one connection to the other, until the source has no more data, or the target can not take more without blocking
+  private void pump(Endpoint from, Endpoint to) throws IOException {
+    while (true) {
+      if (to.output != null && to.output.hasRemaining()) {
+        int written = to.transport.write(to.output);
+        if (to == local && written > 0) {
+          metrics.socketWritten(written);
+        }
+        if (to.output.hasRemaining()) {
+          return;
+        }
+      }
+
+      if (to.output == null) {
+        to.output = BufferPool.acquire();
+      }
+      to.output.clear();
+      int read = from.transport.read(to.output);
+      to.output.flip();
+      if (read < 0) {
+        throw new IOException("end of stream");
+      }
+      if (read == 0) {
+        BufferPool.release(to.output);
+        to.output = null;
+        return;
+      }
+      lastActivity = System.currentTimeMillis();
+      if (from == local) {
+        metrics.socketRead(read);
+      }
+    }
+  }
+
+  private void updateInterest() {
+    for (Endpoint endpoint : endpoints) {
+      if (endpoint.key == null || !endpoint.key.isValid() || !endpoint.connected) {
+        continue;
+      }
+      Endpoint target = endpoint == local ? peer : local;
+      boolean targetFree = target.connected && (target.output == null || !target.output.hasRemaining());
+      //The other Gateway is read during the handshake too
+      boolean canRead = (endpoint == peer && !peerVerified) || (peerVerified && targetFree);
+      boolean hasOutput = endpoint.output != null && endpoint.output.hasRemaining();
+      endpoint.key.interestOps((canRead ? SelectionKey.OP_READ : 0) | (endpoint.transport.wantsWrite(hasOutput) ? SelectionKey.OP_WRITE : 0));
+    }
+  }
+
+  //Closes the session and releases its port, can be called from any thread, only the first call has an effect
+  void close() {
+    if (!closed.compareAndSet(false, true)) {
+      return;
+    }
+    GatewayService.activeSessions.remove(queueName);
+    SessionMetrics.unregister(queueName);
+
+    if (loop.inLoop()) {
+      closeSockets();
+    } else {
+      loop.execute(this::closeSockets);
+    }
+    PortAllocator.release(portLease);
+    log.info("Session " + queueName + " closed");
+  }
+
+  private void closeSockets() {
+    loop.removeSession(this);
+    if (serverKey != null) {
+      serverKey.cancel();
+    }
+    if (serverChannel != null) {
+      try {
+        serverChannel.close();
+      } catch (IOException ignored) {
+      }
+    }
+    for (Endpoint endpoint : endpoints) {
+      if (endpoint.key != null) {
+        endpoint.key.cancel();
+      }
+      if (endpoint.transport != null) {
+        endpoint.transport.close();
+      }
+      BufferPool.release(endpoint.output);
+      endpoint.output = null;
+    }
+  }
+
+  //One of the two connections of the session, confined to the loop thread
+  private static final class Endpoint {
+
+    private RelayTransport transport;
+    private SelectionKey key;
+    private boolean connected;
+    //Data read from the other connection, waiting to be written to this one (in read mode)
+    private ByteBuffer output;
+  }
+
+}
@@ -13,6 +13,8 @@ import eu.arrowhead.common.misc.SecurityUtils;
 import java.security.KeyStore;
 import java.security.PrivateKey;
 import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
 import javax.net.ssl.SSLContext;
 
 public class GatewayMain extends ArrowheadMain {
@@ -22,6 +24,29 @@ public class GatewayMain extends ArrowheadMain {
   static PrivateKey privateKey;
   static SSLContext clientContext;
   public static SSLContext serverContext;
+  static int RELAY_THREADS;
+  static int RELAY_BUFFER_SIZE;
+  static int RELAY_PREFETCH;
+  static int RELAY_MAX_UNCONFIRMED;
+  static int RELAY_FRAME_SIZE;
+  static int RELAY_FLUSH_DELAY;
+  static int BROKER_CHANNELS_PER_CONNECTION;
+  static int BROKER_IDLE_TIMEOUT;
+  static int PORT_RECLAIM_INTERVAL;
+  static String DIRECT_ADDRESS;
+
+  {
+    RELAY_THREADS = props.getIntProperty("relay_threads", 2);
+    RELAY_BUFFER_SIZE = props.getIntProperty("relay_buffer_size", 16384);
+    RELAY_PREFETCH = props.getIntProperty("relay_prefetch", 64);
+    RELAY_MAX_UNCONFIRMED = props.getIntProperty("relay_max_unconfirmed", 256);
+    RELAY_FRAME_SIZE = props.getIntProperty("relay_frame_size", 65536);
+    RELAY_FLUSH_DELAY = props.getIntProperty("relay_flush_delay", 1);
+    BROKER_CHANNELS_PER_CONNECTION = props.getIntProperty("broker_channels_per_connection", 500);
+    BROKER_IDLE_TIMEOUT = props.getIntProperty("broker_idle_timeout", 60);
+    PORT_RECLAIM_INTERVAL = props.getIntProperty("port_reclaim_interval", 60);
+    DIRECT_ADDRESS = props.getProperty("direct_address", "");
+  }
 
   private GatewayMain(String[] args) {
     String[] packages = {"eu.arrowhead.common.exception", "eu.arrowhead.common.json", "eu.arrowhead.common.filter", "eu.arrowhead.core.gateway"};
@@ -29,6 +54,39 @@ public class GatewayMain extends ArrowheadMain {
 
     minPort = props.getIntProperty("min_port", 8000);
     maxPort = props.getIntProperty("max_port", 8100);
+
+    //Closes the unused and the dead broker connections
+    TimerTask evictTask = new TimerTask() {
+      @Override
+      public void run() {
+        BrokerConnectionPool.evictConnections();
+      }
+    };
+    Timer evictTimer = new Timer();
+    long evictInterval = Math.max(1, BROKER_IDLE_TIMEOUT / 2) * 1000L;
+    evictTimer.schedule(evictTask, evictInterval, evictInterval);
+
+    //Releases the ports of the sessions which are gone without releasing them
+    TimerTask reclaimTask = new TimerTask() {
+      @Override
+      public void run() {
+        PortAllocator.reclaimPorts();
+      }
+    };
+    Timer reclaimTimer = new Timer();
+    long reclaimInterval = Math.max(1, PORT_RECLAIM_INTERVAL) * 1000L;
+    reclaimTimer.schedule(reclaimTask, reclaimInterval, reclaimInterval);
+
+    //Samples the traffic counters for the throughput rates
+    TimerTask sampleTask = new TimerTask() {
+      @Override
+      public void run() {
+        SessionMetrics.sampleAll();
+      }
+    };
+    Timer sampleTimer = new Timer();
+    sampleTimer.scheduleAtFixedRate(sampleTask, 1000, 1000);
+
     listenForInput();
   }
 
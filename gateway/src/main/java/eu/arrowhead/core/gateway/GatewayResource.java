@@ -7,23 +7,26 @@
 
 package eu.arrowhead.core.gateway;
 
+import eu.arrowhead.common.exception.ArrowheadException;
+import eu.arrowhead.common.exception.DataNotFoundException;
 import eu.arrowhead.common.messages.ConnectToConsumerRequest;
 import eu.arrowhead.common.messages.ConnectToConsumerResponse;
 import eu.arrowhead.common.messages.ConnectToProviderRequest;
 import eu.arrowhead.common.messages.ConnectToProviderResponse;
 import eu.arrowhead.core.gateway.model.ActiveSession;
 import eu.arrowhead.core.gateway.model.GatewaySession;
-import eu.arrowhead.core.gateway.thread.InsecureServerSocketThread;
-import eu.arrowhead.core.gateway.thread.InsecureSocketThread;
-import eu.arrowhead.core.gateway.thread.SecureServerSocketThread;
-import eu.arrowhead.core.gateway.thread.SecureSocketThread;
+import eu.arrowhead.core.gateway.model.PortUtilization;
+import eu.arrowhead.core.gateway.model.TrafficReport;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Collectors;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -51,32 +54,86 @@ public class GatewayResource {
     return new ArrayList<>(GatewayService.activeSessions.values());
   }
 
+  @GET
+  @Path("management/ports")
+  public PortUtilization portUtilization() {
+    return PortAllocator.getUtilization();
+  }
+
+  //Traffic of all the sessions since the Gateway started
+  @GET
+  @Path("management/metrics")
+  public TrafficReport trafficMetrics() {
+    return SessionMetrics.total.toReport();
+  }
+
+  //Traffic of the active sessions, the busiest (by the socket throughput of the last 10 seconds) first
+  @GET
+  @Path("management/metrics/sessions")
+  public List<TrafficReport> sessionsTrafficMetrics() {
+    List<TrafficReport> reports = SessionMetrics.getSessions().stream().map(SessionMetrics::toReport).collect(Collectors.toList());
+    reports.sort(Comparator.comparingDouble(report -> -(report.getReadRateLast10Seconds() + report.getWriteRateLast10Seconds())));
+    return reports;
+  }
+
+  @GET
+  @Path("management/metrics/sessions/{queueName}")
+  public TrafficReport sessionTrafficMetrics(@PathParam("queueName") String queueName) {
+    SessionMetrics metrics = SessionMetrics.get(queueName);
+    if (metrics == null) {
+      throw new DataNotFoundException("No active session with queue name: " + queueName);
+    }
+    return metrics.toReport();
+  }
+
   @PUT
   @Path("connectToProvider")
   public Response connectToProvider(ConnectToProviderRequest connectionRequest) {
+    //An unsupported compression is rejected before the resources of the session are allocated
+    PayloadCompressor compressor = Compressors.get(connectionRequest.getCompression());
     String queueName = String.valueOf(System.currentTimeMillis()).concat(String.valueOf(Math.random())).replace(".", "");
     String controlQueueName = queueName.concat("_control");
+    // The consumer side Gateway connects directly if the Gatekeepers agreed on it, and this Gateway can be reached from the other cloud
+    boolean direct = connectionRequest.isDirect() && connectionRequest.getIsSecure() && !GatewayMain.DIRECT_ADDRESS.isEmpty();
+    PortAllocator.Lease directLease = direct ? PortAllocator.acquire(queueName) : null;
+    Integer directPort = direct ? directLease.getPort() : null;
 
     ActiveSession activeSession = new ActiveSession(connectionRequest.getConsumer(), connectionRequest.getConsumerCloud(),
                                                     connectionRequest.getProvider(), connectionRequest.getProviderCloud(),
                                                     connectionRequest.getService(), connectionRequest.getBrokerHost(),
-                                                    connectionRequest.getBrokerPort(), null, queueName, controlQueueName,
-                                                    connectionRequest.getIsSecure(), LocalDateTime.now());
+                                                    connectionRequest.getBrokerPort(), directPort, queueName, controlQueueName,
+                                                    connectionRequest.getIsSecure(), LocalDateTime.now(),
+                                                    direct ? null : connectionRequest.getCompression());
+    activeSession.setDirect(direct);
     // Add the session to the management queue
     GatewayService.activeSessions.put(queueName, activeSession);
 
-    GatewaySession gatewaySession = GatewayService
-        .createChannel(connectionRequest.getBrokerHost(), connectionRequest.getBrokerPort(), queueName, controlQueueName,
-                       connectionRequest.getIsSecure());
+    if (direct) {
+      try {
+        DirectSession.startProviderSide(activeSession, directLease, connectionRequest);
+      } catch (ArrowheadException e) {
+        GatewayService.activeSessions.remove(queueName);
+        PortAllocator.release(directLease);
+        throw e;
+      }
+      ConnectToProviderResponse response = new ConnectToProviderResponse(queueName, controlQueueName);
+      response.setDirectAddress(GatewayMain.DIRECT_ADDRESS);
+      response.setDirectPort(directPort);
+      log.info("Returning the ConnectToProviderResponse (direct connection) to the Gatekeeper");
+      return Response.status(200).entity(response).build();
+    }
 
-    if (connectionRequest.getIsSecure()) {
-      SecureSocketThread secureThread = new SecureSocketThread(gatewaySession, queueName, controlQueueName, connectionRequest);
-      secureThread.start();
-    } else {
-      InsecureSocketThread insecureThread = new InsecureSocketThread(gatewaySession, queueName, controlQueueName, connectionRequest);
-      insecureThread.start();
+    GatewaySession gatewaySession;
+    try {
+      gatewaySession = BrokerConnectionPool.openSession(connectionRequest.getBrokerHost(), connectionRequest.getBrokerPort(), queueName,
+                                                        controlQueueName, connectionRequest.getIsSecure());
+    } catch (ArrowheadException e) {
+      GatewayService.activeSessions.remove(queueName);
+      throw e;
     }
 
+    RelaySession.startProviderSide(gatewaySession, activeSession, compressor, connectionRequest);
+
     ConnectToProviderResponse response = new ConnectToProviderResponse(queueName, controlQueueName);
     log.info("Returning the ConnectToProviderResponse to the Gatekeeper");
     return Response.status(200).entity(response).build();
@@ -85,28 +142,47 @@ public class GatewayResource {
   @PUT
   @Path("connectToConsumer")
   public Response connectToConsumer(ConnectToConsumerRequest connectionRequest) {
-    Integer serverSocketPort = GatewayService.getAvailablePort();
+    PayloadCompressor compressor = Compressors.get(connectionRequest.getCompression());
+    PortAllocator.Lease portLease = PortAllocator.acquire(connectionRequest.getQueueName());
+    Integer serverSocketPort = portLease.getPort();
+    // The provider side Gateway sends its address if it accepts a direct connection
+    boolean direct = connectionRequest.getDirectAddress() != null && connectionRequest.getDirectPort() != null;
 
     ActiveSession activeSession = new ActiveSession(connectionRequest.getConsumer(), connectionRequest.getConsumerCloud(),
                                                     connectionRequest.getProvider(), connectionRequest.getProviderCloud(),
                                                     connectionRequest.getService(), connectionRequest.getBrokerHost(),
                                                     connectionRequest.getBrokerPort(), serverSocketPort, connectionRequest.getQueueName(),
-                                                    connectionRequest.getControlQueueName(), connectionRequest.getIsSecure(), LocalDateTime.now());
+                                                    connectionRequest.getControlQueueName(), connectionRequest.getIsSecure(), LocalDateTime.now(),
+                                                    direct ? null : connectionRequest.getCompression());
+    activeSession.setDirect(direct);
     // Add the session to the management queue
     GatewayService.activeSessions.put(connectionRequest.getQueueName(), activeSession);
 
-    GatewaySession gatewaySession = GatewayService
-        .createChannel(connectionRequest.getBrokerHost(), connectionRequest.getBrokerPort(), connectionRequest.getQueueName(),
-                       connectionRequest.getControlQueueName(), connectionRequest.getIsSecure());
+    if (direct) {
+      try {
+        DirectSession.startConsumerSide(activeSession, portLease, connectionRequest);
+      } catch (ArrowheadException e) {
+        GatewayService.activeSessions.remove(connectionRequest.getQueueName());
+        PortAllocator.release(portLease);
+        throw e;
+      }
+      log.info("Returning the ConnectToConsumerResponse (direct connection) to the Gatekeeper");
+      return Response.status(200).entity(new ConnectToConsumerResponse(serverSocketPort)).build();
+    }
 
-    if (connectionRequest.getIsSecure()) {
-      SecureServerSocketThread secureThread = new SecureServerSocketThread(gatewaySession, serverSocketPort, connectionRequest);
-      secureThread.start();
-    } else {
-      InsecureServerSocketThread insecureThread = new InsecureServerSocketThread(gatewaySession, serverSocketPort, connectionRequest);
-      insecureThread.start();
+    GatewaySession gatewaySession;
+    try {
+      gatewaySession = BrokerConnectionPool.openSession(connectionRequest.getBrokerHost(), connectionRequest.getBrokerPort(),
+                                                        connectionRequest.getQueueName(), connectionRequest.getControlQueueName(),
+                                                        connectionRequest.getIsSecure());
+    } catch (ArrowheadException e) {
+      GatewayService.activeSessions.remove(connectionRequest.getQueueName());
+      PortAllocator.release(portLease);
+      throw e;
     }
 
+    RelaySession.startConsumerSide(gatewaySession, activeSession, portLease, compressor, connectionRequest);
+
     ConnectToConsumerResponse response = new ConnectToConsumerResponse(serverSocketPort);
     log.info("Returning the ConnectToConsumerResponse to the Gatekeeper");
     return Response.status(200).entity(response).build();
@@ -0,0 +1,21 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.gateway;
+
+import java.nio.channels.SelectionKey;
+
+//A gateway session relayed by a SelectorLoop, the methods are called on the loop thread
+interface LoopSession {
+
+  //Called when a key registered with this session as its attachment is ready
+  void handle(SelectionKey readyKey);
+
+  //Called about every second, the session closes itself if it has been idle for too long
+  void checkIdle(long now);
+
+}
@@ -0,0 +1,36 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.gateway;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A payload compression algorithm of the gateway sessions, registered in {@link Compressors}. The relayed data is compressed before the
+ * encryption, and decompressed after the decryption. Implementations are used by several sessions concurrently, so they have to be thread-safe.
+ */
+interface PayloadCompressor {
+
+  //The name the algorithm is negotiated with, and the AMQP content encoding of the compressed messages
+  String getName();
+
+  /**
+   * Compresses <tt>length</tt> bytes of the source into the destination, starting at <tt>destinationOffset</tt>.
+   *
+   * @return the number of bytes written to the destination, or -1 if the compressed data would not be smaller than the source (the destination
+   *     content is undefined in this case, and the source should be sent uncompressed)
+   */
+  int compress(byte[] source, int offset, int length, byte[] destination, int destinationOffset);
+
+  /**
+   * Decompresses the remaining bytes of the buffer.
+   *
+   * @throws eu.arrowhead.common.exception.ArrowheadException if the data is corrupt
+   */
+  byte[] decompress(ByteBuffer compressed);
+
+}
@@ -0,0 +1,165 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.gateway;
+
+import eu.arrowhead.common.exception.ArrowheadException;
+import eu.arrowhead.core.gateway.model.PortUtilization;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.ws.rs.core.Response.Status;
+import org.apache.log4j.Logger;
+
+/**
+ * Leases the server socket ports of the consumer side sessions from the [min_port, max_port] range. The free ports are kept in a ring (a FIFO
+ * queue), so acquiring and releasing a port does not depend on the size of the range, and a released port goes to the end of the ring instead of
+ * being reused right away (the operating system may still hold the previous connections of it).
+ * <p>
+ * Every leased port has a unique lease stamp, a lease timestamp and an owner session. The state of a port is only changed with compare-and-set on
+ * its lease slot, and a {@link Lease} can only release the port while the slot still holds its stamp, so a port is never given to two sessions,
+ * and a late or repeated release can not free the port of a later lease. {@link #reclaimPorts()} releases the ports whose session no longer
+ * exists (e.g. the request failed after the port was acquired).
+ */
+final class PortAllocator {
+
+  private static final int minPort = GatewayMain.minPort;
+  private static final int portCount = Math.max(0, GatewayMain.maxPort - GatewayMain.minPort + 1);
+  private static final ConcurrentLinkedQueue<Integer> freePorts = new ConcurrentLinkedQueue<>();
+  //Lease stamps of the ports, indexed by port - min_port, 0 if the port is free
+  private static final AtomicLongArray leases = new AtomicLongArray(portCount);
+  private static final AtomicLong lastStamp = new AtomicLong();
+  //Lease timestamps (milliseconds) of the ports, 0 while the lease is being acquired
+  private static final AtomicLongArray leaseTimes = new AtomicLongArray(portCount);
+  //Queue names of the sessions the ports are leased to
+  private static final AtomicReferenceArray<String> owners = new AtomicReferenceArray<>(portCount);
+  private static final AtomicInteger leasedPorts = new AtomicInteger();
+  private static final AtomicInteger peakLeasedPorts = new AtomicInteger();
+  private static final AtomicLong acquisitions = new AtomicLong();
+  private static final AtomicLong failedAcquisitions = new AtomicLong();
+  private static final AtomicLong reclaimedPorts = new AtomicLong();
+  private static final Logger log = Logger.getLogger(PortAllocator.class.getName());
+
+  static {
+    for (int i = 0; i < portCount; i++) {
+      freePorts.offer(minPort + i);
+    }
+  }
+
+  private PortAllocator() throws AssertionError {
+    throw new AssertionError("PortAllocator is a non-instantiable class");
+  }
+
+  /**
+   * Leases a free port to the given session.
+   *
+   * @param owner The queue name of the session, its port is reclaimed if it is not among the active sessions anymore
+   *
+   * @return the lease, which has to be passed to {@link #release(Lease)}
+   *
+   * @throws ArrowheadException if every port of the range is leased
+   */
+  static Lease acquire(String owner) {
+    Integer port;
+    while ((port = freePorts.poll()) != null) {
+      int index = port - minPort;
+      long stamp = lastStamp.incrementAndGet();
+      //Only fails if the port was put back in the ring more than once, the other copy is already leased then
+      if (leases.compareAndSet(index, 0, stamp)) {
+        owners.set(index, owner);
+        leaseTimes.set(index, Math.max(1, System.currentTimeMillis()));
+        acquisitions.incrementAndGet();
+        int leased = leasedPorts.incrementAndGet();
+        peakLeasedPorts.accumulateAndGet(leased, Math::max);
+        return new Lease(port, stamp);
+      }
+    }
+
+    failedAcquisitions.incrementAndGet();
+    log.error("No available port found in port range");
+    throw new ArrowheadException("No available port found in port range", Status.INTERNAL_SERVER_ERROR.getStatusCode(), "PortAllocator:acquire");
+  }
+
+  //Makes the port available again, if it is still held by the lease (it was not released or reclaimed since)
+  static void release(Lease lease) {
+    int index = lease.port - minPort;
+    if (index < 0 || index >= portCount) {
+      return;
+    }
+    if (leases.compareAndSet(index, lease.stamp, 0)) {
+      free(index);
+    }
+  }
+
+  //The lease slot is already 0, so the other fields can be cleared before the port is put back in the ring
+  private static void free(int index) {
+    owners.set(index, null);
+    leaseTimes.set(index, 0);
+    leasedPorts.decrementAndGet();
+    freePorts.offer(minPort + index);
+  }
+
+  /**
+   * Releases the ports which have been leased for at least <i>port_reclaim_interval</i> seconds, but their session is not active anymore. The
+   * sessions release their ports when they close, so this only finds the ports of the failed connection requests and the sessions lost to errors.
+   */
+  static void reclaimPorts() {
+    long now = System.currentTimeMillis();
+    long minLeaseAge = GatewayMain.PORT_RECLAIM_INTERVAL * 1000L;
+    for (int index = 0; index < portCount; index++) {
+      long stamp = leases.get(index);
+      String owner = owners.get(index);
+      long leaseTime = leaseTimes.get(index);
+      //A lease without an owner or timestamp yet is just being acquired
+      if (stamp == 0 || owner == null || leaseTime == 0 || now - leaseTime < minLeaseAge || GatewayService.activeSessions.containsKey(owner)) {
+        continue;
+      }
+      //The lease may have changed since it was read, then it belongs to a new session
+      if (leases.compareAndSet(index, stamp, 0)) {
+        free(index);
+        reclaimedPorts.incrementAndGet();
+        log.warn("Reclaimed port " + (minPort + index) + " of the closed session " + owner);
+      }
+    }
+  }
+
+  static PortUtilization getUtilization() {
+    long now = System.currentTimeMillis();
+    long oldestLease = 0;
+    for (int index = 0; index < portCount; index++) {
+      long leaseTime = leaseTimes.get(index);
+      if (leaseTime != 0) {
+        oldestLease = Math.max(oldestLease, now - leaseTime);
+      }
+    }
+
+    int leased = leasedPorts.get();
+    double utilization = portCount == 0 ? 1 : (double) leased / portCount;
+    return new PortUtilization(minPort, minPort + portCount - 1, portCount, leased, peakLeasedPorts.get(), utilization, acquisitions.get(),
+                               failedAcquisitions.get(), reclaimedPorts.get(), oldestLease);
+  }
+
+  //A leased port, with the stamp identifying the lease
+  static final class Lease {
+
+    private final int port;
+    private final long stamp;
+
+    private Lease(int port, long stamp) {
+      this.port = port;
+      this.stamp = stamp;
+    }
+
+    int getPort() {
+      return port;
+    }
+
+  }
+
+}
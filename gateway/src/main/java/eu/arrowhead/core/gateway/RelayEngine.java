@@ -0,0 +1,49 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.gateway;
+
+import eu.arrowhead.common.exception.ArrowheadException;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The fixed set of selector threads relaying the data between the sockets of the consumers/providers and the AMQP broker. The number of threads
+ * comes from the <i>relay_threads</i> config property, the sessions are distributed between them in a round-robin fashion.
+ */
+final class RelayEngine {
+
+  private static final AtomicInteger next = new AtomicInteger();
+
+  private RelayEngine() throws AssertionError {
+    throw new AssertionError("RelayEngine is a non-instantiable class");
+  }
+
+  static SelectorLoop nextLoop() {
+    SelectorLoop[] loops = Loops.loops;
+    return loops[Math.floorMod(next.getAndIncrement(), loops.length)];
+  }
+
+  //Started on first use, after GatewayMain read the config
+  private static final class Loops {
+
+    private static final SelectorLoop[] loops = start();
+
+    private static SelectorLoop[] start() {
+      SelectorLoop[] loops = new SelectorLoop[Math.max(1, GatewayMain.RELAY_THREADS)];
+      try {
+        for (int i = 0; i < loops.length; i++) {
+          loops[i] = new SelectorLoop(i);
+        }
+      } catch (IOException e) {
+        throw new ArrowheadException("Opening a selector for the relay engine failed: " + e.getMessage(), e);
+      }
+      return loops;
+    }
+  }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.gateway;
+
+import eu.arrowhead.common.exception.ArrowheadException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Wire format of the data messages between two gateways. A frame carries up to <i>relay_frame_size</i> bytes of the relayed stream, preceded by a
+ * header with the payload length (4 bytes) and the sequence number of the frame in its direction (8 bytes). In secure mode the whole frame is
+ * encrypted, so the header is authenticated too.
+ * <p>
+ * Framed messages are marked with the {@link #FRAME_TYPE} AMQP message type. Every gateway announces that it understands them with a
+ * {@link #CAPABILITY_MESSAGE} on the control queue at the start of a session, and a gateway only sends frames after the peer announced it. Older
+ * gateways ignore the announcement, and keep getting the raw stream chunks.
+ * <p>
+ * A gateway closing the session sends a {@link #CLOSE_TYPE} frame without payload as the last frame of its direction, so the peer can write
+ * everything before it to its socket before closing it.
+ */
+final class RelayFrame {
+
+  static final String FRAME_TYPE = "frame";
+  static final String CLOSE_TYPE = "close";
+  static final byte[] CAPABILITY_MESSAGE = "frames".getBytes(StandardCharsets.UTF_8);
+  static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+
+  private RelayFrame() throws AssertionError {
+    throw new AssertionError("RelayFrame is a non-instantiable class");
+  }
+
+  //Writes the header into the first HEADER_SIZE bytes of the frame, the payload must follow it
+  static void writeHeader(byte[] frame, int payloadLength, long sequence) {
+    ByteBuffer.wrap(frame, 0, HEADER_SIZE).putInt(payloadLength).putLong(sequence);
+  }
+
+  /**
+   * @return the payload of the frame, without copying it
+   *
+   * @throws ArrowheadException if the frame is truncated, or it is not the expected next frame (a message of the stream was lost or duplicated)
+   */
+  static ByteBuffer readPayload(byte[] frame, long expectedSequence) {
+    if (frame.length < HEADER_SIZE) {
+      throw new ArrowheadException("Gateway frame is shorter than its header: " + frame.length + " bytes");
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(frame);
+    int payloadLength = buffer.getInt();
+    long sequence = buffer.getLong();
+    if (payloadLength != buffer.remaining()) {
+      throw new ArrowheadException("Gateway frame length mismatch: header says " + payloadLength + " bytes, got " + buffer.remaining());
+    }
+    if (sequence != expectedSequence) {
+      throw new ArrowheadException("Gateway frame out of sequence: expected " + expectedSequence + ", got " + sequence);
+    }
+    return buffer.slice();
+  }
+
+}
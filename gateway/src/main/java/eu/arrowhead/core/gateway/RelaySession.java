@@ -0,0 +1,799 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.gateway;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.AlreadyClosedException;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.DefaultConsumer;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.ShutdownSignalException;
+import eu.arrowhead.common.exception.ArrowheadException;
+import eu.arrowhead.common.messages.ConnectToConsumerRequest;
+import eu.arrowhead.common.messages.ConnectToProviderRequest;
+import eu.arrowhead.core.gateway.model.ActiveSession;
+import eu.arrowhead.core.gateway.model.GatewayEncryption;
+import eu.arrowhead.core.gateway.model.GatewaySession;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.log4j.Logger;
+
+/**
+ * One tunnel between a consumer/provider socket and the AMQP broker, relayed by a {@link SelectorLoop} instead of a dedicated thread.
+ * <p>
+ * On the consumer side the gateway listens on the allocated port and accepts one consumer connection, on the provider side it connects to the
+ * provider. The data read from the socket is published to the broker, the messages delivered by the broker are queued and written to the socket
+ * when it is writable. The socket I/O happens on the loop thread, the broker deliveries arrive on the consumer threads of the AMQP client.
+ * <p>
+ * Both directions are flow controlled. At most <i>relay_prefetch</i> broker messages are delivered but not yet written to the socket (they are
+ * acknowledged when the output buffer holding them has been handed to the transport completely), so a slow socket stops the deliveries instead
+ * of filling the memory. The published messages are confirmed by the broker, and the socket is not read while <i>relay_max_unconfirmed</i>
+ * messages are waiting for a confirmation, or while the broker blocks the connection (e.g. because of a memory alarm).
+ * <p>
+ * If the Gatekeepers negotiated a payload compression for the session, the frames are compressed before the encryption, and the compressed
+ * messages are marked with the name of the algorithm as their AMQP content encoding. A frame is sent uncompressed if the compression does not make
+ * it smaller. Only framed messages are compressed, so a gateway which does not know the compression (and does not announce frames either) gets
+ * the raw data.
+ * <p>
+ * The traffic of the session is counted in its {@link SessionMetrics}.
+ * <p>
+ * The session is closed when either socket side ends, when the peer gateway closes it, or when the socket has been idle for the timeout of the
+ * connection request. Closing notifies the peer gateway with a close frame on the data queue, sequenced after the last data frame, so the peer
+ * closes its socket only after everything before it was written. A peer which does not use frames gets a "close" control message instead.
+ */
+final class RelaySession implements LoopSession {
+
+  private static final byte[] CLOSE_MESSAGE = "close".getBytes(StandardCharsets.UTF_8);
+  private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+  private static final AMQP.BasicProperties FRAME_PROPERTIES = new AMQP.BasicProperties.Builder().type(RelayFrame.FRAME_TYPE).build();
+  private static final AMQP.BasicProperties CLOSE_PROPERTIES = new AMQP.BasicProperties.Builder().type(RelayFrame.CLOSE_TYPE).build();
+
+  private final GatewaySession gatewaySession;
+  private final SessionMetrics metrics;
+  private final SelectorLoop loop;
+  private final String queueName;
+  private final boolean consumerSide;
+  private final boolean isSecure;
+  private final int timeout;
+  //Null on the provider side
+  private final PortAllocator.Lease portLease;
+  private final String publishQueue;
+  private final String publishControlQueue;
+  //Null if the payload is not compressed
+  private final PayloadCompressor compressor;
+  private final AMQP.BasicProperties compressedProperties;
+  private final AMQP.BasicProperties compressedFrameProperties;
+
+  //Encrypts the outgoing messages, only in secure mode
+  private SessionCipher outgoingCipher;
+  //Decrypts the incoming messages, sent by the peer gateway at the start of the session
+  private SessionCipher incomingCipher;
+  //Only used if the peer gateway does not send a session key (older versions send the AES key before every message)
+  private final GatewayEncryption gatewayEncryption = new GatewayEncryption();
+  private boolean isAesKey = true;
+  //Set when the peer gateway announces that it understands frames (see RelayFrame)
+  private volatile boolean peerUsesFrames;
+  //Only used on the consumer thread of the channel
+  private long incomingSequence;
+
+  //Messages waiting to be written to the socket, a Delivery without data marks the close of the session by the peer
+  private final ConcurrentLinkedQueue<Delivery> socketOut = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean writeScheduled = new AtomicBoolean();
+  private final AtomicBoolean closed = new AtomicBoolean();
+  //Sequence numbers of the published messages not yet confirmed by the broker, with the System.nanoTime() of the publishing
+  private final ConcurrentSkipListMap<Long, Long> unconfirmed = new ConcurrentSkipListMap<>();
+  private final AtomicInteger unconfirmedCount = new AtomicInteger();
+  private volatile boolean brokerBlocked;
+  //Only written by the loop thread
+  private volatile boolean readPaused;
+
+  //Confined to the loop thread
+  private ServerSocketChannel serverChannel;
+  private RelayTransport transport;
+  private SelectionKey key;
+  private ByteBuffer output;
+  //Delivery tag of the last message copied into the output completely, acknowledged when the output is written
+  private long outputAckTag;
+  //The frame collecting the socket input, HEADER_SIZE bytes are left free for the header at the start of it
+  private byte[] frame;
+  private ByteBuffer frameBuffer;
+  private long flushDeadline;
+  private boolean flushScheduled;
+  private long outgoingSequence;
+  private long lastActivity = System.currentTimeMillis();
+
+  private static final Logger log = Logger.getLogger(RelaySession.class.getName());
+
+  private RelaySession(GatewaySession gatewaySession, ActiveSession activeSession, boolean consumerSide, boolean isSecure, int timeout,
+                       PortAllocator.Lease portLease, PayloadCompressor compressor) {
+    String queueName = activeSession.getQueueName();
+    String controlQueueName = activeSession.getControlQueueName();
+    this.gatewaySession = gatewaySession;
+    this.metrics = SessionMetrics.register(queueName);
+    this.loop = RelayEngine.nextLoop();
+    this.queueName = queueName;
+    this.consumerSide = consumerSide;
+    this.isSecure = isSecure;
+    this.timeout = timeout;
+    this.portLease = portLease;
+    // The consumer side publishes to the request queues, the provider side to the response queues
+    this.publishQueue = consumerSide ? queueName : queueName.concat("_resp");
+    this.publishControlQueue = consumerSide ? controlQueueName : controlQueueName.concat("_resp");
+    this.compressor = compressor;
+    if (compressor != null) {
+      compressedProperties = new AMQP.BasicProperties.Builder().contentEncoding(compressor.getName()).build();
+      compressedFrameProperties = new AMQP.BasicProperties.Builder().type(RelayFrame.FRAME_TYPE).contentEncoding(compressor.getName()).build();
+    } else {
+      compressedProperties = null;
+      compressedFrameProperties = null;
+    }
+  }
+
+  /**
+   * Starts listening for the consumer on the leased port.
+   *
+   * @param compressor The payload compression negotiated for the session, or null
+   *
+   * @throws ArrowheadException if the port can not be bound or the broker queues can not be consumed, the session is closed in this case
+   */
+  static void startConsumerSide(GatewaySession gatewaySession, ActiveSession activeSession, PortAllocator.Lease portLease,
+                                PayloadCompressor compressor, ConnectToConsumerRequest connectionRequest) {
+    RelaySession session = new RelaySession(gatewaySession, activeSession, true, connectionRequest.getIsSecure(), connectionRequest.getTimeout(),
+                                            portLease, compressor);
+    ServerSocketChannel serverChannel = null;
+    try {
+      session.startBroker(activeSession.getQueueName().concat("_resp"), activeSession.getControlQueueName().concat("_resp"),
+                          connectionRequest.getProviderGWPublicKey());
+      serverChannel = ServerSocketChannel.open();
+      serverChannel.configureBlocking(false);
+      serverChannel.bind(new InetSocketAddress(portLease.getPort()));
+    } catch (IOException | RuntimeException e) {
+      if (serverChannel != null) {
+        try {
+          serverChannel.close();
+        } catch (IOException ignored) {
+        }
+      }
+      session.close(false);
+      throw new ArrowheadException("Starting the consumer side relay failed: " + e.getMessage(), e);
+    }
+
+    ServerSocketChannel listeningChannel = serverChannel;
+    session.loop.execute(() -> {
+      session.serverChannel = listeningChannel;
+      session.register(listeningChannel, SelectionKey.OP_ACCEPT);
+    });
+    log.info("Listening for the consumer at port: " + portLease.getPort());
+  }
+
+  //Connects to the provider in the background, the session is closed if it is not reachable
+  static void startProviderSide(GatewaySession gatewaySession, ActiveSession activeSession, PayloadCompressor compressor,
+                                ConnectToProviderRequest connectionRequest) {
+    RelaySession session = new RelaySession(gatewaySession, activeSession, false, connectionRequest.getIsSecure(), connectionRequest.getTimeout(),
+                                            null, compressor);
+    InetSocketAddress address = new InetSocketAddress(connectionRequest.getProvider().getAddress(), connectionRequest.getProvider().getPort());
+    try {
+      session.startBroker(activeSession.getQueueName(), activeSession.getControlQueueName(), connectionRequest.getConsumerGWPublicKey());
+    } catch (IOException | RuntimeException e) {
+      session.close(false);
+      throw new ArrowheadException("Starting the provider side relay failed: " + e.getMessage(), e);
+    }
+
+    session.loop.execute(() -> {
+      try {
+        SocketChannel channel = SocketChannel.open();
+        channel.configureBlocking(false);
+        session.transport = session.createTransport(channel, address);
+        if (channel.connect(address)) {
+          session.register(channel, 0);
+          session.onConnected();
+        } else {
+          session.register(channel, SelectionKey.OP_CONNECT);
+        }
+      } catch (IOException | RuntimeException e) {
+        log.error("Connecting to the provider at " + address + " failed: " + e.getMessage());
+        session.close(true);
+      }
+    });
+  }
+
+  //Sends the session key to the peer gateway (in secure mode) and starts consuming the incoming data and control queues
+  private void startBroker(String consumeQueue, String consumeControlQueue, String peerPublicKey) throws IOException {
+    Channel channel = gatewaySession.getChannel();
+    channel.basicQos(GatewayMain.RELAY_PREFETCH);
+    channel.confirmSelect();
+    channel.addConfirmListener(this::onConfirm, (deliveryTag, multiple) -> {
+      log.error("The broker rejected a message of session " + queueName + ", closing the session");
+      close(true);
+    });
+    BrokerConnectionPool.addBlockedListener(gatewaySession, blocked -> {
+      brokerBlocked = blocked;
+      loop.execute(this::onFlowControl);
+    });
+
+    if (isSecure) {
+      outgoingCipher = SessionCipher.generate();
+      AMQP.BasicProperties sessionKeyProperties = new AMQP.BasicProperties.Builder().type(SessionCipher.SESSION_KEY_TYPE).build();
+      addUnconfirmed(channel.getNextPublishSeqNo());
+      channel.basicPublish("", publishQueue, sessionKeyProperties, outgoingCipher.wrapKey(peerPublicKey));
+    }
+    channel.basicPublish("", publishControlQueue, null, RelayFrame.CAPABILITY_MESSAGE);
+
+    channel.basicConsume(consumeQueue, false, new DefaultConsumer(channel) {
+      @Override
+      public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) {
+        onDelivery(envelope.getDeliveryTag(), properties, body);
+      }
+
+      //The channel or the shared broker connection is closed, the session can not continue without it
+      @Override
+      public void handleShutdownSignal(String consumerTag, ShutdownSignalException signal) {
+        if (!closed.get()) {
+          log.error("Broker channel of session " + queueName + " was shut down: " + signal.getMessage());
+          close(false);
+        }
+      }
+    });
+    channel.basicConsume(consumeControlQueue, true, new DefaultConsumer(channel) {
+      @Override
+      public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) {
+        String controlMessage = new String(body, StandardCharsets.UTF_8);
+        if (controlMessage.equals("close")) {
+          //Sent by gateways without frames, the messages delivered before it are still written
+          closeAfterOutput(0);
+        } else if (Arrays.equals(body, RelayFrame.CAPABILITY_MESSAGE)) {
+          peerUsesFrames = true;
+        }
+      }
+    });
+  }
+
+  //Called on the consumer thread of the channel, so the deliveries of a session are handled in order
+  private void onDelivery(long deliveryTag, AMQP.BasicProperties properties, byte[] body) {
+    long start = System.nanoTime();
+    byte[] message;
+    ByteBuffer data;
+    try {
+      if (!isSecure) {
+        message = body;
+      } else if (SessionCipher.SESSION_KEY_TYPE.equals(properties.getType())) {
+        incomingCipher = SessionCipher.unwrap(body);
+        log.info("Session key received.");
+        gatewaySession.getChannel().basicAck(deliveryTag, false);
+        return;
+      } else if (incomingCipher != null) {
+        message = incomingCipher.decrypt(body);
+      } else if (isAesKey) {
+        isAesKey = false;
+        gatewayEncryption.setEncryptedAESKey(body);
+        gatewaySession.getChannel().basicAck(deliveryTag, false);
+        return;
+      } else {
+        isAesKey = true;
+        gatewayEncryption.setEncryptedIVAndMessage(body);
+        message = GatewayService.decryptMessage(gatewayEncryption);
+      }
+      metrics.delivered(isSecure ? System.nanoTime() - start : 0);
+      if (RelayFrame.CLOSE_TYPE.equals(properties.getType())) {
+        RelayFrame.readPayload(message, incomingSequence++);
+        closeAfterOutput(deliveryTag);
+        return;
+      }
+      data = RelayFrame.FRAME_TYPE.equals(properties.getType()) ? RelayFrame.readPayload(message, incomingSequence++) : ByteBuffer.wrap(message);
+      if (properties.getContentEncoding() != null) {
+        data = decompress(properties.getContentEncoding(), data);
+      }
+    } catch (ArrowheadException | IOException | AlreadyClosedException e) {
+      log.error("Handling a message of session " + queueName + " failed, closing the session: " + e.getMessage());
+      close(true);
+      return;
+    }
+
+    //Acknowledged after it is written to the socket
+    socketOut.offer(new Delivery(data, deliveryTag));
+    if (writeScheduled.compareAndSet(false, true)) {
+      loop.execute(this::onOutput);
+    }
+  }
+
+  //The peer closed the session: the socket is closed after the messages queued before the close are written to it
+  private void closeAfterOutput(long deliveryTag) {
+    socketOut.offer(new Delivery(null, deliveryTag));
+    if (writeScheduled.compareAndSet(false, true)) {
+      loop.execute(this::onOutput);
+    }
+  }
+
+  private ByteBuffer decompress(String contentEncoding, ByteBuffer compressed) {
+    long start = System.nanoTime();
+    int compressedLength = compressed.remaining();
+    byte[] data = Compressors.get(contentEncoding).decompress(compressed);
+    metrics.decompressed(compressedLength, data.length, System.nanoTime() - start);
+    return ByteBuffer.wrap(data);
+  }
+
+  private RelayTransport createTransport(SocketChannel channel, InetSocketAddress address) {
+    return createTransport(channel, address, consumerSide, isSecure);
+  }
+
+  //The transport of the consumer/provider socket: the Gateway is the server for the consumer, and the client of the provider
+  static RelayTransport createTransport(SocketChannel channel, InetSocketAddress address, boolean consumerSide, boolean isSecure) {
+    if (!isSecure) {
+      return new PlainTransport(channel);
+    }
+    return consumerSide ? TlsTransport.server(channel) : TlsTransport.client(channel, address);
+  }
+
+  private void register(SelectableChannel channel, int ops) {
+    if (closed.get()) {
+      closeSockets();
+      return;
+    }
+    try {
+      key = loop.register(channel, ops, this);
+      loop.addSession(this);
+    } catch (IOException e) {
+      log.error("Registering the socket of session " + queueName + " failed: " + e.getMessage());
+      close(true);
+    }
+  }
+
+  //Called on the loop thread when the key of the session is ready
+  @Override
+  public void handle(SelectionKey readyKey) {
+    try {
+      if (readyKey.isAcceptable()) {
+        onAcceptable();
+        return;
+      }
+      if (readyKey.isConnectable()) {
+        transport.getChannel().finishConnect();
+        onConnected();
+        return;
+      }
+      if (readyKey.isReadable()) {
+        onReadable();
+      }
+      if (readyKey.isValid() && readyKey.isWritable()) {
+        writeToSocket();
+      }
+      updateInterest();
+    } catch (IOException | RuntimeException e) {
+      //RuntimeExceptions come from the broker channel (AlreadyClosedException) or the session cipher
+      log.info("Session " + queueName + " socket closed: " + e.getMessage());
+      close(true);
+    }
+  }
+
+  //Called on the loop thread, closes the session if its socket has been idle for the timeout of the connection request
+  @Override
+  public void checkIdle(long now) {
+    if (timeout > 0 && now - lastActivity > timeout) {
+      log.info("Session " + queueName + " timed out");
+      close(true);
+    }
+  }
+
+  //Only one consumer is accepted, the server socket is closed after it connected
+  private void onAcceptable() throws IOException {
+    SocketChannel channel = serverChannel.accept();
+    if (channel == null) {
+      return;
+    }
+    key.cancel();
+    serverChannel.close();
+    channel.configureBlocking(false);
+    transport = createTransport(channel, null);
+    key = loop.register(channel, 0, this);
+    log.info("Consumer connected to session " + queueName);
+    onConnected();
+  }
+
+  private void onConnected() throws IOException {
+    lastActivity = System.currentTimeMillis();
+    transport.start();
+    writeToSocket();
+    updateInterest();
+  }
+
+  private void onOutput() {
+    writeScheduled.set(false);
+    if (transport == null && isClosing()) {
+      //There is no socket to write the queued messages to
+      log.info("Session " + queueName + " was closed by the other gateway");
+      close(false);
+      return;
+    }
+    if (key == null || transport == null || !key.isValid() || !transport.getChannel().isConnected()) {
+      //The queued messages are written after the socket is connected
+      return;
+    }
+    try {
+      writeToSocket();
+      updateInterest();
+    } catch (IOException | RuntimeException e) {
+      //RuntimeExceptions come from the broker channel (AlreadyClosedException) or the session cipher
+      log.info("Session " + queueName + " socket closed: " + e.getMessage());
+      close(true);
+    }
+  }
+
+  /**
+   * Reads the socket until it has no more data or the reading is paused. The data is collected in a frame, which is published when it is full, or
+   * when <i>relay_flush_delay</i> milliseconds passed since its first byte was read (so a bulk transfer goes out in large messages, but a short
+   * request does not wait for more data).
+   */
+  private void onReadable() throws IOException {
+    while (!readPaused && !brokerBlocked) {
+      if (frameBuffer == null) {
+        frame = BufferPool.acquireFrame();
+        frameBuffer = ByteBuffer.wrap(frame);
+        frameBuffer.position(RelayFrame.HEADER_SIZE);
+      }
+
+      int read = transport.read(frameBuffer);
+      if (read > 0) {
+        metrics.socketRead(read);
+        lastActivity = System.currentTimeMillis();
+        if (flushDeadline == 0) {
+          flushDeadline = lastActivity + GatewayMain.RELAY_FLUSH_DELAY;
+          if (!flushScheduled && GatewayMain.RELAY_FLUSH_DELAY > 0) {
+            flushScheduled = true;
+            loop.scheduleFlush(this);
+          }
+        }
+      }
+      if (read < 0) {
+        flushFrame();
+        throw new IOException("end of stream");
+      }
+      if (!frameBuffer.hasRemaining() || (read == 0 && GatewayMain.RELAY_FLUSH_DELAY <= 0)) {
+        flushFrame();
+      }
+      if (read == 0) {
+        if (frameBuffer != null && frameBuffer.position() == RelayFrame.HEADER_SIZE) {
+          releaseFrame();
+        }
+        return;
+      }
+    }
+  }
+
+  long getFlushDeadline() {
+    return flushDeadline;
+  }
+
+  //Called by the loop when the flush deadline of the session passed
+  void onFlushDeadline(long now) {
+    flushScheduled = false;
+    if (flushDeadline == 0 || flushDeadline > now || closed.get()) {
+      return;
+    }
+    try {
+      flushFrame();
+      updateInterest();
+    } catch (IOException | RuntimeException e) {
+      log.info("Session " + queueName + " socket closed: " + e.getMessage());
+      close(true);
+    }
+  }
+
+  private void flushFrame() throws IOException {
+    flushDeadline = 0;
+    if (frameBuffer == null) {
+      return;
+    }
+    int payloadLength = frameBuffer.position() - RelayFrame.HEADER_SIZE;
+    try {
+      if (payloadLength > 0) {
+        publish(payloadLength);
+      }
+    } finally {
+      releaseFrame();
+    }
+  }
+
+  private void releaseFrame() {
+    BufferPool.releaseFrame(frame);
+    frame = null;
+    frameBuffer = null;
+  }
+
+  /**
+   * Publishes the payload collected in the frame, with the frame header if the peer gateway understands it. The payload is compressed into a
+   * second pooled frame if the session uses compression.
+   */
+  private void publish(int payloadLength) throws IOException {
+    byte[] data = frame;
+    byte[] compressed = null;
+    boolean isCompressed = false;
+    if (compressor != null && peerUsesFrames) {
+      long start = System.nanoTime();
+      compressed = BufferPool.acquireFrame();
+      int compressedLength = compressor.compress(frame, RelayFrame.HEADER_SIZE, payloadLength, compressed, RelayFrame.HEADER_SIZE);
+      int originalLength = payloadLength;
+      if (compressedLength > 0) {
+        data = compressed;
+        payloadLength = compressedLength;
+        isCompressed = true;
+      }
+      metrics.compressed(originalLength, payloadLength, System.nanoTime() - start);
+    }
+
+    try {
+      AMQP.BasicProperties properties = isCompressed ? compressedProperties : null;
+      int offset = RelayFrame.HEADER_SIZE;
+      int length = payloadLength;
+      if (peerUsesFrames) {
+        RelayFrame.writeHeader(data, payloadLength, outgoingSequence++);
+        properties = isCompressed ? compressedFrameProperties : FRAME_PROPERTIES;
+        offset = 0;
+        length += RelayFrame.HEADER_SIZE;
+      }
+
+      byte[] message;
+      long encryptionTime = 0;
+      if (isSecure) {
+        long start = System.nanoTime();
+        message = outgoingCipher.encrypt(data, offset, length);
+        encryptionTime = System.nanoTime() - start;
+      } else if (offset == 0 && length == data.length) {
+        //basicPublish writes the body before returning, so the frame can be reused after it
+        message = data;
+      } else {
+        message = Arrays.copyOfRange(data, offset, offset + length);
+      }
+      Channel channel = gatewaySession.getChannel();
+      addUnconfirmed(channel.getNextPublishSeqNo());
+      channel.basicPublish("", publishQueue, properties, message);
+      metrics.published(encryptionTime);
+    } finally {
+      BufferPool.releaseFrame(compressed);
+    }
+
+    if (unconfirmedCount.get() >= GatewayMain.RELAY_MAX_UNCONFIRMED) {
+      readPaused = true;
+      //The confirmations may have arrived before the flag was set, in that case nobody would resume the reading
+      if (unconfirmedCount.get() <= GatewayMain.RELAY_MAX_UNCONFIRMED / 2) {
+        readPaused = false;
+      }
+    }
+  }
+
+  private void addUnconfirmed(long sequenceNumber) {
+    unconfirmed.put(sequenceNumber, System.nanoTime());
+    unconfirmedCount.incrementAndGet();
+  }
+
+  //Called on the connection thread when the broker confirms published messages
+  private void onConfirm(long deliveryTag, boolean multiple) {
+    long now = System.nanoTime();
+    if (multiple) {
+      Map.Entry<Long, Long> first;
+      while ((first = unconfirmed.firstEntry()) != null && first.getKey() <= deliveryTag) {
+        if (unconfirmed.remove(first.getKey()) != null) {
+          unconfirmedCount.decrementAndGet();
+          metrics.confirmed(now - first.getValue());
+        }
+      }
+    } else {
+      Long publishedAt = unconfirmed.remove(deliveryTag);
+      if (publishedAt != null) {
+        unconfirmedCount.decrementAndGet();
+        metrics.confirmed(now - publishedAt);
+      }
+    }
+
+    if (readPaused && unconfirmedCount.get() <= GatewayMain.RELAY_MAX_UNCONFIRMED / 2) {
+      loop.execute(this::onFlowControl);
+    }
+  }
+
+  //Called on the loop thread when the reading may be resumed (or has to be stopped, if the broker blocked the connection)
+  private void onFlowControl() {
+    if (closed.get() || transport == null || !transport.getChannel().isConnected() || key == null || !key.isValid()) {
+      return;
+    }
+    if (readPaused && unconfirmedCount.get() <= GatewayMain.RELAY_MAX_UNCONFIRMED / 2) {
+      readPaused = false;
+    }
+    try {
+      //The transport may hold data already read from the socket (e.g. decrypted TLS records), so it is read without waiting for the selector
+      onReadable();
+      updateInterest();
+    } catch (IOException | RuntimeException e) {
+      log.info("Session " + queueName + " socket closed: " + e.getMessage());
+      close(true);
+    }
+  }
+
+  //Writes the queued messages until the socket can not take more
+  private void writeToSocket() throws IOException {
+    boolean hasOutput = (output != null && output.hasRemaining()) || fillOutput();
+    while (hasOutput) {
+      int written = transport.write(output);
+      if (written > 0) {
+        metrics.socketWritten(written);
+      }
+      if (output.hasRemaining()) {
+        return;
+      }
+      lastActivity = System.currentTimeMillis();
+      if (outputAckTag > 0) {
+        gatewaySession.getChannel().basicAck(outputAckTag, true);
+        outputAckTag = 0;
+      }
+      hasOutput = fillOutput();
+    }
+    //Lets the transport send its own pending data (e.g. TLS handshake records)
+    transport.write(EMPTY);
+    BufferPool.release(output);
+    output = null;
+
+    //Everything before the close of the peer is written, once the transport has no buffered data either, the socket can be closed
+    if (isClosing() && !transport.wantsWrite(false)) {
+      log.info("Session " + queueName + " was closed by the other gateway");
+      long closeTag = socketOut.peek().deliveryTag;
+      if (closeTag > 0) {
+        gatewaySession.getChannel().basicAck(closeTag, true);
+      }
+      close(false);
+    }
+  }
+
+  private boolean isClosing() {
+    Delivery head = socketOut.peek();
+    return head != null && head.data == null;
+  }
+
+  /**
+   * Copies queued messages into the pooled output buffer, so small messages are written with one system call. The messages copied completely are
+   * acknowledged after the output is written, which lets the broker deliver the next ones.
+   */
+  private boolean fillOutput() throws IOException {
+    if (socketOut.isEmpty()) {
+      return false;
+    }
+    if (output == null) {
+      output = BufferPool.acquire();
+    } else {
+      output.compact();
+    }
+
+    Delivery head;
+    while (output.hasRemaining() && (head = socketOut.peek()) != null && head.data != null) {
+      ByteBuffer data = head.data;
+      if (data.remaining() <= output.remaining()) {
+        output.put(data);
+        socketOut.poll();
+        outputAckTag = head.deliveryTag;
+      } else {
+        int limit = data.limit();
+        data.limit(data.position() + output.remaining());
+        output.put(data);
+        data.limit(limit);
+      }
+    }
+    output.flip();
+    return output.hasRemaining();
+  }
+
+  private void updateInterest() {
+    if (key == null || !key.isValid()) {
+      return;
+    }
+    boolean hasOutput = (output != null && output.hasRemaining()) || !socketOut.isEmpty();
+    int readOps = readPaused || brokerBlocked ? 0 : SelectionKey.OP_READ;
+    key.interestOps(readOps | (transport.wantsWrite(hasOutput) ? SelectionKey.OP_WRITE : 0));
+  }
+
+  /**
+   * Closes the session: stops the broker consumers, closes the sockets and releases the port. Can be called from any thread, only the first call
+   * has an effect.
+   *
+   * @param notifyPeer whether the peer gateway should be notified with a close frame (or a "close" control message)
+   */
+  void close(boolean notifyPeer) {
+    if (!closed.compareAndSet(false, true)) {
+      return;
+    }
+    GatewayService.activeSessions.remove(queueName);
+    SessionMetrics.unregister(queueName);
+
+    if (loop.inLoop()) {
+      closeOnLoop(notifyPeer);
+    } else {
+      loop.execute(() -> closeOnLoop(notifyPeer));
+    }
+    if (portLease != null) {
+      PortAllocator.release(portLease);
+    }
+  }
+
+  //The frames are published by the loop thread, so the close frame is created there to follow the last one
+  private void closeOnLoop(boolean notifyPeer) {
+    byte[] closeFrame = null;
+    if (notifyPeer && peerUsesFrames) {
+      try {
+        closeFrame = createCloseFrame();
+      } catch (RuntimeException e) {
+        log.error("Creating the close frame of session " + queueName + " failed: " + e.getMessage());
+      }
+    }
+    closeSockets();
+
+    //The broker round trips must not block the selector thread
+    byte[] frame = closeFrame;
+    CompletableFuture.runAsync(() -> closeBroker(notifyPeer, frame));
+  }
+
+  private byte[] createCloseFrame() {
+    byte[] frame = new byte[RelayFrame.HEADER_SIZE];
+    RelayFrame.writeHeader(frame, 0, outgoingSequence++);
+    return isSecure ? outgoingCipher.encrypt(frame, 0, frame.length) : frame;
+  }
+
+  private void closeBroker(boolean notifyPeer, byte[] closeFrame) {
+    try {
+      if (closeFrame != null) {
+        gatewaySession.getChannel().basicPublish("", publishQueue, CLOSE_PROPERTIES, closeFrame);
+      } else if (notifyPeer) {
+        gatewaySession.getChannel().basicPublish("", publishControlQueue, null, CLOSE_MESSAGE);
+      }
+    } catch (AlreadyClosedException | IOException e) {
+      log.debug("Channel already closed");
+    }
+    BrokerConnectionPool.closeSession(gatewaySession);
+    log.info("Session " + queueName + " closed");
+  }
+
+  private void closeSockets() {
+    loop.removeSession(this);
+    if (key != null) {
+      key.cancel();
+    }
+    if (serverChannel != null) {
+      try {
+        serverChannel.close();
+      } catch (IOException ignored) {
+      }
+    }
+    if (transport != null) {
+      transport.close();
+    }
+    releaseFrame();
+    BufferPool.release(output);
+    output = null;
+    socketOut.clear();
+  }
+
+  private static final class Delivery {
+
+    private final ByteBuffer data;
+    private final long deliveryTag;
+
+    private Delivery(ByteBuffer data, long deliveryTag) {
+      this.data = data;
+      this.deliveryTag = deliveryTag;
+    }
+  }
+
+}
@@ -0,0 +1,47 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.gateway;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Non-blocking application data stream over a connected <tt>SocketChannel</tt> (plain TCP or TLS). Every method is called from the selector thread
+ * owning the channel.
+ */
+interface RelayTransport {
+
+  SocketChannel getChannel();
+
+  //Starts the protocol after the channel is connected (e.g. the TLS handshake)
+  void start() throws IOException;
+
+  /**
+   * Reads application data into the buffer.
+   *
+   * @return the number of bytes read, or -1 if the stream ended
+   */
+  int read(ByteBuffer dst) throws IOException;
+
+  /**
+   * Writes as much application data from the buffer as possible without blocking.
+   *
+   * @return the number of consumed bytes
+   */
+  int write(ByteBuffer src) throws IOException;
+
+  /**
+   * @return true, if the transport has to be notified when the channel becomes writable (there is buffered network data, or application data the
+   *     transport can accept)
+   */
+  boolean wantsWrite(boolean hasApplicationData);
+
+  void close();
+
+}
@@ -0,0 +1,121 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.gateway;
+
+import java.io.IOException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.apache.log4j.Logger;
+
+/**
+ * One selector thread of the {@link RelayEngine}. The sockets of a {@link LoopSession} are only touched by the thread of the loop the session is
+ * assigned to, other threads hand over work with {@link #execute(Runnable)}.
+ */
+final class SelectorLoop implements Runnable {
+
+  private static final long IDLE_CHECK_INTERVAL = 1000;
+
+  private final Selector selector;
+  private final Thread thread;
+  private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+  //Confined to the loop thread
+  private final List<LoopSession> sessions = new ArrayList<>();
+  //Sessions with a partially filled frame, in the order of their flush deadlines (every session uses the same flush delay)
+  private final ArrayDeque<RelaySession> pendingFlushes = new ArrayDeque<>();
+  private long lastIdleCheck = System.currentTimeMillis();
+
+  private static final Logger log = Logger.getLogger(SelectorLoop.class.getName());
+
+  SelectorLoop(int index) throws IOException {
+    selector = Selector.open();
+    thread = new Thread(this, "gateway-relay-" + index);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  //Runs the task on the loop thread
+  void execute(Runnable task) {
+    tasks.offer(task);
+    selector.wakeup();
+  }
+
+  boolean inLoop() {
+    return Thread.currentThread() == thread;
+  }
+
+  //Must be called on the loop thread
+  SelectionKey register(SelectableChannel channel, int ops, LoopSession session) throws IOException {
+    return channel.register(selector, ops, session);
+  }
+
+  //Must be called on the loop thread
+  void addSession(LoopSession session) {
+    sessions.add(session);
+  }
+
+  //Must be called on the loop thread
+  void removeSession(LoopSession session) {
+    sessions.remove(session);
+  }
+
+  /**
+   * Must be called on the loop thread. {@link RelaySession#onFlushDeadline(long)} is called when the flush deadline of the session passed. A session
+   * is only added once until it is called back: if its frame is flushed earlier and a new one is started, the callback comes at most one flush delay
+   * late.
+   */
+  void scheduleFlush(RelaySession session) {
+    pendingFlushes.add(session);
+  }
+
+  @Override
+  public void run() {
+    //noinspection InfiniteLoopStatement
+    while (true) {
+      try {
+        RelaySession nextFlush = pendingFlushes.peek();
+        long timeout = nextFlush == null ? IDLE_CHECK_INTERVAL : nextFlush.getFlushDeadline() - System.currentTimeMillis();
+        //select(0) would wait without a timeout
+        selector.select(Math.max(1, Math.min(timeout, IDLE_CHECK_INTERVAL)));
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+          task.run();
+        }
+
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          if (key.isValid()) {
+            ((LoopSession) key.attachment()).handle(key);
+          }
+        }
+
+        long now = System.currentTimeMillis();
+        while (!pendingFlushes.isEmpty() && pendingFlushes.peek().getFlushDeadline() <= now) {
+          pendingFlushes.poll().onFlushDeadline(now);
+        }
+        if (now - lastIdleCheck >= IDLE_CHECK_INTERVAL) {
+          lastIdleCheck = now;
+          for (LoopSession session : new ArrayList<>(sessions)) {
+            session.checkIdle(now);
+          }
+        }
+      } catch (IOException | RuntimeException e) {
+        //A session failing must not stop the other sessions of the loop
+        log.error("Unexpected error in the relay loop: " + e.toString(), e);
+      }
+    }
+  }
+
+}
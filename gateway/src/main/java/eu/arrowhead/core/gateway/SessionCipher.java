@@ -0,0 +1,125 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.gateway;
+
+import eu.arrowhead.common.exception.ArrowheadException;
+import eu.arrowhead.common.misc.SecurityUtils;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import javax.ws.rs.core.Response.Status;
+import org.apache.log4j.Logger;
+
+/**
+ * AES-GCM session key of one direction of a secure gateway session. The sending gateway generates the key once, and sends it to the other gateway
+ * (encrypted with the public key of that gateway) in a message marked with {@link #SESSION_KEY_TYPE}. Every other message only carries the IV and
+ * the ciphertext (with the GCM authentication tag), so the RSA operation and the extra broker message per chunk are gone.
+ * <p>
+ * An instance is used either for encryption or for decryption, and it is not thread-safe: every session direction is handled by one thread.
+ */
+public final class SessionCipher {
+
+  //AMQP message type of the message carrying the RSA wrapped session key
+  public static final String SESSION_KEY_TYPE = "session_key";
+
+  private static final int KEY_SIZE = 16;
+  private static final int IV_SIZE = 12;
+  private static final int TAG_SIZE = 128;
+  private static final SecureRandom random = new SecureRandom();
+  private static final ConcurrentHashMap<String, PublicKey> publicKeys = new ConcurrentHashMap<>();
+  private static final Logger log = Logger.getLogger(SessionCipher.class.getName());
+
+  private final SecretKeySpec key;
+  private final Cipher cipher;
+  //The IV is a random prefix + a message counter, so it never repeats for the same key
+  private final byte[] ivPrefix = new byte[IV_SIZE - Long.BYTES];
+  private long counter;
+
+  private SessionCipher(byte[] keyBytes) {
+    key = new SecretKeySpec(keyBytes, "AES");
+    try {
+      cipher = Cipher.getInstance("AES/GCM/NoPadding");
+    } catch (GeneralSecurityException e) {
+      log.fatal("Cipher.getInstance(String) throws exception, code needs to be changed!");
+      throw new AssertionError("Cipher.getInstance(String) throws exception, code needs to be changed!", e);
+    }
+    random.nextBytes(ivPrefix);
+  }
+
+  //Creates a new random session key for the outgoing messages of a session
+  public static SessionCipher generate() {
+    byte[] keyBytes = new byte[KEY_SIZE];
+    random.nextBytes(keyBytes);
+    return new SessionCipher(keyBytes);
+  }
+
+  //Restores the session key of the incoming messages, sent by the other gateway
+  public static SessionCipher unwrap(byte[] wrappedKey) {
+    try {
+      Cipher cipherRSA = Cipher.getInstance("RSA/ECB/PKCS1Padding");
+      cipherRSA.init(Cipher.DECRYPT_MODE, GatewayMain.privateKey);
+      return new SessionCipher(cipherRSA.doFinal(wrappedKey));
+    } catch (GeneralSecurityException e) {
+      log.error("Unwrapping the session key failed: " + e.getMessage());
+      throw new ArrowheadException(e.getMessage(), Status.INTERNAL_SERVER_ERROR.getStatusCode(), e);
+    }
+  }
+
+  /**
+   * @param publicKeyString the Base64 encoded public key of the other gateway
+   *
+   * @return the session key encrypted with the public key of the other gateway
+   */
+  public byte[] wrapKey(String publicKeyString) {
+    PublicKey publicKey = publicKeys.computeIfAbsent(publicKeyString, keyString -> SecurityUtils.getPublicKey(keyString, false));
+    try {
+      Cipher cipherRSA = Cipher.getInstance("RSA/ECB/PKCS1Padding");
+      cipherRSA.init(Cipher.ENCRYPT_MODE, publicKey);
+      return cipherRSA.doFinal(key.getEncoded());
+    } catch (GeneralSecurityException e) {
+      log.error("Wrapping the session key failed: " + e.getMessage());
+      throw new ArrowheadException(e.getMessage(), Status.INTERNAL_SERVER_ERROR.getStatusCode(), e);
+    }
+  }
+
+  /**
+   * @return the IV followed by the ciphertext and the authentication tag
+   */
+  public byte[] encrypt(byte[] message, int offset, int length) {
+    byte[] ivAndCiphertext = new byte[IV_SIZE + cipher.getOutputSize(length)];
+    System.arraycopy(ivPrefix, 0, ivAndCiphertext, 0, ivPrefix.length);
+    ByteBuffer.wrap(ivAndCiphertext, ivPrefix.length, Long.BYTES).putLong(counter++);
+    try {
+      cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_SIZE, ivAndCiphertext, 0, IV_SIZE));
+      cipher.doFinal(message, offset, length, ivAndCiphertext, IV_SIZE);
+      return ivAndCiphertext;
+    } catch (GeneralSecurityException e) {
+      log.error("AES-GCM encryption failed: " + e.getMessage());
+      throw new ArrowheadException(e.getMessage(), Status.INTERNAL_SERVER_ERROR.getStatusCode(), e);
+    }
+  }
+
+  /**
+   * @throws ArrowheadException if the message was not encrypted with this session key, or it was modified on the way
+   */
+  public byte[] decrypt(byte[] ivAndCiphertext) {
+    try {
+      cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_SIZE, ivAndCiphertext, 0, IV_SIZE));
+      return cipher.doFinal(ivAndCiphertext, IV_SIZE, ivAndCiphertext.length - IV_SIZE);
+    } catch (GeneralSecurityException e) {
+      log.error("AES-GCM decryption failed: " + e.getMessage());
+      throw new ArrowheadException(e.getMessage(), Status.INTERNAL_SERVER_ERROR.getStatusCode(), e);
+    }
+  }
+
+}
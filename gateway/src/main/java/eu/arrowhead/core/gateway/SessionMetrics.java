@@ -0,0 +1,209 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.gateway;
+
+import eu.arrowhead.core.gateway.model.TrafficReport;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Traffic counters of a gateway session, and of all the sessions together ({@link #total}). The counters are updated on the hot paths of the
+ * relay (the selector threads, the broker consumer and confirm threads), so they are striped <tt>LongAdder</tt>s: the threads do not contend on
+ * them, and only reading a counter has to sum its cells.
+ * <p>
+ * The throughput rates are computed from the samples taken by {@link #sampleAll()} every second, over the last 1, 10 and 60 seconds.
+ */
+final class SessionMetrics {
+
+  //The number of the one second samples kept
+  private static final int WINDOW = 60;
+
+  //Counters of every session since the start of the Gateway
+  static final SessionMetrics total = new SessionMetrics(null, null);
+  private static final ConcurrentHashMap<String, SessionMetrics> sessions = new ConcurrentHashMap<>();
+
+  private final String queueName;
+  //The total metrics, every update is added to it too
+  private final SessionMetrics parent;
+  private final long startedAt = System.currentTimeMillis();
+
+  //Socket data of the consumer/provider, read data goes to the broker, written data comes from it
+  private final LongAdder socketBytesRead = new LongAdder();
+  private final LongAdder socketBytesWritten = new LongAdder();
+  private final LongAdder messagesPublished = new LongAdder();
+  private final LongAdder messagesDelivered = new LongAdder();
+  private final LongAdder encryptionNanos = new LongAdder();
+  private final LongAdder decryptionNanos = new LongAdder();
+  //Time between publishing a message and its confirmation by the broker
+  private final LongAdder messagesConfirmed = new LongAdder();
+  private final LongAdder publishLatencyNanos = new LongAdder();
+  private final LongAccumulator maxPublishLatencyNanos = new LongAccumulator(Math::max, 0);
+  private final LongAdder uncompressedBytesSent = new LongAdder();
+  private final LongAdder compressedBytesSent = new LongAdder();
+  private final LongAdder compressionNanos = new LongAdder();
+  private final LongAdder compressedBytesReceived = new LongAdder();
+  private final LongAdder decompressedBytesReceived = new LongAdder();
+  private final LongAdder decompressionNanos = new LongAdder();
+
+  //Ring of the samples of the socket byte counters, guarded by this
+  private final long[] readSamples = new long[WINDOW + 1];
+  private final long[] writtenSamples = new long[WINDOW + 1];
+  private int nextSample;
+  private int sampleCount;
+
+  private SessionMetrics(String queueName, SessionMetrics parent) {
+    this.queueName = queueName;
+    this.parent = parent;
+  }
+
+  //Creates the metrics of a new session, they are listed until the session is unregistered
+  static SessionMetrics register(String queueName) {
+    SessionMetrics metrics = new SessionMetrics(queueName, total);
+    sessions.put(queueName, metrics);
+    return metrics;
+  }
+
+  static void unregister(String queueName) {
+    sessions.remove(queueName);
+  }
+
+  //Null if there is no active session with this queue name
+  static SessionMetrics get(String queueName) {
+    return sessions.get(queueName);
+  }
+
+  static List<SessionMetrics> getSessions() {
+    return new ArrayList<>(sessions.values());
+  }
+
+  //Called every second by a timer of the GatewayMain
+  static void sampleAll() {
+    total.sample();
+    for (SessionMetrics metrics : sessions.values()) {
+      metrics.sample();
+    }
+  }
+
+  void socketRead(int bytes) {
+    socketBytesRead.add(bytes);
+    if (parent != null) {
+      parent.socketRead(bytes);
+    }
+  }
+
+  void socketWritten(int bytes) {
+    socketBytesWritten.add(bytes);
+    if (parent != null) {
+      parent.socketWritten(bytes);
+    }
+  }
+
+  //The encryption time is 0 in insecure mode
+  void published(long encryptionTime) {
+    messagesPublished.increment();
+    encryptionNanos.add(encryptionTime);
+    if (parent != null) {
+      parent.published(encryptionTime);
+    }
+  }
+
+  void delivered(long decryptionTime) {
+    messagesDelivered.increment();
+    decryptionNanos.add(decryptionTime);
+    if (parent != null) {
+      parent.delivered(decryptionTime);
+    }
+  }
+
+  void confirmed(long latency) {
+    messagesConfirmed.increment();
+    publishLatencyNanos.add(latency);
+    maxPublishLatencyNanos.accumulate(latency);
+    if (parent != null) {
+      parent.confirmed(latency);
+    }
+  }
+
+  //The payloads sent uncompressed (because compression would not make them smaller) are counted with the same size before and after
+  void compressed(int uncompressedBytes, int compressedBytes, long time) {
+    uncompressedBytesSent.add(uncompressedBytes);
+    compressedBytesSent.add(compressedBytes);
+    compressionNanos.add(time);
+    if (parent != null) {
+      parent.compressed(uncompressedBytes, compressedBytes, time);
+    }
+  }
+
+  void decompressed(int compressedBytes, int decompressedBytes, long time) {
+    compressedBytesReceived.add(compressedBytes);
+    decompressedBytesReceived.add(decompressedBytes);
+    decompressionNanos.add(time);
+    if (parent != null) {
+      parent.decompressed(compressedBytes, decompressedBytes, time);
+    }
+  }
+
+  private synchronized void sample() {
+    readSamples[nextSample] = socketBytesRead.sum();
+    writtenSamples[nextSample] = socketBytesWritten.sum();
+    nextSample = (nextSample + 1) % readSamples.length;
+    sampleCount = Math.min(sampleCount + 1, readSamples.length);
+  }
+
+  //Bytes per second over the last (at most) the given number of seconds, 0 until there are two samples
+  private synchronized double rate(long[] samples, int seconds) {
+    if (sampleCount < 2) {
+      return 0;
+    }
+    int span = Math.min(seconds, sampleCount - 1);
+    int latest = (nextSample - 1 + samples.length) % samples.length;
+    int earlier = (latest - span + samples.length) % samples.length;
+    return (double) (samples[latest] - samples[earlier]) / span;
+  }
+
+  TrafficReport toReport() {
+    TrafficReport report = new TrafficReport();
+    report.setQueueName(queueName);
+    report.setActiveSessions(parent == null ? sessions.size() : 1);
+    report.setUptime(System.currentTimeMillis() - startedAt);
+    report.setSocketBytesRead(socketBytesRead.sum());
+    report.setSocketBytesWritten(socketBytesWritten.sum());
+    report.setMessagesPublished(messagesPublished.sum());
+    report.setMessagesDelivered(messagesDelivered.sum());
+    report.setEncryptionMillis(TimeUnit.NANOSECONDS.toMillis(encryptionNanos.sum()));
+    report.setDecryptionMillis(TimeUnit.NANOSECONDS.toMillis(decryptionNanos.sum()));
+
+    long confirmed = messagesConfirmed.sum();
+    report.setMessagesConfirmed(confirmed);
+    report.setAveragePublishLatencyMicros(confirmed == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(publishLatencyNanos.sum() / confirmed));
+    report.setMaxPublishLatencyMicros(TimeUnit.NANOSECONDS.toMicros(maxPublishLatencyNanos.get()));
+
+    long uncompressed = uncompressedBytesSent.sum();
+    long compressed = compressedBytesSent.sum();
+    report.setUncompressedBytesSent(uncompressed);
+    report.setCompressedBytesSent(compressed);
+    report.setCompressionRatio(uncompressed == 0 ? 1 : (double) compressed / uncompressed);
+    report.setCompressionMillis(TimeUnit.NANOSECONDS.toMillis(compressionNanos.sum()));
+    report.setCompressedBytesReceived(compressedBytesReceived.sum());
+    report.setDecompressedBytesReceived(decompressedBytesReceived.sum());
+    report.setDecompressionMillis(TimeUnit.NANOSECONDS.toMillis(decompressionNanos.sum()));
+
+    report.setReadRateLastSecond(rate(readSamples, 1));
+    report.setReadRateLast10Seconds(rate(readSamples, 10));
+    report.setReadRateLastMinute(rate(readSamples, WINDOW));
+    report.setWriteRateLastSecond(rate(writtenSamples, 1));
+    report.setWriteRateLast10Seconds(rate(writtenSamples, 10));
+    report.setWriteRateLastMinute(rate(writtenSamples, WINDOW));
+    return report;
+  }
+
+}
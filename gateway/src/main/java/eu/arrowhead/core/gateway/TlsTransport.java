@@ -0,0 +1,252 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.gateway;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.security.PublicKey;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLEngineResult.Status;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLPeerUnverifiedException;
+
+/**
+ * TLS over a non-blocking <tt>SocketChannel</tt>, driven by an <tt>SSLEngine</tt>. The handshake is advanced by the reads and writes of the
+ * session. The delegated tasks of the engine are run inline on the selector thread, they are only needed during the handshake.
+ * <p>
+ * The network buffers are heap buffers: the JDK <tt>SSLEngine</tt> works on arrays internally, so direct buffers would only add a copy.
+ */
+final class TlsTransport implements RelayTransport {
+
+  private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+  private final SocketChannel channel;
+  private final SSLEngine engine;
+  //Received TLS records, in write mode
+  private ByteBuffer netIn;
+  //TLS records waiting to be sent, in write mode
+  private ByteBuffer netOut;
+  //Decrypted application data not yet returned by read, in write mode
+  private ByteBuffer appIn;
+  private boolean handshakeFinished;
+
+  TlsTransport(SocketChannel channel, SSLEngine engine) {
+    this.channel = channel;
+    this.engine = engine;
+    netIn = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+    netOut = ByteBuffer.allocate(engine.getSession().getPacketBufferSize());
+    appIn = ByteBuffer.allocate(engine.getSession().getApplicationBufferSize());
+  }
+
+  /**
+   * Creates the server side of a connection with the key material of the Gateway, the client has to present a certificate. The certificate is not
+   * checked against a trust store, use {@link #getPeerPublicKey()} to authenticate the client.
+   */
+  static TlsTransport server(SocketChannel channel) {
+    SSLEngine engine = GatewayMain.serverContext.createSSLEngine();
+    engine.setUseClientMode(false);
+    engine.setNeedClientAuth(true);
+    return new TlsTransport(channel, engine);
+  }
+
+  //Creates the client side of a connection with the key material of the Gateway
+  static TlsTransport client(SocketChannel channel, InetSocketAddress address) {
+    SSLEngine engine = GatewayMain.serverContext.createSSLEngine(address.getHostString(), address.getPort());
+    engine.setUseClientMode(true);
+    return new TlsTransport(channel, engine);
+  }
+
+  @Override
+  public SocketChannel getChannel() {
+    return channel;
+  }
+
+  @Override
+  public void start() throws IOException {
+    engine.beginHandshake();
+    handshake();
+  }
+
+  @Override
+  public int read(ByteBuffer dst) throws IOException {
+    if (appIn.position() > 0) {
+      return drainAppIn(dst);
+    }
+
+    boolean endOfStream = channel.read(netIn) < 0;
+    unwrap();
+    int read = drainAppIn(dst);
+    return read == 0 && (endOfStream || engine.isInboundDone()) ? -1 : read;
+  }
+
+  @Override
+  public int write(ByteBuffer src) throws IOException {
+    handshake();
+    int consumed = 0;
+    while (src.hasRemaining() && flush() && !isWaitingForPeer()) {
+      SSLEngineResult result = engine.wrap(src, netOut);
+      track(result);
+      consumed += result.bytesConsumed();
+      if (result.getStatus() == Status.BUFFER_OVERFLOW) {
+        netOut = enlarge(netOut, engine.getSession().getPacketBufferSize());
+      } else if (result.getStatus() == Status.CLOSED) {
+        throw new SSLException("SSLEngine is closed");
+      }
+      handshake();
+    }
+    flush();
+    return consumed;
+  }
+
+  @Override
+  public boolean wantsWrite(boolean hasApplicationData) {
+    HandshakeStatus status = engine.getHandshakeStatus();
+    return netOut.position() > 0 || status == HandshakeStatus.NEED_WRAP || (hasApplicationData && !isWaitingForPeer());
+  }
+
+  @Override
+  public void close() {
+    engine.closeOutbound();
+    try {
+      //Best effort to send the close_notify alert, the channel is not waited for
+      engine.wrap(EMPTY, netOut);
+      flush();
+    } catch (IOException ignored) {
+    }
+    try {
+      channel.close();
+    } catch (IOException ignored) {
+    }
+  }
+
+  //True after the first handshake completed
+  boolean isHandshakeFinished() {
+    return handshakeFinished;
+  }
+
+  //The public key of the certificate the peer presented in the handshake
+  PublicKey getPeerPublicKey() throws SSLPeerUnverifiedException {
+    return engine.getSession().getPeerCertificates()[0].getPublicKey();
+  }
+
+  private void track(SSLEngineResult result) {
+    if (result.getHandshakeStatus() == HandshakeStatus.FINISHED) {
+      handshakeFinished = true;
+    }
+  }
+
+  private boolean isWaitingForPeer() {
+    return engine.getHandshakeStatus() == HandshakeStatus.NEED_UNWRAP;
+  }
+
+  //Decrypts the received records into appIn, as long as whole records are available
+  private void unwrap() throws IOException {
+    netIn.flip();
+    try {
+      while (netIn.hasRemaining()) {
+        SSLEngineResult result = engine.unwrap(netIn, appIn);
+        track(result);
+        if (result.getStatus() == Status.BUFFER_OVERFLOW) {
+          if (appIn.position() > 0) {
+            //The caller has to drain appIn first, the rest of the records are unwrapped by the next read
+            return;
+          }
+          appIn = enlarge(appIn, engine.getSession().getApplicationBufferSize());
+          continue;
+        }
+        if (result.getStatus() == Status.BUFFER_UNDERFLOW) {
+          if (netIn.limit() == netIn.capacity() && netIn.capacity() < engine.getSession().getPacketBufferSize()) {
+            netIn.compact();
+            netIn = enlarge(netIn, engine.getSession().getPacketBufferSize());
+            netIn.flip();
+          }
+          return;
+        }
+        if (result.getStatus() == Status.CLOSED) {
+          return;
+        }
+        handshake();
+        if (result.bytesConsumed() == 0 && result.bytesProduced() == 0) {
+          return;
+        }
+      }
+    } finally {
+      netIn.compact();
+    }
+  }
+
+  //Runs the handshake steps which do not need data from the peer
+  private void handshake() throws IOException {
+    while (true) {
+      switch (engine.getHandshakeStatus()) {
+        case NEED_TASK:
+          Runnable task;
+          while ((task = engine.getDelegatedTask()) != null) {
+            task.run();
+          }
+          break;
+        case NEED_WRAP:
+          if (!flush()) {
+            return;
+          }
+          SSLEngineResult result = engine.wrap(EMPTY, netOut);
+          track(result);
+          if (result.getStatus() == Status.BUFFER_OVERFLOW) {
+            netOut = enlarge(netOut, engine.getSession().getPacketBufferSize());
+          } else if (result.getStatus() == Status.CLOSED) {
+            flush();
+            return;
+          }
+          break;
+        default:
+          flush();
+          return;
+      }
+    }
+  }
+
+  /**
+   * @return true, if every pending TLS record is written to the channel
+   */
+  private boolean flush() throws IOException {
+    if (netOut.position() == 0) {
+      return true;
+    }
+    netOut.flip();
+    try {
+      channel.write(netOut);
+    } finally {
+      netOut.compact();
+    }
+    return netOut.position() == 0;
+  }
+
+  private int drainAppIn(ByteBuffer dst) {
+    appIn.flip();
+    int length = Math.min(appIn.remaining(), dst.remaining());
+    int limit = appIn.limit();
+    appIn.limit(appIn.position() + length);
+    dst.put(appIn);
+    appIn.limit(limit);
+    appIn.compact();
+    return length;
+  }
+
+  //Returns a bigger buffer (in write mode) with the content of the given one (in write mode)
+  private static ByteBuffer enlarge(ByteBuffer buffer, int minimumSize) {
+    ByteBuffer enlarged = ByteBuffer.allocate(Math.max(minimumSize, buffer.capacity() * 2));
+    buffer.flip();
+    enlarged.put(buffer);
+    return enlarged;
+  }
+
+}
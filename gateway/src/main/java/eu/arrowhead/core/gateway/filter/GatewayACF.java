@@ -30,6 +30,9 @@ public class GatewayACF extends AccessControlFilter {
     if (requestTarget.contains("mgmt")) {
       // Only the local System Operator can use the API methods
       return clientCN.equalsIgnoreCase("sysop." + serverFields[1]);
+    } else if (method.equals("GET") && requestTarget.contains("gateway/management")) {
+      // The session list, the port utilization and the traffic metrics can be read by the local System Operator too
+      return clientCN.equalsIgnoreCase("sysop." + serverFields[1]) || clientCN.equalsIgnoreCase("gatekeeper." + serverFields[1]);
     } else {
       // Only the local Gatekeeper can use the resource methods
       return clientCN.equalsIgnoreCase("gatekeeper." + serverFields[1]);
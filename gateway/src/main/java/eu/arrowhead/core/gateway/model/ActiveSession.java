@@ -26,6 +26,9 @@ public class ActiveSession {
   private String controlQueueName;
   private Boolean isSecure;
   private LocalDateTime sessionStartedAt;
+  private String compression;
+  //True if the session connects the Gateways directly, instead of using the broker
+  private boolean direct;
 
   public ActiveSession() {
   }
@@ -47,6 +50,14 @@ public class ActiveSession {
     this.sessionStartedAt = sessionStartedAt;
   }
 
+  public ActiveSession(ArrowheadSystem consumer, ArrowheadCloud consumerCloud, ArrowheadSystem provider, ArrowheadCloud providerCloud,
+                       ArrowheadService service, String brokerName, Integer brokerPort, Integer serverSocketPort, String queueName,
+                       String controlQueueName, Boolean isSecure, LocalDateTime sessionStartedAt, String compression) {
+    this(consumer, consumerCloud, provider, providerCloud, service, brokerName, brokerPort, serverSocketPort, queueName, controlQueueName, isSecure,
+         sessionStartedAt);
+    this.compression = compression;
+  }
+
   public ArrowheadSystem getConsumer() {
     return consumer;
   }
@@ -143,4 +154,20 @@ public class ActiveSession {
     this.sessionStartedAt = sessionStartedAt;
   }
 
+  public String getCompression() {
+    return compression;
+  }
+
+  public void setCompression(String compression) {
+    this.compression = compression;
+  }
+
+  public boolean isDirect() {
+    return direct;
+  }
+
+  public void setDirect(boolean direct) {
+    this.direct = direct;
+  }
+
 }
@@ -0,0 +1,122 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.gateway.model;
+
+//Usage of the server socket port range of the Gateway, to help sizing min_port and max_port
+public class PortUtilization {
+
+  private int minPort;
+  private int maxPort;
+  private int totalPorts;
+  private int leasedPorts;
+  private int peakLeasedPorts;
+  private double utilization;
+  private long acquisitions;
+  private long failedAcquisitions;
+  private long reclaimedPorts;
+  private long oldestLeaseAge;
+
+  public PortUtilization() {
+  }
+
+  public PortUtilization(int minPort, int maxPort, int totalPorts, int leasedPorts, int peakLeasedPorts, double utilization, long acquisitions,
+                         long failedAcquisitions, long reclaimedPorts, long oldestLeaseAge) {
+    this.minPort = minPort;
+    this.maxPort = maxPort;
+    this.totalPorts = totalPorts;
+    this.leasedPorts = leasedPorts;
+    this.peakLeasedPorts = peakLeasedPorts;
+    this.utilization = utilization;
+    this.acquisitions = acquisitions;
+    this.failedAcquisitions = failedAcquisitions;
+    this.reclaimedPorts = reclaimedPorts;
+    this.oldestLeaseAge = oldestLeaseAge;
+  }
+
+  public int getMinPort() {
+    return minPort;
+  }
+
+  public void setMinPort(int minPort) {
+    this.minPort = minPort;
+  }
+
+  public int getMaxPort() {
+    return maxPort;
+  }
+
+  public void setMaxPort(int maxPort) {
+    this.maxPort = maxPort;
+  }
+
+  public int getTotalPorts() {
+    return totalPorts;
+  }
+
+  public void setTotalPorts(int totalPorts) {
+    this.totalPorts = totalPorts;
+  }
+
+  public int getLeasedPorts() {
+    return leasedPorts;
+  }
+
+  public void setLeasedPorts(int leasedPorts) {
+    this.leasedPorts = leasedPorts;
+  }
+
+  public int getPeakLeasedPorts() {
+    return peakLeasedPorts;
+  }
+
+  public void setPeakLeasedPorts(int peakLeasedPorts) {
+    this.peakLeasedPorts = peakLeasedPorts;
+  }
+
+  public double getUtilization() {
+    return utilization;
+  }
+
+  public void setUtilization(double utilization) {
+    this.utilization = utilization;
+  }
+
+  public long getAcquisitions() {
+    return acquisitions;
+  }
+
+  public void setAcquisitions(long acquisitions) {
+    this.acquisitions = acquisitions;
+  }
+
+  public long getFailedAcquisitions() {
+    return failedAcquisitions;
+  }
+
+  public void setFailedAcquisitions(long failedAcquisitions) {
+    this.failedAcquisitions = failedAcquisitions;
+  }
+
+  public long getReclaimedPorts() {
+    return reclaimedPorts;
+  }
+
+  public void setReclaimedPorts(long reclaimedPorts) {
+    this.reclaimedPorts = reclaimedPorts;
+  }
+
+  //Milliseconds since the longest held port was leased
+  public long getOldestLeaseAge() {
+    return oldestLeaseAge;
+  }
+
+  public void setOldestLeaseAge(long oldestLeaseAge) {
+    this.oldestLeaseAge = oldestLeaseAge;
+  }
+
+}
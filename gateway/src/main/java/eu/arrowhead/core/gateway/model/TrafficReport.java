@@ -0,0 +1,246 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.gateway.model;
+
+//Traffic counters and throughput rates of a gateway session, or of all the sessions of the Gateway
+public class TrafficReport {
+
+  //Null in the report of all the sessions
+  private String queueName;
+  private int activeSessions;
+  //Milliseconds since the Gateway (or the session) started
+  private long uptime;
+  private long socketBytesRead;
+  private long socketBytesWritten;
+  private long messagesPublished;
+  private long messagesDelivered;
+  private long encryptionMillis;
+  private long decryptionMillis;
+  private long messagesConfirmed;
+  //Time between publishing the messages to the broker and their confirmations
+  private long averagePublishLatencyMicros;
+  private long maxPublishLatencyMicros;
+  private long uncompressedBytesSent;
+  private long compressedBytesSent;
+  private double compressionRatio;
+  private long compressionMillis;
+  private long compressedBytesReceived;
+  private long decompressedBytesReceived;
+  private long decompressionMillis;
+  //Socket throughput in bytes per second
+  private double readRateLastSecond;
+  private double readRateLast10Seconds;
+  private double readRateLastMinute;
+  private double writeRateLastSecond;
+  private double writeRateLast10Seconds;
+  private double writeRateLastMinute;
+
+  public TrafficReport() {
+  }
+
+  public String getQueueName() {
+    return queueName;
+  }
+
+  public void setQueueName(String queueName) {
+    this.queueName = queueName;
+  }
+
+  public int getActiveSessions() {
+    return activeSessions;
+  }
+
+  public void setActiveSessions(int activeSessions) {
+    this.activeSessions = activeSessions;
+  }
+
+  public long getUptime() {
+    return uptime;
+  }
+
+  public void setUptime(long uptime) {
+    this.uptime = uptime;
+  }
+
+  public long getSocketBytesRead() {
+    return socketBytesRead;
+  }
+
+  public void setSocketBytesRead(long socketBytesRead) {
+    this.socketBytesRead = socketBytesRead;
+  }
+
+  public long getSocketBytesWritten() {
+    return socketBytesWritten;
+  }
+
+  public void setSocketBytesWritten(long socketBytesWritten) {
+    this.socketBytesWritten = socketBytesWritten;
+  }
+
+  public long getMessagesPublished() {
+    return messagesPublished;
+  }
+
+  public void setMessagesPublished(long messagesPublished) {
+    this.messagesPublished = messagesPublished;
+  }
+
+  public long getMessagesDelivered() {
+    return messagesDelivered;
+  }
+
+  public void setMessagesDelivered(long messagesDelivered) {
+    this.messagesDelivered = messagesDelivered;
+  }
+
+  public long getEncryptionMillis() {
+    return encryptionMillis;
+  }
+
+  public void setEncryptionMillis(long encryptionMillis) {
+    this.encryptionMillis = encryptionMillis;
+  }
+
+  public long getDecryptionMillis() {
+    return decryptionMillis;
+  }
+
+  public void setDecryptionMillis(long decryptionMillis) {
+    this.decryptionMillis = decryptionMillis;
+  }
+
+  public long getMessagesConfirmed() {
+    return messagesConfirmed;
+  }
+
+  public void setMessagesConfirmed(long messagesConfirmed) {
+    this.messagesConfirmed = messagesConfirmed;
+  }
+
+  public long getAveragePublishLatencyMicros() {
+    return averagePublishLatencyMicros;
+  }
+
+  public void setAveragePublishLatencyMicros(long averagePublishLatencyMicros) {
+    this.averagePublishLatencyMicros = averagePublishLatencyMicros;
+  }
+
+  public long getMaxPublishLatencyMicros() {
+    return maxPublishLatencyMicros;
+  }
+
+  public void setMaxPublishLatencyMicros(long maxPublishLatencyMicros) {
+    this.maxPublishLatencyMicros = maxPublishLatencyMicros;
+  }
+
+  public long getUncompressedBytesSent() {
+    return uncompressedBytesSent;
+  }
+
+  public void setUncompressedBytesSent(long uncompressedBytesSent) {
+    this.uncompressedBytesSent = uncompressedBytesSent;
+  }
+
+  public long getCompressedBytesSent() {
+    return compressedBytesSent;
+  }
+
+  public void setCompressedBytesSent(long compressedBytesSent) {
+    this.compressedBytesSent = compressedBytesSent;
+  }
+
+  public double getCompressionRatio() {
+    return compressionRatio;
+  }
+
+  public void setCompressionRatio(double compressionRatio) {
+    this.compressionRatio = compressionRatio;
+  }
+
+  public long getCompressionMillis() {
+    return compressionMillis;
+  }
+
+  public void setCompressionMillis(long compressionMillis) {
+    this.compressionMillis = compressionMillis;
+  }
+
+  public long getCompressedBytesReceived() {
+    return compressedBytesReceived;
+  }
+
+  public void setCompressedBytesReceived(long compressedBytesReceived) {
+    this.compressedBytesReceived = compressedBytesReceived;
+  }
+
+  public long getDecompressedBytesReceived() {
+    return decompressedBytesReceived;
+  }
+
+  public void setDecompressedBytesReceived(long decompressedBytesReceived) {
+    this.decompressedBytesReceived = decompressedBytesReceived;
+  }
+
+  public long getDecompressionMillis() {
+    return decompressionMillis;
+  }
+
+  public void setDecompressionMillis(long decompressionMillis) {
+    this.decompressionMillis = decompressionMillis;
+  }
+
+  public double getReadRateLastSecond() {
+    return readRateLastSecond;
+  }
+
+  public void setReadRateLastSecond(double readRateLastSecond) {
+    this.readRateLastSecond = readRateLastSecond;
+  }
+
+  public double getReadRateLast10Seconds() {
+    return readRateLast10Seconds;
+  }
+
+  public void setReadRateLast10Seconds(double readRateLast10Seconds) {
+    this.readRateLast10Seconds = readRateLast10Seconds;
+  }
+
+  public double getReadRateLastMinute() {
+    return readRateLastMinute;
+  }
+
+  public void setReadRateLastMinute(double readRateLastMinute) {
+    this.readRateLastMinute = readRateLastMinute;
+  }
+
+  public double getWriteRateLastSecond() {
+    return writeRateLastSecond;
+  }
+
+  public void setWriteRateLastSecond(double writeRateLastSecond) {
+    this.writeRateLastSecond = writeRateLastSecond;
+  }
+
+  public double getWriteRateLast10Seconds() {
+    return writeRateLast10Seconds;
+  }
+
+  public void setWriteRateLast10Seconds(double writeRateLast10Seconds) {
+    this.writeRateLast10Seconds = writeRateLast10Seconds;
+  }
+
+  public double getWriteRateLastMinute() {
+    return writeRateLastMinute;
+  }
+
+  public void setWriteRateLastMinute(double writeRateLastMinute) {
+    this.writeRateLastMinute = writeRateLastMinute;
+  }
+
+}
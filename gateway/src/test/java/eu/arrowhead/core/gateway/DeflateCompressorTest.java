@@ -0,0 +1,118 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.gateway;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import eu.arrowhead.common.exception.ArrowheadException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+public class DeflateCompressorTest {
+
+  private static final int OFFSET = RelayFrame.HEADER_SIZE;
+
+  private final DeflateCompressor compressor = new DeflateCompressor();
+
+  @Test
+  public void roundTripsRepetitiveData() {
+    StringBuilder json = new StringBuilder();
+    for (int i = 0; i < 500; i++) {
+      json.append("{\"sensor\":\"temperature-").append(i % 7).append("\",\"value\":21.5,\"unit\":\"celsius\"}");
+    }
+    byte[] data = json.toString().getBytes(StandardCharsets.UTF_8);
+
+    byte[] compressed = compress(data);
+    assertTrue("Compressed to " + compressed.length + " of " + data.length + " bytes", compressed.length < data.length / 4);
+    assertArrayEquals(data, compressor.decompress(ByteBuffer.wrap(compressed)));
+  }
+
+  //The payload is at an offset in a pooled frame, and the compressed data is written after the frame header
+  @Test
+  public void roundTripsPartOfTheSource() {
+    byte[] source = new byte[4096];
+    Arrays.fill(source, 1000, 3000, (byte) 'a');
+    byte[] destination = new byte[source.length];
+    int length = compressor.compress(source, 1000, 2000, destination, OFFSET);
+    assertTrue(length > 0);
+
+    ByteBuffer compressed = ByteBuffer.wrap(destination, OFFSET, length);
+    assertArrayEquals(Arrays.copyOfRange(source, 1000, 3000), compressor.decompress(compressed.slice()));
+  }
+
+  //The length prefix alone is larger than the payload
+  @Test
+  public void refusesATinyPayload() {
+    assertEquals(-1, compressor.compress(new byte[]{1, 2, 3}, 0, 3, new byte[64], 0));
+  }
+
+  @Test
+  public void refusesIncompressibleData() {
+    byte[] data = new byte[8192];
+    new Random(42).nextBytes(data);
+    assertEquals(-1, compressor.compress(data, 0, data.length, new byte[OFFSET + data.length], OFFSET));
+  }
+
+  @Test
+  public void refusesATooSmallDestination() {
+    byte[] data = new byte[1024];
+    assertEquals(-1, compressor.compress(data, 0, data.length, new byte[OFFSET + 2], OFFSET));
+  }
+
+  @Test(expected = ArrowheadException.class)
+  public void rejectsATruncatedLength() {
+    compressor.decompress(ByteBuffer.wrap(new byte[3]));
+  }
+
+  @Test(expected = ArrowheadException.class)
+  public void rejectsAnOversizedLength() {
+    byte[] compressed = compress(new byte[1024]);
+    ByteBuffer.wrap(compressed).putInt(Integer.MAX_VALUE);
+    compressor.decompress(ByteBuffer.wrap(compressed));
+  }
+
+  @Test(expected = ArrowheadException.class)
+  public void rejectsAWrongLength() {
+    byte[] compressed = compress(new byte[1024]);
+    ByteBuffer.wrap(compressed).putInt(2048);
+    compressor.decompress(ByteBuffer.wrap(compressed));
+  }
+
+  @Test(expected = ArrowheadException.class)
+  public void rejectsATruncatedStream() {
+    byte[] compressed = compress(new byte[1024]);
+    compressor.decompress(ByteBuffer.wrap(Arrays.copyOf(compressed, compressed.length - 2)));
+  }
+
+  @Test(expected = ArrowheadException.class)
+  public void rejectsCorruptData() {
+    byte[] compressed = compress(new byte[1024]);
+    for (int i = Integer.BYTES; i < compressed.length; i++) {
+      compressed[i] ^= 0x5A;
+    }
+    compressor.decompress(ByteBuffer.wrap(compressed));
+  }
+
+  @Test
+  public void isRegisteredByName() {
+    assertEquals(DeflateCompressor.NAME, Compressors.get("DEFLATE").getName());
+  }
+
+  private byte[] compress(byte[] data) {
+    byte[] destination = new byte[data.length];
+    int length = compressor.compress(data, 0, data.length, destination, 0);
+    assertTrue(length > 0);
+    return Arrays.copyOf(destination, length);
+  }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.gateway;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import eu.arrowhead.common.database.ArrowheadSystem;
+import eu.arrowhead.common.messages.ConnectToConsumerRequest;
+import eu.arrowhead.common.messages.ConnectToProviderRequest;
+import eu.arrowhead.core.gateway.model.ActiveSession;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Relays data between a client and an echo provider through a consumer side and a provider side direct session, connected over TLS on the
+ * loopback interface. Both sessions run in this JVM, and use the certificate of the default gateway configuration.
+ */
+public class DirectSessionTest {
+
+  private static final String LOOPBACK = "127.0.0.1";
+  private static final int TIMEOUT = 10000;
+  private static final AtomicInteger sessionCounter = new AtomicInteger();
+
+  static {
+    GatewayTestConfig.apply();
+  }
+
+  private ServerSocket provider;
+  private Thread echo;
+  private String consumerQueue;
+  private String providerQueue;
+
+  @Before
+  public void startProvider() throws IOException {
+    provider = new ServerSocket(0, 1, InetAddress.getByName(LOOPBACK));
+    echo = new Thread(this::echo, "echo-provider");
+    echo.setDaemon(true);
+    echo.start();
+    int session = sessionCounter.incrementAndGet();
+    consumerQueue = "direct-test-consumer-" + session;
+    providerQueue = "direct-test-provider-" + session;
+  }
+
+  @After
+  public void stopProvider() throws IOException {
+    provider.close();
+  }
+
+  @Test
+  public void relaysTheStreamInBothDirections() throws Exception {
+    int consumerPort = startSessions(GatewayTestConfig.getPublicKey());
+
+    byte[] request = new byte[4 * 1024 * 1024];
+    new Random(42).nextBytes(request);
+    byte[] response = new byte[request.length];
+    try (Socket consumer = new Socket(LOOPBACK, consumerPort)) {
+      consumer.setSoTimeout(TIMEOUT);
+      //The request is written while the echo is read, so neither side fills the socket buffers
+      Thread writer = new Thread(() -> {
+        try {
+          OutputStream out = consumer.getOutputStream();
+          out.write(request);
+          out.flush();
+        } catch (IOException ignored) {
+        }
+      }, "consumer-writer");
+      writer.start();
+      new DataInputStream(consumer.getInputStream()).readFully(response);
+      writer.join(TIMEOUT);
+    }
+    assertArrayEquals(request, response);
+
+    //The end of the consumer stream closes both sessions
+    awaitSessionsClosed();
+  }
+
+  @Test
+  public void closesTheSessionsIfThePeerKeyDoesNotMatch() throws Exception {
+    int consumerPort = startSessions(generatePublicKey());
+
+    awaitSessionsClosed();
+    try (Socket consumer = new Socket()) {
+      consumer.connect(new InetSocketAddress(LOOPBACK, consumerPort), TIMEOUT);
+      fail("The consumer port is still open");
+    } catch (IOException e) {
+      //Expected, the server socket of the consumer side is closed
+    }
+  }
+
+  //Starts the provider side session, then the consumer side session connecting to it, and returns the port of the consumer side
+  private int startSessions(String expectedProviderKey) {
+    PortAllocator.Lease providerLease = PortAllocator.acquire(providerQueue);
+    ConnectToProviderRequest providerRequest = new ConnectToProviderRequest();
+    providerRequest.setProvider(new ArrowheadSystem("echo", LOOPBACK, provider.getLocalPort(), null));
+    providerRequest.setIsSecure(false);
+    providerRequest.setConsumerGWPublicKey(GatewayTestConfig.getPublicKey());
+    GatewayService.activeSessions.put(providerQueue, activeSession(providerQueue));
+    DirectSession.startProviderSide(GatewayService.activeSessions.get(providerQueue), providerLease, providerRequest);
+
+    PortAllocator.Lease consumerLease = PortAllocator.acquire(consumerQueue);
+    ConnectToConsumerRequest consumerRequest = new ConnectToConsumerRequest();
+    consumerRequest.setQueueName(consumerQueue);
+    consumerRequest.setIsSecure(false);
+    consumerRequest.setDirectAddress(LOOPBACK);
+    consumerRequest.setDirectPort(providerLease.getPort());
+    consumerRequest.setProviderGWPublicKey(expectedProviderKey);
+    GatewayService.activeSessions.put(consumerQueue, activeSession(consumerQueue));
+    DirectSession.startConsumerSide(GatewayService.activeSessions.get(consumerQueue), consumerLease, consumerRequest);
+    return consumerLease.getPort();
+  }
+
+  private static ActiveSession activeSession(String queueName) {
+    ActiveSession session = new ActiveSession();
+    session.setQueueName(queueName);
+    session.setDirect(true);
+    return session;
+  }
+
+  private void awaitSessionsClosed() throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TIMEOUT;
+    while (isOpen() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(20);
+    }
+    assertTrue("The direct sessions were not closed", !isOpen());
+    assertEquals(0, PortAllocator.getUtilization().getLeasedPorts());
+  }
+
+  private boolean isOpen() {
+    return GatewayService.activeSessions.containsKey(consumerQueue) || GatewayService.activeSessions.containsKey(providerQueue)
+        || PortAllocator.getUtilization().getLeasedPorts() > 0;
+  }
+
+  private static String generatePublicKey() throws NoSuchAlgorithmException {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    return Base64.getEncoder().encodeToString(generator.generateKeyPair().getPublic().getEncoded());
+  }
+
+  //Accepts one connection (the provider side session), and sends back everything it reads
+  private void echo() {
+    try (Socket connection = provider.accept()) {
+      InputStream in = connection.getInputStream();
+      OutputStream out = connection.getOutputStream();
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) >= 0) {
+        out.write(buffer, 0, read);
+      }
+    } catch (IOException ignored) {
+      //The provider socket is closed after the test
+    }
+  }
+
+}
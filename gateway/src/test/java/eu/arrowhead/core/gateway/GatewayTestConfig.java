@@ -0,0 +1,52 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.gateway;
+
+import eu.arrowhead.common.misc.SecurityUtils;
+import java.security.KeyStore;
+import java.util.Base64;
+
+/**
+ * The configuration the tests run the gateway classes with, instead of reading the default.conf in the GatewayMain constructor. The static
+ * classes (e.g. PortAllocator) read it when they are first used, so every test class applies the same values before that.
+ */
+final class GatewayTestConfig {
+
+  static final int MIN_PORT = 49000;
+  static final int MAX_PORT = 49003;
+  //The keystore of the default configuration, relative to the module directory (the working directory of the tests)
+  static final String KEYSTORE = "config/certificates/gateway.p12";
+  static final String KEYSTORE_PASS = "123456";
+
+  private static boolean applied;
+
+  private GatewayTestConfig() throws AssertionError {
+    throw new AssertionError("GatewayTestConfig is a non-instantiable class");
+  }
+
+  static synchronized void apply() {
+    if (applied) {
+      return;
+    }
+    GatewayMain.minPort = MIN_PORT;
+    GatewayMain.maxPort = MAX_PORT;
+    GatewayMain.PORT_RECLAIM_INTERVAL = 0;
+    GatewayMain.RELAY_THREADS = 1;
+    GatewayMain.RELAY_BUFFER_SIZE = 16384;
+    GatewayMain.RELAY_FRAME_SIZE = 65536;
+    GatewayMain.serverContext = SecurityUtils.createSSLContextWithDummyTrustManager(KEYSTORE, KEYSTORE_PASS);
+    applied = true;
+  }
+
+  //The public key of the gateway certificate, in the form the Gatekeeper sends it to the other Gateway
+  static String getPublicKey() {
+    KeyStore keyStore = SecurityUtils.loadKeyStore(KEYSTORE, KEYSTORE_PASS);
+    return Base64.getEncoder().encodeToString(SecurityUtils.getFirstCertFromKeyStore(keyStore).getPublicKey().getEncoded());
+  }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.gateway;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import eu.arrowhead.common.exception.ArrowheadException;
+import eu.arrowhead.core.gateway.model.ActiveSession;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Test;
+
+public class PortAllocatorTest {
+
+  //The allocator reads its range when it is first used, the tests of the module share it (see GatewayTestConfig)
+  static {
+    GatewayTestConfig.apply();
+  }
+
+  private final int minPort = PortAllocator.getUtilization().getMinPort();
+  private final int portCount = PortAllocator.getUtilization().getTotalPorts();
+  private final List<PortAllocator.Lease> leases = new ArrayList<>();
+
+  @After
+  public void releaseLeases() {
+    for (PortAllocator.Lease lease : leases) {
+      PortAllocator.release(lease);
+    }
+    GatewayService.activeSessions.clear();
+    assertEquals(0, PortAllocator.getUtilization().getLeasedPorts());
+  }
+
+  @Test
+  public void leasesEveryPortOfTheRangeOnce() {
+    Set<Integer> ports = new HashSet<>();
+    for (int i = 0; i < portCount; i++) {
+      int port = acquire("session" + i).getPort();
+      assertTrue("Port " + port + " is out of the range", port >= minPort && port < minPort + portCount);
+      ports.add(port);
+    }
+    assertEquals(portCount, ports.size());
+    assertEquals(portCount, PortAllocator.getUtilization().getLeasedPorts());
+    assertNoFreePort();
+  }
+
+  @Test
+  public void releasedPortIsLeasedAgain() {
+    acquireAll();
+    PortAllocator.Lease released = leases.remove(0);
+    PortAllocator.release(released);
+    assertEquals(portCount - 1, PortAllocator.getUtilization().getLeasedPorts());
+    assertEquals(released.getPort(), acquire("next").getPort());
+  }
+
+  @Test
+  public void lateReleaseDoesNotFreeTheNextLease() {
+    acquireAll();
+    PortAllocator.Lease first = leases.remove(0);
+    PortAllocator.release(first);
+    PortAllocator.Lease second = acquire("second");
+    assertEquals(first.getPort(), second.getPort());
+
+    PortAllocator.release(first);
+    assertEquals(portCount, PortAllocator.getUtilization().getLeasedPorts());
+    assertNoFreePort();
+  }
+
+  @Test
+  public void reclaimsThePortsOfClosedSessions() {
+    PortAllocator.Lease active = acquire("active");
+    PortAllocator.Lease closed = acquire("closed");
+    GatewayService.activeSessions.put("active", new ActiveSession());
+    long reclaimed = PortAllocator.getUtilization().getReclaimedPorts();
+
+    PortAllocator.reclaimPorts();
+    assertEquals(reclaimed + 1, PortAllocator.getUtilization().getReclaimedPorts());
+    assertEquals(1, PortAllocator.getUtilization().getLeasedPorts());
+
+    //The session of the reclaimed port releases it late, after the port was leased again
+    acquireAll();
+    PortAllocator.release(closed);
+    assertNoFreePort();
+    PortAllocator.release(active);
+    assertEquals(portCount - 1, PortAllocator.getUtilization().getLeasedPorts());
+  }
+
+  private PortAllocator.Lease acquire(String owner) {
+    PortAllocator.Lease lease = PortAllocator.acquire(owner);
+    leases.add(lease);
+    return lease;
+  }
+
+  private void acquireAll() {
+    while (PortAllocator.getUtilization().getLeasedPorts() < portCount) {
+      acquire("session" + leases.size());
+    }
+  }
+
+  private void assertNoFreePort() {
+    try {
+      PortAllocator.acquire("extra");
+      fail("A port was leased from a full range");
+    } catch (ArrowheadException e) {
+      //Expected
+    }
+  }
+
+}
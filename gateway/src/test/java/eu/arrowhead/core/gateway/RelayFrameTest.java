@@ -0,0 +1,80 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.gateway;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import eu.arrowhead.common.exception.ArrowheadException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class RelayFrameTest {
+
+  @Test
+  public void readsThePayloadAfterTheHeader() {
+    byte[] payload = "relayed stream chunk".getBytes(StandardCharsets.UTF_8);
+    byte[] frame = frame(payload, 7);
+
+    ByteBuffer read = RelayFrame.readPayload(frame, 7);
+    byte[] readPayload = new byte[read.remaining()];
+    read.get(readPayload);
+    assertArrayEquals(payload, readPayload);
+  }
+
+  @Test
+  public void readsAnEmptyFrame() {
+    byte[] frame = new byte[RelayFrame.HEADER_SIZE];
+    RelayFrame.writeHeader(frame, 0, 0);
+    assertEquals(0, RelayFrame.readPayload(frame, 0).remaining());
+  }
+
+  @Test
+  public void readsConsecutiveFrames() {
+    for (long sequence = 0; sequence < 3; sequence++) {
+      assertEquals(1, RelayFrame.readPayload(frame(new byte[]{1}, sequence), sequence).remaining());
+    }
+  }
+
+  @Test(expected = ArrowheadException.class)
+  public void rejectsALostFrame() {
+    RelayFrame.readPayload(frame(new byte[]{1}, 8), 7);
+  }
+
+  @Test(expected = ArrowheadException.class)
+  public void rejectsADuplicatedFrame() {
+    RelayFrame.readPayload(frame(new byte[]{1}, 6), 7);
+  }
+
+  @Test(expected = ArrowheadException.class)
+  public void rejectsATruncatedHeader() {
+    RelayFrame.readPayload(new byte[RelayFrame.HEADER_SIZE - 1], 0);
+  }
+
+  @Test(expected = ArrowheadException.class)
+  public void rejectsATruncatedPayload() {
+    byte[] frame = frame(new byte[]{1, 2, 3, 4}, 0);
+    RelayFrame.readPayload(Arrays.copyOf(frame, frame.length - 1), 0);
+  }
+
+  @Test(expected = ArrowheadException.class)
+  public void rejectsTrailingBytes() {
+    byte[] frame = frame(new byte[]{1, 2, 3, 4}, 0);
+    RelayFrame.readPayload(Arrays.copyOf(frame, frame.length + 1), 0);
+  }
+
+  private static byte[] frame(byte[] payload, long sequence) {
+    byte[] frame = new byte[RelayFrame.HEADER_SIZE + payload.length];
+    RelayFrame.writeHeader(frame, payload.length, sequence);
+    System.arraycopy(payload, 0, frame, RelayFrame.HEADER_SIZE, payload.length);
+    return frame;
+  }
+
+}
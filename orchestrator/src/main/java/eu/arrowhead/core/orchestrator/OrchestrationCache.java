@@ -0,0 +1,251 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.orchestrator;
+
+import eu.arrowhead.common.database.ArrowheadCloud;
+import eu.arrowhead.common.database.ArrowheadService;
+import eu.arrowhead.common.messages.OrchestrationForm;
+import eu.arrowhead.common.messages.PreferredProvider;
+import eu.arrowhead.common.messages.ServiceRequestForm;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.log4j.Logger;
+
+/**
+ * Caches the result of local (dynamic and Store based) orchestrations, so identical <tt>ServiceRequestForm</tt>s (e.g. from a fleet of identical
+ * consumers) do not have to go through the Service Registry and Authorization queries again. The cache key contains everything from the request
+ * form that can change the result: the requester system and cloud, the requested service (with interfaces and metadata), the orchestration flags, the
+ * preferred providers and the requested QoS.
+ * <p>
+ * Entries expire after {@link OrchestratorMain#ORCH_CACHE_TTL} milliseconds, and are evicted earlier when the Service Registry entries of their
+ * service, the intra-cloud authorization rights or the Orchestration Store changes. The cached <tt>OrchestrationForm</tt>s do not contain
+ * <tt>ArrowheadToken</tt>s, those are generated for every response.
+ */
+final class OrchestrationCache {
+
+  private static final ConcurrentHashMap<String, CachedResult> cache = new ConcurrentHashMap<>();
+  //Incremented on every invalidation, so results computed from data older than the invalidation are not put into the cache
+  private static final AtomicLong version = new AtomicLong();
+  private static final LongAdder hits = new LongAdder();
+  private static final LongAdder misses = new LongAdder();
+  private static final LongAdder evictions = new LongAdder();
+  private static final Logger log = Logger.getLogger(OrchestrationCache.class.getName());
+
+  private OrchestrationCache() throws AssertionError {
+    throw new AssertionError("OrchestrationCache is a non-instantiable class");
+  }
+
+  /**
+   * Looks up the cached orchestration result for the request form. If there is no valid result, the returned <tt>Lookup</tt> can be used to store
+   * the result of the orchestration, once it is compiled.
+   */
+  static Lookup lookup(ServiceRequestForm srf) {
+    if (OrchestratorMain.ORCH_CACHE_TTL <= 0) {
+      return new Lookup(null, 0, null);
+    }
+
+    long currentVersion = version.get();
+    String key = toKey(srf);
+    CachedResult cached = cache.get(key);
+    if (cached != null && cached.expiresAt <= System.currentTimeMillis()) {
+      if (cache.remove(key, cached)) {
+        evictions.increment();
+      }
+      cached = null;
+    }
+
+    if (cached == null) {
+      misses.increment();
+      return new Lookup(key, currentVersion, null);
+    }
+    hits.increment();
+    return new Lookup(key, currentVersion, copyForms(cached.forms));
+  }
+
+  /**
+   * Evicts every cached result which could contain a provider of the given service (including the default Store orchestrations, where the
+   * service is not fixed).
+   */
+  static void invalidateService(String serviceDefinition) {
+    version.incrementAndGet();
+    String normalized = serviceDefinition.toLowerCase();
+    int evicted = 0;
+    for (Iterator<CachedResult> it = cache.values().iterator(); it.hasNext(); ) {
+      CachedResult cached = it.next();
+      if (cached.serviceDefinitions.isEmpty() || cached.serviceDefinitions.contains(normalized)) {
+        it.remove();
+        evicted++;
+      }
+    }
+    evictions.add(evicted);
+    log.debug("invalidateService: " + evicted + " cached orchestration results evicted for " + serviceDefinition);
+  }
+
+  static void invalidateAll() {
+    version.incrementAndGet();
+    int evicted = cache.size();
+    cache.clear();
+    evictions.add(evicted);
+    log.debug("invalidateAll: " + evicted + " cached orchestration results evicted");
+  }
+
+  /**
+   * @return hit, miss and eviction counters, the hit ratio and the current size of the cache
+   */
+  static Map<String, Number> getStatistics() {
+    long hitCount = hits.sum();
+    long missCount = misses.sum();
+    Map<String, Number> statistics = new LinkedHashMap<>();
+    statistics.put("hits", hitCount);
+    statistics.put("misses", missCount);
+    statistics.put("hitRatio", hitCount + missCount == 0 ? 0 : (double) hitCount / (hitCount + missCount));
+    statistics.put("evictions", evictions.sum());
+    statistics.put("size", cache.size());
+    return statistics;
+  }
+
+  private static String toKey(ServiceRequestForm srf) {
+    StringBuilder key = new StringBuilder(srf.getRequesterSystem().toString());
+    ArrowheadCloud requesterCloud = srf.getRequesterCloud();
+    if (requesterCloud != null) {
+      key.append('|').append(requesterCloud.getOperator()).append(',').append(requesterCloud.getCloudName());
+    }
+    ArrowheadService service = srf.getRequestedService();
+    if (service != null) {
+      key.append('|').append(service.getServiceDefinition().toLowerCase());
+      if (service.getInterfaces() != null) {
+        key.append(new TreeSet<>(service.getInterfaces()));
+      }
+      if (service.getServiceMetadata() != null) {
+        key.append(new TreeMap<>(service.getServiceMetadata()));
+      }
+    }
+    key.append('|').append(new TreeMap<>(srf.getOrchestrationFlags()));
+    for (PreferredProvider provider : srf.getPreferredProviders()) {
+      key.append('|').append(provider.getProviderSystem());
+      if (provider.getProviderCloud() != null) {
+        key.append(',').append(provider.getProviderCloud().getOperator()).append(',').append(provider.getProviderCloud().getCloudName());
+      }
+    }
+    key.append('|').append(new TreeMap<>(srf.getRequestedQoS()));
+    return key.toString();
+  }
+
+  //The forms are mutated when the tokens are added, so every response gets its own copy (the service and provider objects are not modified)
+  private static List<OrchestrationForm> copyForms(List<OrchestrationForm> forms) {
+    List<OrchestrationForm> copies = new ArrayList<>(forms.size());
+    for (OrchestrationForm form : forms) {
+      copies.add(new OrchestrationForm(form.getService(), form.getProvider(), form.getServiceURI(), form.getInstruction(), null, null,
+                                       new ArrayList<>(form.getWarnings())));
+    }
+    return copies;
+  }
+
+  static final class Lookup {
+
+    private final String key;
+    private final long version;
+    private final List<OrchestrationForm> forms;
+
+    private Lookup(String key, long version, List<OrchestrationForm> forms) {
+      this.key = key;
+      this.version = version;
+      this.forms = forms;
+    }
+
+    boolean isHit() {
+      return forms != null;
+    }
+
+    /**
+     * @return a copy of the cached forms without tokens, or null on a cache miss
+     */
+    List<OrchestrationForm> getForms() {
+      return forms;
+    }
+
+    /**
+     * Caches the compiled (token-less) orchestration forms, unless the cache was invalidated since this lookup was made.
+     *
+     * @param fixedService false, if the orchestration was not for a specific service (default Store orchestration)
+     */
+    void store(List<OrchestrationForm> compiledForms, boolean fixedService) {
+      if (key == null || compiledForms.isEmpty()) {
+        return;
+      }
+
+      Set<String> serviceDefinitions = new HashSet<>();
+      if (fixedService) {
+        for (OrchestrationForm form : compiledForms) {
+          serviceDefinitions.add(form.getService().getServiceDefinition().toLowerCase());
+        }
+      }
+      if (cache.size() >= OrchestratorMain.ORCH_CACHE_SIZE) {
+        purge();
+      }
+      if (OrchestrationCache.version.get() == version) {
+        CachedResult result = new CachedResult(copyForms(compiledForms), Collections.unmodifiableSet(serviceDefinitions),
+                                               System.currentTimeMillis() + OrchestratorMain.ORCH_CACHE_TTL);
+        cache.put(key, result);
+        //An invalidation might have happened between the version check and the put
+        if (OrchestrationCache.version.get() != version) {
+          cache.remove(key, result);
+        }
+      }
+    }
+
+    //Removes the expired entries, and if the cache is still full, the entries closest to their expiry
+    private static void purge() {
+      long now = System.currentTimeMillis();
+      int before = cache.size();
+      cache.values().removeIf(cached -> cached.expiresAt <= now);
+      evictions.add(Math.max(0, before - cache.size()));
+
+      while (cache.size() >= OrchestratorMain.ORCH_CACHE_SIZE) {
+        Map.Entry<String, CachedResult> oldest = null;
+        for (Map.Entry<String, CachedResult> entry : cache.entrySet()) {
+          if (oldest == null || entry.getValue().expiresAt < oldest.getValue().expiresAt) {
+            oldest = entry;
+          }
+        }
+        if (oldest == null) {
+          return;
+        }
+        if (cache.remove(oldest.getKey(), oldest.getValue())) {
+          evictions.increment();
+        }
+      }
+    }
+  }
+
+  private static final class CachedResult {
+
+    private final List<OrchestrationForm> forms;
+    //Empty if the result belongs to a default Store orchestration, where any service change can modify the result
+    private final Set<String> serviceDefinitions;
+    private final long expiresAt;
+
+    private CachedResult(List<OrchestrationForm> forms, Set<String> serviceDefinitions, long expiresAt) {
+      this.forms = forms;
+      this.serviceDefinitions = serviceDefinitions;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+}
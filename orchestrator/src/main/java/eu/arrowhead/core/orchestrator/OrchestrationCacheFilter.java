@@ -0,0 +1,47 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.orchestrator;
+
+import javax.annotation.Priority;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.Response.Status.Family;
+import javax.ws.rs.ext.Provider;
+
+/*
+  Orchestration Store entries (and the systems/services/clouds they reference through the common mgmt APIs) are modified by the mgmt REST
+  interfaces of the Orchestrator. The cached orchestration results are evicted after each successful modifying request.
+ */
+@Provider
+@Priority(Priorities.USER)
+public class OrchestrationCacheFilter implements ContainerResponseFilter {
+
+  @Override
+  public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+    if (responseContext.getStatusInfo().getFamily() != Family.SUCCESSFUL) {
+      return;
+    }
+
+    String method = requestContext.getMethod();
+    String path = requestContext.getUriInfo().getPath();
+    if (!path.contains("mgmt")) {
+      return;
+    }
+    // The toggle of the default flag is a GET request, while the Store query is a PUT request on the base path
+    boolean modifying = method.equals(HttpMethod.GET) ? path.contains("mgmt/store/default/")
+                                                      : !(method.equals(HttpMethod.PUT) && path.endsWith("mgmt/store"));
+    if (modifying && (path.contains("mgmt/store") || path.contains("mgmt/services") || path.contains("mgmt/systems") || path
+        .contains("mgmt/clouds"))) {
+      OrchestrationCache.invalidateAll();
+    }
+  }
+
+}
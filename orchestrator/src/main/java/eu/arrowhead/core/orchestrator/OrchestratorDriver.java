@@ -13,7 +13,9 @@ import eu.arrowhead.common.database.ArrowheadService;
 import eu.arrowhead.common.database.ArrowheadSystem;
 import eu.arrowhead.common.database.OrchestrationStore;
 import eu.arrowhead.common.database.ServiceRegistryEntry;
+import eu.arrowhead.common.exception.ArrowheadException;
 import eu.arrowhead.common.exception.DataNotFoundException;
+import eu.arrowhead.common.messages.AuthorizedProvidersRequest;
 import eu.arrowhead.common.messages.GSDAnswer;
 import eu.arrowhead.common.messages.GSDRequestForm;
 import eu.arrowhead.common.messages.GSDResult;
@@ -30,6 +32,7 @@ import eu.arrowhead.common.messages.ServiceRequestForm;
 import eu.arrowhead.common.messages.TokenGenHelper;
 import eu.arrowhead.common.messages.TokenGenerationRequest;
 import eu.arrowhead.common.messages.TokenGenerationResponse;
+import eu.arrowhead.core.orchestrator.OrchestratorMetrics.Stage;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -37,6 +40,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import javax.ws.rs.core.GenericType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriBuilder;
@@ -70,14 +78,64 @@ final class OrchestratorDriver {
    * @throws DataNotFoundException if the Service Registry response list is empty
    */
   static List<ServiceRegistryEntry> queryServiceRegistry(ArrowheadService service, boolean metadataSearch, boolean pingProviders) {
-    // Compiling the URI and the request payload
+    long start = System.nanoTime();
+    try {
+      // Compiling the URI and the request payload
+      String srUri = UriBuilder.fromPath(OrchestratorMain.SR_BASE_URI).path("query").toString();
+      ServiceQueryForm queryForm = new ServiceQueryForm(service, pingProviders, metadataSearch);
+
+      // Sending the request, parsing the returned result
+      Response srResponse = Utility.sendRequest(srUri, "PUT", queryForm);
+      return toServiceRegistryEntries(srResponse, service);
+    } finally {
+      OrchestratorMetrics.record(Stage.SERVICE_REGISTRY, start);
+    }
+  }
+
+  /**
+   * Non-blocking version of {@link #queryServiceRegistry(ArrowheadService, boolean, boolean)}, so other requests (e.g. the Authorization prefetch)
+   * can be in flight while the Service Registry is working. The returned future completes exceptionally with the same exceptions the blocking
+   * version would throw.
+   */
+  static CompletableFuture<List<ServiceRegistryEntry>> queryServiceRegistryAsync(ArrowheadService service, boolean metadataSearch,
+                                                                                 boolean pingProviders) {
+    long start = System.nanoTime();
     String srUri = UriBuilder.fromPath(OrchestratorMain.SR_BASE_URI).path("query").toString();
     ServiceQueryForm queryForm = new ServiceQueryForm(service, pingProviders, metadataSearch);
 
-    // Sending the request, parsing the returned result
-    Response srResponse = Utility.sendRequest(srUri, "PUT", queryForm);
-    ServiceQueryResult serviceQueryResult = srResponse.readEntity(ServiceQueryResult.class);
+    return Utility.sendRequestAsync(srUri, "PUT", queryForm).thenApply(srResponse -> toServiceRegistryEntries(srResponse, service))
+                  .whenComplete((srList, error) -> OrchestratorMetrics.record(Stage.SERVICE_REGISTRY, start));
+  }
+
+  /**
+   * Sends several Service Registry queries in one request. The results are in the same order as the query forms.
+   */
+  static CompletableFuture<List<ServiceQueryResult>> queryServiceRegistryBatchAsync(List<ServiceQueryForm> queryForms) {
+    long start = System.nanoTime();
+    String srUri = UriBuilder.fromPath(OrchestratorMain.SR_BASE_URI).path("query").path("batch").toString();
+
+    return Utility.sendRequestAsync(srUri, "PUT", queryForms)
+                  .thenApply(srResponse -> srResponse.readEntity(new GenericType<List<ServiceQueryResult>>() {
+                  })).whenComplete((results, error) -> OrchestratorMetrics.record(Stage.SERVICE_REGISTRY, start));
+  }
+
+  private static List<ServiceRegistryEntry> toServiceRegistryEntries(Response srResponse, ArrowheadService service) {
+    return validateServiceQueryResult(srResponse.readEntity(ServiceQueryResult.class), service);
+  }
+
+  //Identical Service Registry queries have the same key, so they only have to be sent once in a batch
+  static String toServiceQueryKey(ServiceQueryForm queryForm) {
+    ArrowheadService service = queryForm.getService();
+    return service.getServiceDefinition() + "|" + new TreeSet<>(service.getInterfaces()) + "|" + new TreeMap<>(service.getServiceMetadata()) + "|"
+        + queryForm.isMetadataSearch() + "|" + queryForm.isPingProviders();
+  }
 
+  /**
+   * Removes the non-valid entries from the Service Registry query result.
+   *
+   * @throws DataNotFoundException if no valid entry remained
+   */
+  static List<ServiceRegistryEntry> validateServiceQueryResult(ServiceQueryResult serviceQueryResult, ArrowheadService service) {
     // If there are non-valid entries in the Service Registry response, we filter those out
     List<ServiceRegistryEntry> temp = new ArrayList<>();
     for (ServiceRegistryEntry entry : serviceQueryResult.getServiceQueryData()) {
@@ -112,19 +170,18 @@ final class OrchestratorDriver {
    */
 
   static Set<ArrowheadSystem> queryAuthorization(ArrowheadSystem consumer, ArrowheadService service, Set<ArrowheadSystem> providerSet) {
-    // Compiling the URI and the request payload
-    String uri = UriBuilder.fromPath(OrchestratorMain.getAuthControlUri()).path("intracloud").toString();
-    IntraCloudAuthRequest request = new IntraCloudAuthRequest(consumer, providerSet, service);
-
-    // Sending the request, parsing the returned result
-    Response response = Utility.sendRequest(uri, "PUT", request);
-    IntraCloudAuthResponse authResponse = response.readEntity(IntraCloudAuthResponse.class);
-    Set<ArrowheadSystem> authorizedSystems = new HashSet<>();
-    // Set view of HashMap ensures there are no duplicates between the keys (systems)
-    for (Map.Entry<ArrowheadSystem, Boolean> entry : authResponse.getAuthorizationMap().entrySet()) {
-      if (entry.getValue()) {
-        authorizedSystems.add(entry.getKey());
-      }
+    long start = System.nanoTime();
+    Set<ArrowheadSystem> authorizedSystems;
+    try {
+      // Compiling the URI and the request payload
+      String uri = UriBuilder.fromPath(OrchestratorMain.getAuthControlUri()).path("intracloud").toString();
+      IntraCloudAuthRequest request = new IntraCloudAuthRequest(consumer, providerSet, service);
+
+      // Sending the request, parsing the returned result
+      Response response = Utility.sendRequest(uri, "PUT", request);
+      authorizedSystems = toAuthorizedSystems(response);
+    } finally {
+      OrchestratorMetrics.record(Stage.AUTHORIZATION, start);
     }
 
     // Throwing exception if none of the providers are authorized for this consumer/service pair.
@@ -138,6 +195,88 @@ final class OrchestratorDriver {
     return authorizedSystems;
   }
 
+  /**
+   * Asks the Authorization Core System for every provider <tt>ArrowheadSystem</tt> the consumer is authorized to consume the service from. Since no
+   * provider list is needed for this request, it can be sent at the same time as the Service Registry query.
+   *
+   * @return a future of the authorized provider <tt>ArrowheadSystem</tt>s (can be empty)
+   */
+  static CompletableFuture<Set<ArrowheadSystem>> queryAuthorizedProvidersAsync(ArrowheadSystem consumer, ArrowheadService service) {
+    long start = System.nanoTime();
+    String uri = UriBuilder.fromPath(OrchestratorMain.getAuthControlUri()).path("intracloud").path("providers").toString();
+    AuthorizedProvidersRequest request = new AuthorizedProvidersRequest(consumer, service);
+
+    return Utility.sendRequestAsync(uri, "PUT", request).thenApply(OrchestratorDriver::toAuthorizedSystems)
+                  .whenComplete((authorizedSystems, error) -> OrchestratorMetrics.record(Stage.AUTHORIZATION, start));
+  }
+
+  /**
+   * Sends several intra-cloud authorization checks to the Authorization Core System in one request.
+   *
+   * @return a future of the authorized provider <tt>ArrowheadSystem</tt>s for each request, in the same order (the sets can be empty, and null
+   *     means the consumer of the request is not in the authorization database)
+   */
+  static CompletableFuture<List<Set<ArrowheadSystem>>> queryAuthorizationBatchAsync(List<IntraCloudAuthRequest> requests) {
+    long start = System.nanoTime();
+    String uri = UriBuilder.fromPath(OrchestratorMain.getAuthControlUri()).path("intracloud").path("batch").toString();
+
+    return Utility.sendRequestAsync(uri, "PUT", requests).thenApply(OrchestratorDriver::toAuthorizedSystemsList)
+                  .whenComplete((authorizedSystems, error) -> OrchestratorMetrics.record(Stage.AUTHORIZATION, start));
+  }
+
+  /**
+   * Bulk version of {@link #queryAuthorizedProvidersAsync(ArrowheadSystem, ArrowheadService)}.
+   *
+   * @return a future of the authorized provider <tt>ArrowheadSystem</tt>s for each request, in the same order (the sets can be empty, and null
+   *     means the consumer of the request is not in the authorization database)
+   */
+  static CompletableFuture<List<Set<ArrowheadSystem>>> queryAuthorizedProvidersBatchAsync(List<AuthorizedProvidersRequest> requests) {
+    long start = System.nanoTime();
+    String uri = UriBuilder.fromPath(OrchestratorMain.getAuthControlUri()).path("intracloud").path("providers").path("batch").toString();
+
+    return Utility.sendRequestAsync(uri, "PUT", requests).thenApply(OrchestratorDriver::toAuthorizedSystemsList)
+                  .whenComplete((authorizedSystems, error) -> OrchestratorMetrics.record(Stage.AUTHORIZATION, start));
+  }
+
+  private static List<Set<ArrowheadSystem>> toAuthorizedSystemsList(Response response) {
+    List<IntraCloudAuthResponse> authResponses = response.readEntity(new GenericType<List<IntraCloudAuthResponse>>() {
+    });
+    List<Set<ArrowheadSystem>> authorizedSystemsList = new ArrayList<>(authResponses.size());
+    for (IntraCloudAuthResponse authResponse : authResponses) {
+      authorizedSystemsList.add(authResponse == null ? null : toAuthorizedSystems(authResponse));
+    }
+    return authorizedSystemsList;
+  }
+
+  private static Set<ArrowheadSystem> toAuthorizedSystems(Response response) {
+    return toAuthorizedSystems(response.readEntity(IntraCloudAuthResponse.class));
+  }
+
+  private static Set<ArrowheadSystem> toAuthorizedSystems(IntraCloudAuthResponse authResponse) {
+    Set<ArrowheadSystem> authorizedSystems = new HashSet<>();
+    // Set view of HashMap ensures there are no duplicates between the keys (systems)
+    for (Map.Entry<ArrowheadSystem, Boolean> entry : authResponse.getAuthorizationMap().entrySet()) {
+      if (entry.getValue()) {
+        authorizedSystems.add(entry.getKey());
+      }
+    }
+    return authorizedSystems;
+  }
+
+  /**
+   * Waits for the result of an asynchronous core system request, and rethrows the original (usually <tt>ArrowheadException</tt>) failure.
+   */
+  static <T> T await(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new ArrowheadException(e.getCause().getMessage(), e.getCause());
+    }
+  }
+
   /**
    * Filters out all the entries of the given <tt>ServiceRegistryEntry</tt> list, which does not contain a preferred local <tt>ArrowheadSystem</tt>.
    * This method is called when the <i>onlyPreferred</i> orchestration flag is set to true.
@@ -280,32 +419,13 @@ final class OrchestratorDriver {
 
     // If true, the Orchestration Store was queried for default entries, meaning the service is different for each store entry
     if (srf.getRequestedService() == null) {
-      for (OrchestrationStore entry : entryList) {
-        try {
-          // Querying the Service Registry for the current service
-          List<ServiceRegistryEntry> serviceList = OrchestratorDriver
-              .queryServiceRegistry(entry.getService(), orchestrationFlags.get("metadataSearch"), orchestrationFlags.get("pingProviders"));
-          // Compiling the systems that provide the current service + filtering service list based on providers (to set port and metadata later)
-          for (ServiceRegistryEntry srEntry : serviceList) {
-            providerSystemsFromSR.add(srEntry.getProvider());
-            if (srEntry.getProvider().equals(entry.getProviderSystem())) {
-              srList.add(srEntry);
-            }
-          }
-
-          // Querying the Authorization to see if the provider system is authorized for this servicing or not
-          providerSystemsFromAuth = OrchestratorDriver
-              .queryAuthorization(entry.getConsumer(), entry.getService(), Collections.singleton(entry.getProviderSystem()));
-
-          // Remove the Store entry from the list, if the SR or Auth crosscheck fails
-          if (!providerSystemsFromSR.contains(entry.getProviderSystem()) || !providerSystemsFromAuth.contains(entry.getProviderSystem())) {
-            toRemove.add(entry);
-          }
-        } catch (DataNotFoundException e) {
-          toRemove.add(entry);
-        }
+      try {
+        srList = crossCheckDefaultStoreEntries(entryList, orchestrationFlags);
+      } catch (ArrowheadException e) {
+        // E.g. the SR or Authorization is an older version without the batch endpoints, so every entry is checked with its own queries
+        log.warn("crossCheckStoreEntries: batch cross-check failed, checking the entries one by one: " + e.getMessage());
+        srList = crossCheckDefaultStoreEntriesOneByOne(entryList, orchestrationFlags);
       }
-      entryList.removeAll(toRemove);
     }
     // Otherwise the service is fixed and we only need 1 SR and Auth query
     else {
@@ -366,6 +486,98 @@ final class OrchestratorDriver {
     return entryList;
   }
 
+  /**
+   * Cross-checks the default Store entries (where the service is different for each entry) with 1 Service Registry and 1 Authorization batch
+   * request. The entries failing the cross-check are removed from the list.
+   *
+   * @return the Service Registry entries of the remaining Store entries
+   */
+  private static List<ServiceRegistryEntry> crossCheckDefaultStoreEntries(List<OrchestrationStore> entryList,
+                                                                          Map<String, Boolean> orchestrationFlags) {
+    List<ServiceRegistryEntry> srList = new ArrayList<>();
+    if (entryList.isEmpty()) {
+      return srList;
+    }
+
+    // Collecting the distinct Service Registry queries, and 1 Authorization check for each entry
+    Map<String, Integer> srQueryIndexes = new HashMap<>();
+    List<ServiceQueryForm> srQueries = new ArrayList<>();
+    List<Integer> entrySrIndexes = new ArrayList<>();
+    List<IntraCloudAuthRequest> authRequests = new ArrayList<>();
+    for (OrchestrationStore entry : entryList) {
+      ServiceQueryForm queryForm = new ServiceQueryForm(entry.getService(), orchestrationFlags.get("pingProviders"),
+                                                        orchestrationFlags.get("metadataSearch"));
+      entrySrIndexes.add(srQueryIndexes.computeIfAbsent(toServiceQueryKey(queryForm), key -> {
+        srQueries.add(queryForm);
+        return srQueries.size() - 1;
+      }));
+      authRequests.add(new IntraCloudAuthRequest(entry.getConsumer(), Collections.singleton(entry.getProviderSystem()), entry.getService()));
+    }
+
+    // The 2 requests are in flight at the same time
+    CompletableFuture<List<Set<ArrowheadSystem>>> authFuture = queryAuthorizationBatchAsync(authRequests);
+    List<ServiceQueryResult> srResults = await(queryServiceRegistryBatchAsync(srQueries));
+    List<Set<ArrowheadSystem>> authResults = await(authFuture);
+
+    List<OrchestrationStore> toRemove = new ArrayList<>();
+    for (int i = 0; i < entryList.size(); i++) {
+      OrchestrationStore entry = entryList.get(i);
+      boolean providerFromSR = false;
+      for (ServiceRegistryEntry srEntry : srResults.get(entrySrIndexes.get(i)).getServiceQueryData()) {
+        // Filtering the service list based on providers (to set port and metadata later)
+        if (srEntry.getProvider().equals(entry.getProviderSystem()) && Utility.isBeanValid(srEntry)) {
+          srList.add(srEntry);
+          providerFromSR = true;
+        }
+      }
+
+      // Remove the Store entry from the list, if the SR or Auth crosscheck fails (or the consumer is not in the authorization database)
+      Set<ArrowheadSystem> authorized = authResults.get(i);
+      if (!providerFromSR || authorized == null || !authorized.contains(entry.getProviderSystem())) {
+        toRemove.add(entry);
+      }
+    }
+    entryList.removeAll(toRemove);
+    return srList;
+  }
+
+  //Cross-checks the default Store entries with separate Service Registry and Authorization queries for each entry
+  private static List<ServiceRegistryEntry> crossCheckDefaultStoreEntriesOneByOne(List<OrchestrationStore> entryList,
+                                                                                 Map<String, Boolean> orchestrationFlags) {
+    List<ServiceRegistryEntry> srList = new ArrayList<>();
+    List<OrchestrationStore> toRemove = new ArrayList<>();
+    Set<ArrowheadSystem> providerSystemsFromSR = new HashSet<>();
+    Set<ArrowheadSystem> providerSystemsFromAuth;
+
+    for (OrchestrationStore entry : entryList) {
+      try {
+        // Querying the Service Registry for the current service
+        List<ServiceRegistryEntry> serviceList = OrchestratorDriver
+            .queryServiceRegistry(entry.getService(), orchestrationFlags.get("metadataSearch"), orchestrationFlags.get("pingProviders"));
+        // Compiling the systems that provide the current service + filtering service list based on providers (to set port and metadata later)
+        for (ServiceRegistryEntry srEntry : serviceList) {
+          providerSystemsFromSR.add(srEntry.getProvider());
+          if (srEntry.getProvider().equals(entry.getProviderSystem())) {
+            srList.add(srEntry);
+          }
+        }
+
+        // Querying the Authorization to see if the provider system is authorized for this servicing or not
+        providerSystemsFromAuth = OrchestratorDriver
+            .queryAuthorization(entry.getConsumer(), entry.getService(), Collections.singleton(entry.getProviderSystem()));
+
+        // Remove the Store entry from the list, if the SR or Auth crosscheck fails
+        if (!providerSystemsFromSR.contains(entry.getProviderSystem()) || !providerSystemsFromAuth.contains(entry.getProviderSystem())) {
+          toRemove.add(entry);
+        }
+      } catch (DataNotFoundException e) {
+        toRemove.add(entry);
+      }
+    }
+    entryList.removeAll(toRemove);
+    return srList;
+  }
+
   /**
    * Initiates the Global Service Discovery process by sending a request to the Gatekeeper Core System.
    *
@@ -532,18 +744,32 @@ final class OrchestratorDriver {
     /* Getting a list of service - providers pairs, where the service contains the security - token metadata. This ensures that token generation is
        invoked the minimum amount of times */
     List<TokenGenHelper> tokenGenHelpers = TokenGenHelper.convertOfList(ofList);
+    if (tokenGenHelpers.isEmpty()) {
+      return ofList;
+    }
+
+    // The token generation requests for the different services are independent from each other, so they are sent out at the same time
+    long start = System.nanoTime();
+    List<CompletableFuture<TokenGenerationResponse>> tokenFutures = new ArrayList<>();
     for (TokenGenHelper helper : tokenGenHelpers) {
       // Compiling the request payload
       TokenGenerationRequest tokenRequest = new TokenGenerationRequest(srf.getRequesterSystem(), srf.getRequesterCloud(), helper.getProviders(),
                                                                        helper.getService(), 0);
       // Sending the token generation request, parsing the response
-      Response authResponse = Utility.sendRequest(OrchestratorMain.getTokenGenUri(), "PUT", tokenRequest);
-      TokenGenerationResponse tokenResponse = authResponse.readEntity(TokenGenerationResponse.class);
+      tokenFutures.add(Utility.sendRequestAsync(OrchestratorMain.getTokenGenUri(), "PUT", tokenRequest)
+                              .thenApply(authResponse -> authResponse.readEntity(TokenGenerationResponse.class)));
+    }
 
-      if (tokenResponse != null && tokenResponse.getTokenData() != null && tokenResponse.getTokenData().size() > 0) {
-        TokenGenHelper.updateFormsWithTokens(ofList, tokenResponse.getTokenData());
-        tokenCount = tokenResponse.getTokenData().size();
+    try {
+      for (CompletableFuture<TokenGenerationResponse> tokenFuture : tokenFutures) {
+        TokenGenerationResponse tokenResponse = await(tokenFuture);
+        if (tokenResponse != null && tokenResponse.getTokenData() != null && tokenResponse.getTokenData().size() > 0) {
+          TokenGenHelper.updateFormsWithTokens(ofList, tokenResponse.getTokenData());
+          tokenCount += tokenResponse.getTokenData().size();
+        }
       }
+    } finally {
+      OrchestratorMetrics.record(Stage.TOKEN_GENERATION, start);
     }
 
     if (tokenCount > 0) {
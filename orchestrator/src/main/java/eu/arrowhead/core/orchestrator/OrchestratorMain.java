@@ -28,6 +28,8 @@ public class OrchestratorMain extends ArrowheadMain implements NeedsCoreSystemSe
   public static TimerTask getServicesTask;
 
   static boolean USE_GATEKEEPER = true;
+  static int ORCH_CACHE_TTL;
+  static int ORCH_CACHE_SIZE;
   static String SR_BASE_URI;
   private static String AUTH_CONTROL_URI;
   private static String TOKEN_GEN_URI;
@@ -36,6 +38,11 @@ public class OrchestratorMain extends ArrowheadMain implements NeedsCoreSystemSe
   private static final String GET_CORE_SYSTEM_URLS_ERROR_MESSAGE = "The Orchestrator core system has not acquired the addresses of the "
       + "Authorization and Gatekeeper core systems yet from the Service Registry. Wait 15 seconds and retry your request";
 
+  {
+    ORCH_CACHE_TTL = props.getIntProperty("orchestration_cache_ttl", 10000);
+    ORCH_CACHE_SIZE = props.getIntProperty("orchestration_cache_size", 10000);
+  }
+
   private OrchestratorMain(String[] args) {
     String[] packages = {"eu.arrowhead.common", "eu.arrowhead.core.orchestrator"};
     init(CoreSystem.ORCHESTRATOR, args, null, packages);
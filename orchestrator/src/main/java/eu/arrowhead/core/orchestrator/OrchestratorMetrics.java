@@ -0,0 +1,80 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.orchestrator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the latency of the individual orchestration stages (since the Orchestrator started), so it can be seen which core system hop
+ * dominates the end-to-end orchestration time. Exposed through {@link eu.arrowhead.core.orchestrator.api.MetricsApi}.
+ */
+public final class OrchestratorMetrics {
+
+  public enum Stage {
+    SERVICE_REGISTRY, AUTHORIZATION, QOS, TOKEN_GENERATION, DYNAMIC_ORCHESTRATION, BATCH_ORCHESTRATION
+  }
+
+  private static final Map<Stage, StageTimer> timers = new LinkedHashMap<>();
+
+  static {
+    for (Stage stage : Stage.values()) {
+      timers.put(stage, new StageTimer());
+    }
+  }
+
+  private OrchestratorMetrics() throws AssertionError {
+    throw new AssertionError("OrchestratorMetrics is a non-instantiable class");
+  }
+
+  /**
+   * @param startNanos the {@link System#nanoTime()} value taken when the stage started
+   */
+  static void record(Stage stage, long startNanos) {
+    long elapsed = System.nanoTime() - startNanos;
+    StageTimer timer = timers.get(stage);
+    timer.count.increment();
+    timer.totalNanos.add(elapsed);
+    timer.maxNanos.accumulate(elapsed);
+  }
+
+  /**
+   * @return stage name -> (count, average and maximum latency in milliseconds)
+   */
+  public static Map<String, Map<String, Number>> getSnapshot() {
+    Map<String, Map<String, Number>> snapshot = new LinkedHashMap<>();
+    for (Map.Entry<Stage, StageTimer> entry : timers.entrySet()) {
+      long count = entry.getValue().count.sum();
+      long totalNanos = entry.getValue().totalNanos.sum();
+      Map<String, Number> values = new LinkedHashMap<>();
+      values.put("count", count);
+      values.put("averageMillis", count == 0 ? 0 : (double) TimeUnit.NANOSECONDS.toMicros(totalNanos / count) / 1000);
+      values.put("maxMillis", (double) TimeUnit.NANOSECONDS.toMicros(entry.getValue().maxNanos.get()) / 1000);
+      snapshot.put(entry.getKey().name(), values);
+    }
+    return snapshot;
+  }
+
+  /**
+   * @return the hit/miss/eviction statistics of the orchestration result cache
+   */
+  public static Map<String, Number> getCacheStatistics() {
+    return OrchestrationCache.getStatistics();
+  }
+
+  private static final class StageTimer {
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+  }
+
+}
@@ -11,13 +11,16 @@ import eu.arrowhead.common.database.ArrowheadSystem;
 import eu.arrowhead.common.messages.OrchestrationResponse;
 import eu.arrowhead.common.messages.ServiceRequestForm;
 import eu.arrowhead.common.web.ArrowheadSystemApi;
+import java.util.List;
 import javax.validation.Valid;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
@@ -53,25 +56,41 @@ public class OrchestratorResource {
   public Response orchestrationProcess(@Valid ServiceRequestForm srf) {
     srf.validateCrossParameterConstraints();
 
-    OrchestrationResponse orchResponse;
-    if (srf.getOrchestrationFlags().getOrDefault("externalServiceRequest", false)) {
-      log.info("Received an externalServiceRequest.");
-      orchResponse = OrchestratorService.externalServiceRequest(srf);
-    } else if (srf.getOrchestrationFlags().getOrDefault("triggerInterCloud", false)) {
-      log.info("Received a triggerInterCloud request.");
-      orchResponse = OrchestratorService.triggerInterCloud(srf);
-    } else if (!srf.getOrchestrationFlags().getOrDefault("overrideStore", false)) { //overrideStore == false
-      log.info("Received an orchestrationFromStore request.");
-      orchResponse = OrchestratorService.orchestrationFromStore(srf);
-    } else {
-      log.info("Received a dynamicOrchestration request.");
-      orchResponse = OrchestratorService.dynamicOrchestration(srf);
-    }
+    OrchestrationResponse orchResponse = OrchestratorService.orchestrate(srf);
 
     log.info("The orchestration process returned with " + orchResponse.getResponse().size() + " orchestration forms.");
     return Response.status(Status.OK).entity(orchResponse).build();
   }
 
+  /**
+   * Orchestrates a list of <tt>ServiceRequestForm</tt>s in one request. Identical Service Registry queries and Authorization lookups are only done
+   * once for the whole batch.
+   *
+   * @return the OrchestrationResponses in the same order as the request forms. The response of a failed orchestration is empty.
+   */
+  @POST
+  @Path("batch")
+  public List<OrchestrationResponse> batchOrchestrationProcess(@Valid List<ServiceRequestForm> srfs) {
+    List<OrchestrationResponse> responses = OrchestratorService.batchOrchestration(srfs);
+    log.info("The batch orchestration process returned " + responses.size() + " orchestration responses.");
+    return responses;
+  }
+
+  /**
+   * Evicts the cached orchestration results. The Service Registry and the Authorization Core Systems call this method when service offerings or
+   * authorization rights change. If the service definition is given, only the results which can contain this service are evicted.
+   */
+  @DELETE
+  @Path("cache")
+  public Response invalidateCache(@QueryParam("serviceDefinition") String serviceDefinition) {
+    if (serviceDefinition == null) {
+      OrchestrationCache.invalidateAll();
+    } else {
+      OrchestrationCache.invalidateService(serviceDefinition);
+    }
+    return Response.ok().build();
+  }
+
   /**
    * Default Store orchestration process offered on a GET request, where the requester only has the consumer system ID.
    */
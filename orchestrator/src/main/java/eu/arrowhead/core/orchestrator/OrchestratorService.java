@@ -13,21 +13,28 @@ import eu.arrowhead.common.database.OrchestrationStore;
 import eu.arrowhead.common.database.ServiceRegistryEntry;
 import eu.arrowhead.common.exception.ArrowheadException;
 import eu.arrowhead.common.exception.DataNotFoundException;
+import eu.arrowhead.common.messages.AuthorizedProvidersRequest;
 import eu.arrowhead.common.messages.GSDResult;
 import eu.arrowhead.common.messages.ICNResult;
 import eu.arrowhead.common.messages.OrchestrationForm;
 import eu.arrowhead.common.messages.OrchestrationResponse;
 import eu.arrowhead.common.messages.OrchestratorWarnings;
 import eu.arrowhead.common.messages.PreferredProvider;
+import eu.arrowhead.common.messages.ServiceQueryForm;
+import eu.arrowhead.common.messages.ServiceQueryResult;
 import eu.arrowhead.common.messages.ServiceRequestForm;
+import eu.arrowhead.core.orchestrator.OrchestratorMetrics.Stage;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import javax.ws.rs.core.Response.Status;
 import org.apache.log4j.Logger;
 
@@ -46,6 +53,25 @@ final class OrchestratorService {
     throw new AssertionError("OrchestratorService is a non-instantiable class");
   }
 
+  /**
+   * Initiates the correct orchestration process determined by the orchestration flags in the <tt>ServiceRequestForm</tt>.
+   */
+  static OrchestrationResponse orchestrate(ServiceRequestForm srf) {
+    if (srf.getOrchestrationFlags().getOrDefault("externalServiceRequest", false)) {
+      log.info("Received an externalServiceRequest.");
+      return externalServiceRequest(srf);
+    } else if (srf.getOrchestrationFlags().getOrDefault("triggerInterCloud", false)) {
+      log.info("Received a triggerInterCloud request.");
+      return triggerInterCloud(srf);
+    } else if (!srf.getOrchestrationFlags().getOrDefault("overrideStore", false)) { //overrideStore == false
+      log.info("Received an orchestrationFromStore request.");
+      return orchestrationFromStore(srf);
+    } else {
+      log.info("Received a dynamicOrchestration request.");
+      return dynamicOrchestration(srf);
+    }
+  }
+
   /**
    * Represents the regular orchestration process where the requester <tt>ArrowheadSystem</tt> is in the local Cloud. In this process the
    * <i>Orchestration Store</i> is ignored, and the Orchestrator first tries to find a provider for the requested service in the local Cloud. If that
@@ -54,19 +80,61 @@ final class OrchestratorService {
    * @throws DataNotFoundException if no local provider <tt>ArrowheadSystem</tt> is found and <i>enableInterCloud</i> is false
    */
   static OrchestrationResponse dynamicOrchestration(ServiceRequestForm srf) {
+    long start = System.nanoTime();
+    try {
+      return doDynamicOrchestration(srf);
+    } finally {
+      OrchestratorMetrics.record(Stage.DYNAMIC_ORCHESTRATION, start);
+    }
+  }
+
+  private static OrchestrationResponse doDynamicOrchestration(ServiceRequestForm srf) {
+    Map<String, Boolean> orchestrationFlags = srf.getOrchestrationFlags();
+
+    // Identical requests can reuse a recent result, only the tokens have to be generated again
+    OrchestrationCache.Lookup cacheLookup = OrchestrationCache.lookup(srf);
+    if (cacheLookup.isHit()) {
+      log.info("dynamicOrchestration returns a cached result with " + cacheLookup.getForms().size() + " service providers");
+      return new OrchestrationResponse(OrchestratorDriver.generateAuthTokens(srf, cacheLookup.getForms()));
+    }
+
+    /*
+     * The Service Registry query and the Authorization rights of the requester are independent from each other, so both requests are sent out
+     * at the same time. This way the orchestration only has to wait for the slower one of the two, instead of their sum.
+     */
+    CompletableFuture<Set<ArrowheadSystem>> authFuture = OrchestratorDriver
+        .queryAuthorizedProvidersAsync(srf.getRequesterSystem(), srf.getRequestedService());
+    CompletableFuture<List<ServiceRegistryEntry>> srFuture = OrchestratorDriver
+        .queryServiceRegistryAsync(srf.getRequestedService(), orchestrationFlags.get("metadataSearch"), orchestrationFlags.get("pingProviders"));
+    return finishDynamicOrchestration(srf, srFuture, authFuture, cacheLookup);
+  }
+
+  /**
+   * The part of the dynamic orchestration after the Service Registry and Authorization requests were sent out. Shared by the single and the batch
+   * orchestration.
+   */
+  private static OrchestrationResponse finishDynamicOrchestration(ServiceRequestForm srf, CompletableFuture<List<ServiceRegistryEntry>> srFuture,
+                                                                  CompletableFuture<Set<ArrowheadSystem>> authFuture,
+                                                                  OrchestrationCache.Lookup cacheLookup) {
     Map<String, Boolean> orchestrationFlags = srf.getOrchestrationFlags();
 
     try {
-      // Querying the Service Registry
-      List<ServiceRegistryEntry> srList = OrchestratorDriver
-          .queryServiceRegistry(srf.getRequestedService(), orchestrationFlags.get("metadataSearch"), orchestrationFlags.get("pingProviders"));
+      List<ServiceRegistryEntry> srList = OrchestratorDriver.await(srFuture);
 
       // Cross-checking the SR response with the Authorization
       Set<ArrowheadSystem> providerSystems = new HashSet<>();
       for (ServiceRegistryEntry entry : srList) {
         providerSystems.add(entry.getProvider());
       }
-      providerSystems = OrchestratorDriver.queryAuthorization(srf.getRequesterSystem(), srf.getRequestedService(), providerSystems);
+      try {
+        providerSystems.retainAll(OrchestratorDriver.await(authFuture));
+      } catch (DataNotFoundException ex) {
+        throw ex;
+      } catch (ArrowheadException ex) {
+        // E.g. the Authorization System is an older version without the prefetch endpoint, so we fall back to the provider list based query
+        log.warn("Authorization prefetch failed, using the provider list based query: " + ex.getMessage());
+        providerSystems = OrchestratorDriver.queryAuthorization(srf.getRequesterSystem(), srf.getRequestedService(), providerSystems);
+      }
 
       /*
        * The Authorization cross-check only returns the provider systems where the requester system is authorized to consume the service. We filter
@@ -98,7 +166,9 @@ final class OrchestratorService {
 
       //placeholder step
       if (orchestrationFlags.getOrDefault("enableQoS", false)) {
+        long qosStart = System.nanoTime();
         srList = OrchestratorDriver.doQoSVerification(srList);
+        OrchestratorMetrics.record(Stage.QOS, qosStart);
       }
 
       // If matchmaking is requested, we pick out 1 ServiceRegistryEntry entity from the list. Preferred Systems (2nd arg) have higher priority
@@ -115,7 +185,7 @@ final class OrchestratorService {
 
       // All the filtering is done, need to compile the response
       log.info("dynamicOrchestration finished with " + srList.size() + " service providers");
-      return compileOrchestrationResponse(srList, srf, null);
+      return compileOrchestrationResponse(srList, srf, null, cacheLookup);
     }
     /*
      * If the Intra-Cloud orchestration fails somewhere (SR, Auth, filtering, matchmaking) we catch the exception, because Inter-Cloud
@@ -151,6 +221,12 @@ final class OrchestratorService {
    * @throws DataNotFoundException if all the queried Orchestration Store entry options were exhausted and none were found operational
    */
   static OrchestrationResponse orchestrationFromStore(ServiceRequestForm srf) {
+    OrchestrationCache.Lookup cacheLookup = OrchestrationCache.lookup(srf);
+    if (cacheLookup.isHit()) {
+      log.info("orchestrationFromStore returns a cached result with " + cacheLookup.getForms().size() + " orchestration forms");
+      return new OrchestrationResponse(OrchestratorDriver.generateAuthTokens(srf, cacheLookup.getForms()));
+    }
+
     // Querying the Orchestration Store for matching entries
     List<OrchestrationStore> entryList = OrchestratorDriver.queryOrchestrationStore(srf.getRequesterSystem(), srf.getRequestedService());
     int storeSize = entryList.size();
@@ -168,7 +244,7 @@ final class OrchestratorService {
         instructions.add(entry.getInstruction());
       }
 
-      return compileOrchestrationResponse(srList, srf, instructions);
+      return compileOrchestrationResponse(srList, srf, instructions, cacheLookup);
     }
     // In case of non-default store orchestration (service is fixed), we go one by one on the entries until we find one operational
     else {
@@ -176,7 +252,8 @@ final class OrchestratorService {
         // If the entry is intra-cloud, we can return with it, since it already passed the SR/Auth cross-checking
         if (entry.getProviderCloud() == null) {
           ServiceRegistryEntry service = new ServiceRegistryEntry(entry.getService(), entry.getProviderSystem(), entry.getServiceURI());
-          return compileOrchestrationResponse(Collections.singletonList(service), srf, Collections.singletonList(entry.getInstruction()));
+          return compileOrchestrationResponse(Collections.singletonList(service), srf, Collections.singletonList(entry.getInstruction()),
+                                              cacheLookup);
         } else {
           try {
             /*
@@ -289,7 +366,116 @@ final class OrchestratorService {
 
     // Compiling the orchestration response
     log.info("externalServiceRequest finished with " + srList.size() + " service providers");
-    return compileOrchestrationResponse(srList, srf, null);
+    return compileOrchestrationResponse(srList, srf, null, null);
+  }
+
+  /**
+   * Orchestrates many <tt>ServiceRequestForm</tt>s at once (e.g. when a lot of consumer systems start at the same time). The dynamic orchestrations
+   * of the batch share their Service Registry and Authorization lookups: every distinct Service Registry query is sent in one bulk request, and
+   * the Authorization rights are only looked up once for every distinct consumer-service pair. Other orchestration types are done one by one.
+   *
+   * @return the orchestration responses in the same order as the request forms. The response of a failed orchestration is empty.
+   */
+  static List<OrchestrationResponse> batchOrchestration(List<ServiceRequestForm> srfs) {
+    long start = System.nanoTime();
+    OrchestrationResponse[] responses = new OrchestrationResponse[srfs.size()];
+
+    // Dynamic orchestrations without a cached result, by their position in the batch
+    Map<Integer, OrchestrationCache.Lookup> pending = new LinkedHashMap<>();
+    for (int i = 0; i < srfs.size(); i++) {
+      ServiceRequestForm srf = srfs.get(i);
+      try {
+        srf.validateCrossParameterConstraints();
+        Map<String, Boolean> orchestrationFlags = srf.getOrchestrationFlags();
+        if (!orchestrationFlags.getOrDefault("externalServiceRequest", false) && !orchestrationFlags.getOrDefault("triggerInterCloud", false)
+            && orchestrationFlags.getOrDefault("overrideStore", false)) {
+          OrchestrationCache.Lookup cacheLookup = OrchestrationCache.lookup(srf);
+          if (cacheLookup.isHit()) {
+            responses[i] = new OrchestrationResponse(OrchestratorDriver.generateAuthTokens(srf, cacheLookup.getForms()));
+          } else {
+            pending.put(i, cacheLookup);
+          }
+        } else {
+          responses[i] = orchestrate(srf);
+        }
+      } catch (ArrowheadException ex) {
+        log.info("batchOrchestration: orchestration " + i + " failed with: " + ex.getMessage());
+        responses[i] = new OrchestrationResponse();
+      }
+    }
+
+    // Collecting the distinct Service Registry queries and consumer-service pairs
+    Map<String, Integer> srQueryIndexes = new HashMap<>();
+    List<ServiceQueryForm> srQueries = new ArrayList<>();
+    Map<String, Integer> authRequestIndexes = new HashMap<>();
+    List<AuthorizedProvidersRequest> authRequests = new ArrayList<>();
+    for (Integer i : pending.keySet()) {
+      ServiceRequestForm srf = srfs.get(i);
+      Map<String, Boolean> orchestrationFlags = srf.getOrchestrationFlags();
+      ServiceQueryForm queryForm = new ServiceQueryForm(srf.getRequestedService(), orchestrationFlags.get("pingProviders"),
+                                                        orchestrationFlags.get("metadataSearch"));
+      srQueryIndexes.computeIfAbsent(OrchestratorDriver.toServiceQueryKey(queryForm), key -> {
+        srQueries.add(queryForm);
+        return srQueries.size() - 1;
+      });
+      authRequestIndexes.computeIfAbsent(srf.getRequesterSystem().toString() + "|" + srf.getRequestedService().getServiceDefinition(), key -> {
+        authRequests.add(new AuthorizedProvidersRequest(srf.getRequesterSystem(), srf.getRequestedService()));
+        return authRequests.size() - 1;
+      });
+    }
+
+    // Every consumer-service pair is authorized with 1 request, running while the Service Registry is queried
+    CompletableFuture<List<Set<ArrowheadSystem>>> authFuture = authRequests.isEmpty() ? CompletableFuture.completedFuture(new ArrayList<>())
+                                                                                        : OrchestratorDriver
+                                                                                            .queryAuthorizedProvidersBatchAsync(authRequests);
+
+    List<ServiceQueryResult> srResults = null;
+    if (!srQueries.isEmpty()) {
+      srResults = OrchestratorDriver.await(OrchestratorDriver.queryServiceRegistryBatchAsync(srQueries).exceptionally(error -> {
+        // E.g. the Service Registry is an older version without the batch endpoint
+        log.warn("batchOrchestration: Service Registry batch query failed, using single queries: " + error.getMessage());
+        return null;
+      }));
+    }
+
+    for (Map.Entry<Integer, OrchestrationCache.Lookup> entry : pending.entrySet()) {
+      ServiceRequestForm srf = srfs.get(entry.getKey());
+      Map<String, Boolean> orchestrationFlags = srf.getOrchestrationFlags();
+      CompletableFuture<List<ServiceRegistryEntry>> srFuture;
+      if (srResults == null) {
+        srFuture = OrchestratorDriver
+            .queryServiceRegistryAsync(srf.getRequestedService(), orchestrationFlags.get("metadataSearch"), orchestrationFlags.get("pingProviders"));
+      } else {
+        ServiceQueryForm queryForm = new ServiceQueryForm(srf.getRequestedService(), orchestrationFlags.get("pingProviders"),
+                                                          orchestrationFlags.get("metadataSearch"));
+        ServiceQueryResult srResult = srResults.get(srQueryIndexes.get(OrchestratorDriver.toServiceQueryKey(queryForm)));
+        // Every orchestration filters its own copy of the shared result
+        srFuture = CompletableFuture.completedFuture(new ServiceQueryResult(new ArrayList<>(srResult.getServiceQueryData()))).thenApply(
+            result -> OrchestratorDriver.validateServiceQueryResult(result, srf.getRequestedService()));
+      }
+      int authIndex = authRequestIndexes.get(srf.getRequesterSystem().toString() + "|" + srf.getRequestedService().getServiceDefinition());
+      // If the batch fails (e.g. older Authorization version), finishDynamicOrchestration falls back to the single Authorization query
+      CompletableFuture<Set<ArrowheadSystem>> pairAuthFuture = authFuture.thenApply(authorizedLists -> {
+        Set<ArrowheadSystem> authorized = authorizedLists.get(authIndex);
+        if (authorized == null) {
+          // The same failure as the 404 of the single Authorization query
+          throw new DataNotFoundException("Consumer System is not in the authorization database. " + srf.getRequesterSystem().getSystemName());
+        }
+        return authorized;
+      });
+
+      try {
+        responses[entry.getKey()] = finishDynamicOrchestration(srf, srFuture, pairAuthFuture, entry.getValue());
+      } catch (ArrowheadException ex) {
+        log.info("batchOrchestration: orchestration " + entry.getKey() + " failed with: " + ex.getMessage());
+        responses[entry.getKey()] = new OrchestrationResponse();
+      }
+    }
+
+    OrchestratorMetrics.record(Stage.BATCH_ORCHESTRATION, start);
+    log.info("batchOrchestration finished " + srfs.size() + " orchestrations with " + srQueries.size() + " distinct Service Registry queries and "
+                 + authRequests.size() + " distinct Authorization lookups");
+    return Arrays.asList(responses);
   }
 
   /**
@@ -299,9 +485,10 @@ final class OrchestratorService {
    * @param srf The <tt>ServiceRequestForm</tt> from the requester <tt>ArrowheadSystem</tt>, which is needed in case of token generation is
    *     requested.
    * @param instructions Optional additional information, which can be passed back to the requester <tt>ArrowheadSystem</tt>
+   * @param cacheLookup If not null, the compiled forms (without the tokens) are stored in the {@link OrchestrationCache}
    */
   private static OrchestrationResponse compileOrchestrationResponse(List<ServiceRegistryEntry> srList, ServiceRequestForm srf,
-                                                                    List<String> instructions) {
+                                                                    List<String> instructions, OrchestrationCache.Lookup cacheLookup) {
     // Create an OrchestrationForm for every provider
     List<OrchestrationForm> ofList = new ArrayList<>();
     for (ServiceRegistryEntry entry : srList) {
@@ -328,6 +515,10 @@ final class OrchestratorService {
       }
     }
 
+    if (cacheLookup != null) {
+      cacheLookup.store(ofList, srf.getRequestedService() != null);
+    }
+
     // Generate the ArrowheadTokens if it is requested based on the service metadata (modifies the ofList)
     ofList = OrchestratorDriver.generateAuthTokens(srf, ofList);
 
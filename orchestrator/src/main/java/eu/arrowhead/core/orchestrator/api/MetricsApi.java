@@ -0,0 +1,41 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.orchestrator.api;
+
+import eu.arrowhead.core.orchestrator.OrchestratorMetrics;
+import java.util.Map;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+@Path("orchestrator/mgmt/metrics")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class MetricsApi {
+
+  /**
+   * Returns the number of executions, the average and the maximum latency of the orchestration stages.
+   */
+  @GET
+  @Path("stages")
+  public Map<String, Map<String, Number>> getStageTimings() {
+    return OrchestratorMetrics.getSnapshot();
+  }
+
+  /**
+   * Returns the hit ratio, the eviction count and the current size of the orchestration result cache.
+   */
+  @GET
+  @Path("cache")
+  public Map<String, Number> getCacheStatistics() {
+    return OrchestratorMetrics.getCacheStatistics();
+  }
+
+}
@@ -34,6 +34,27 @@ public class OrchestratorACF extends AccessControlFilter {
     if (requestTarget.contains("mgmt")) {
       // Only the local System Operator can use these methods
       return clientCN.equalsIgnoreCase("sysop." + serverFields[1]);
+    } else if (requestTarget.contains("orchestration/cache")) {
+      // Cache invalidation requests can only come from the local Service Registry and Authorization (or the System Operator)
+      return serverFields[1].equalsIgnoreCase(clientFields[1]) && (clientFields[0].equalsIgnoreCase("service_registry_sql") || clientFields[0]
+          .equalsIgnoreCase("authorization") || clientFields[0].equalsIgnoreCase("sysop"));
+    } else if (requestTarget.endsWith("orchestration/batch")) {
+      // Batches are allowed from the local cloud, but every requester system has to match the common name (except for the System Operator)
+      if (!serverFields[1].equalsIgnoreCase(clientFields[1])) {
+        return false;
+      }
+      if (clientFields[0].equalsIgnoreCase("sysop")) {
+        return true;
+      }
+      for (ServiceRequestForm srf : Utility.fromJson(requestJson, ServiceRequestForm[].class)) {
+        String consumerName = srf.getRequesterSystem().getSystemName();
+        if (srf.getOrchestrationFlags().getOrDefault("externalServiceRequest", false) || (!consumerName.equalsIgnoreCase(clientFields[0])
+            && !consumerName.replaceAll("_", "").equalsIgnoreCase(clientFields[0]))) {
+          log.error("Batch orchestration contains a request form which does not belong to " + clientCN);
+          return false;
+        }
+      }
+      return true;
     } else if (requestTarget.contains("store")) {
       // Only requests from the local cloud are allowed
       return serverFields[1].equalsIgnoreCase(clientFields[1]);
@@ -111,6 +111,8 @@ DROP TABLE IF EXISTS `event_filter`;
 /*!40101 SET character_set_client = utf8 */;
 CREATE TABLE `event_filter` (
   `id` bigint(20) NOT NULL,
+  `batch_linger` int(11) DEFAULT NULL,
+  `batch_size` int(11) DEFAULT NULL,
   `end_date` datetime(6) DEFAULT NULL,
   `event_type` varchar(255) NOT NULL,
   `match_metadata` char(1) DEFAULT NULL,
@@ -8,10 +8,13 @@
 package eu.arrowhead.core.serviceregistry_sql;
 
 
+import eu.arrowhead.common.database.ArrowheadSystem;
 import eu.arrowhead.common.database.ServiceRegistryEntry;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
 import java.util.TimerTask;
+import java.util.stream.Collectors;
 import org.apache.log4j.Logger;
 
 class PingProvidersTask extends TimerTask {
@@ -28,12 +31,14 @@ class PingProvidersTask extends TimerTask {
   private int pingAndRemoveServices() {
     List<ServiceRegistryEntry> srEntries = ServiceRegistryResource.dm.getAll(ServiceRegistryEntry.class, null);
 
-    boolean connectionIsAlive;
+    List<ArrowheadSystem> providers = srEntries.stream().map(ServiceRegistryEntry::getProvider).collect(Collectors.toList());
+    Set<String> liveProviders = ProviderProber.getLiveProviders(providers);
+
     int deleteCount = 0;
     for (ServiceRegistryEntry entry : srEntries) {
-      connectionIsAlive = RegistryUtils.pingHost(entry.getProvider().getAddress(), entry.getProvider().getPort(), ServiceRegistryMain.PING_TIMEOUT);
-      if (!connectionIsAlive) {
+      if (!liveProviders.contains(ProviderProber.toKey(entry.getProvider()))) {
         ServiceRegistryResource.dm.delete(entry);
+        ServiceRegistryIndex.remove(entry);
         deleteCount++;
       }
     }
@@ -0,0 +1,270 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.serviceregistry_sql;
+
+import eu.arrowhead.common.database.ArrowheadSystem;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.apache.log4j.Logger;
+
+/**
+ * Checks whether service providers accept TCP connections, probing many providers concurrently on a single
+ * {@link Selector} instead of opening one blocking socket at a time. At most {@link ServiceRegistryMain#PING_CONCURRENCY}
+ * connection attempts are in flight at once, and each attempt is abandoned after {@link ServiceRegistryMain#PING_TIMEOUT}
+ * milliseconds.
+ * <p>
+ * Host names are resolved on a small thread pool, in parallel with the probes of the already resolved providers.
+ * <p>
+ * Results are cached for {@link ServiceRegistryMain#PING_CACHE_TTL} milliseconds, so queries with the
+ * <i>pingProviders</i> flag and the {@link PingProvidersTask} share the outcome of recent probes. Concurrent callers
+ * needing the same provider share one probe too: the first one runs it, the others wait for its result.
+ */
+final class ProviderProber {
+
+  //Parallel DNS lookups of the provider host names
+  private static final int RESOLVER_THREADS = 8;
+
+  private static final ConcurrentHashMap<String, Liveness> livenessCache = new ConcurrentHashMap<>();
+  private static final ConcurrentHashMap<String, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+  private static final ExecutorService resolver = Executors.newFixedThreadPool(RESOLVER_THREADS, runnable -> {
+    Thread thread = new Thread(runnable, "provider-resolver");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private static final Logger log = Logger.getLogger(ProviderProber.class.getName());
+
+  private ProviderProber() throws AssertionError {
+    throw new AssertionError("ProviderProber is a non-instantiable class");
+  }
+
+  /**
+   * @return the keys (see {@link #toKey(ArrowheadSystem)}) of the given providers that are reachable
+   */
+  static Set<String> getLiveProviders(Collection<ArrowheadSystem> providers) {
+    Set<String> alive = new HashSet<>();
+    Map<String, ArrowheadSystem> toProbe = new HashMap<>();
+    //The probes this call waits for: its own ones, and the ones already started by other callers
+    Map<String, CompletableFuture<Boolean>> awaited = new HashMap<>();
+    long now = System.currentTimeMillis();
+    for (ArrowheadSystem provider : providers) {
+      String key = toKey(provider);
+      Liveness cached = livenessCache.get(key);
+      if (cached != null && now - cached.checkedAt < ServiceRegistryMain.PING_CACHE_TTL) {
+        if (cached.alive) {
+          alive.add(key);
+        }
+      } else if (!awaited.containsKey(key)) {
+        CompletableFuture<Boolean> own = new CompletableFuture<>();
+        CompletableFuture<Boolean> running = inFlight.putIfAbsent(key, own);
+        if (running == null) {
+          toProbe.put(key, provider);
+          awaited.put(key, own);
+        } else {
+          awaited.put(key, running);
+        }
+      }
+    }
+
+    if (!toProbe.isEmpty()) {
+      Map<String, Boolean> results = new HashMap<>();
+      try {
+        results = probe(toProbe);
+      } finally {
+        long checkedAt = System.currentTimeMillis();
+        for (String key : toProbe.keySet()) {
+          boolean result = results.getOrDefault(key, false);
+          //The cache is filled before the probe is removed, so a new caller finds one of them
+          livenessCache.put(key, new Liveness(result, checkedAt));
+          inFlight.remove(key).complete(result);
+        }
+      }
+    }
+    for (Map.Entry<String, CompletableFuture<Boolean>> probe : awaited.entrySet()) {
+      if (probe.getValue().join()) {
+        alive.add(probe.getKey());
+      }
+    }
+    livenessCache.values().removeIf(liveness -> now - liveness.checkedAt >= ServiceRegistryMain.PING_CACHE_TTL);
+
+    return alive;
+  }
+
+  static String toKey(ArrowheadSystem provider) {
+    return provider.getAddress() + ":" + provider.getPort();
+  }
+
+  private static Map<String, Boolean> probe(Map<String, ArrowheadSystem> targets) {
+    Map<String, Boolean> results = new HashMap<>();
+    //Filled by the resolver threads, the address is null if the DNS lookup failed
+    BlockingQueue<Resolved> resolved = new LinkedBlockingQueue<>();
+    Queue<Resolved> pending = new ArrayDeque<>();
+
+    try (Selector selector = Selector.open()) {
+      for (Map.Entry<String, ArrowheadSystem> target : targets.entrySet()) {
+        resolver.execute(() -> {
+          resolved.add(new Resolved(target.getKey(), resolve(target.getValue())));
+          selector.wakeup();
+        });
+      }
+
+      while (results.size() < targets.size()) {
+        //Start new connection attempts while we are below the concurrency limit
+        resolved.drainTo(pending);
+        while (!pending.isEmpty() && selector.keys().size() < ServiceRegistryMain.PING_CONCURRENCY) {
+          startProbe(selector, pending.poll(), results);
+        }
+        if (results.size() == targets.size()) {
+          break;
+        }
+
+        long now = System.currentTimeMillis();
+        long nextDeadline = Long.MAX_VALUE;
+        for (SelectionKey selectionKey : selector.keys()) {
+          nextDeadline = Math.min(nextDeadline, ((Probe) selectionKey.attachment()).deadline);
+        }
+        //Without connection attempts in flight only a finished DNS lookup (waking up the selector) can make progress
+        selector.select(nextDeadline == Long.MAX_VALUE ? 0 : Math.max(1, nextDeadline - now));
+
+        Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+        while (selected.hasNext()) {
+          SelectionKey selectionKey = selected.next();
+          selected.remove();
+          Probe probe = (Probe) selectionKey.attachment();
+          boolean connected;
+          try {
+            connected = ((SocketChannel) selectionKey.channel()).finishConnect();
+          } catch (IOException e) {
+            connected = false; // Connection refused or unreachable
+          }
+          results.put(probe.key, connected);
+          close(selectionKey);
+        }
+
+        //Timed out connection attempts
+        now = System.currentTimeMillis();
+        for (SelectionKey selectionKey : selector.keys()) {
+          Probe probe = (Probe) selectionKey.attachment();
+          if (selectionKey.isValid() && now >= probe.deadline) {
+            results.put(probe.key, false);
+            close(selectionKey);
+          }
+        }
+        //Cancelled keys are only removed from the key set during the next selection operation. Keys selected here
+        //are still ready (connecting channels stay ready until finishConnect), so the next select picks them up again.
+        selector.selectNow();
+        selector.selectedKeys().clear();
+      }
+    } catch (IOException e) {
+      log.error("ProviderProber could not use its Selector: " + e.getMessage(), e);
+    }
+
+    //Anything without a verdict (e.g. because of a selector failure) is considered unreachable
+    for (String key : targets.keySet()) {
+      results.putIfAbsent(key, false);
+    }
+    return results;
+  }
+
+  //Runs on the resolver threads
+  private static InetSocketAddress resolve(ArrowheadSystem provider) {
+    try {
+      return new InetSocketAddress(InetAddress.getByName(provider.getAddress()), provider.getPort());
+    } catch (UnknownHostException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  private static void startProbe(Selector selector, Resolved target, Map<String, Boolean> results) {
+    String key = target.key;
+    InetSocketAddress address = target.address;
+    if (address == null) {
+      results.put(key, false); // Failed DNS lookup
+      return;
+    }
+    SocketChannel channel = null;
+    try {
+      channel = SocketChannel.open();
+      channel.configureBlocking(false);
+      if (channel.connect(address)) {
+        results.put(key, true);
+        channel.close();
+      } else {
+        channel.register(selector, SelectionKey.OP_CONNECT, new Probe(key, System.currentTimeMillis() + ServiceRegistryMain.PING_TIMEOUT));
+      }
+    } catch (IOException | RuntimeException e) {
+      results.put(key, false);
+      if (channel != null) {
+        try {
+          channel.close();
+        } catch (IOException ignored) {
+        }
+      }
+    }
+  }
+
+  private static void close(SelectionKey selectionKey) {
+    selectionKey.cancel();
+    try {
+      selectionKey.channel().close();
+    } catch (IOException ignored) {
+    }
+  }
+
+  private static final class Resolved {
+
+    private final String key;
+    private final InetSocketAddress address;
+
+    private Resolved(String key, InetSocketAddress address) {
+      this.key = key;
+      this.address = address;
+    }
+  }
+
+  private static final class Probe {
+
+    private final String key;
+    private final long deadline;
+
+    private Probe(String key, long deadline) {
+      this.key = key;
+      this.deadline = deadline;
+    }
+  }
+
+  private static final class Liveness {
+
+    private final boolean alive;
+    private final long checkedAt;
+
+    private Liveness(boolean alive, long checkedAt) {
+      this.alive = alive;
+      this.checkedAt = checkedAt;
+    }
+  }
+
+}
@@ -7,52 +7,31 @@
 
 package eu.arrowhead.core.serviceregistry_sql;
 
-import eu.arrowhead.common.database.ArrowheadService;
+import eu.arrowhead.common.database.ArrowheadSystem;
 import eu.arrowhead.common.database.ServiceRegistryEntry;
-import java.io.IOException;
-import java.net.InetSocketAddress;
-import java.net.Socket;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 class RegistryUtils {
 
-  static boolean pingHost(String host, int port, int timeout) {
-    try (Socket socket = new Socket()) {
-      socket.connect(new InetSocketAddress(host, port), timeout);
-      return true;
-    } catch (IOException e) {
-      return false; // Either timeout or unreachable or failed DNS lookup.
-    }
-  }
-
-  static void filterOnVersion(List<ServiceRegistryEntry> fetchedList, int targetVersion) {
-    fetchedList.removeIf(current -> current.getVersion() != targetVersion);
-  }
-
-  static void filterOnVersion(List<ServiceRegistryEntry> fetchedList, int minVersion, int maxVersion) {
-    fetchedList.removeIf(current -> current.getVersion() < minVersion || current.getVersion() > maxVersion);
-  }
-
-  static void filterOnMeta(List<ServiceRegistryEntry> fetchedList, Map<String, String> metadata) {
-    fetchedList.removeIf(current -> !metadata.equals(current.getProvidedService().getServiceMetadata()));
-  }
-
   static void filterOnPing(List<ServiceRegistryEntry> fetchedList) {
-    fetchedList.removeIf(current -> !pingHost(current.getProvider().getAddress(), current.getProvider().getPort(),
-                                              ServiceRegistryMain.PING_TIMEOUT));
+    List<ArrowheadSystem> providers = fetchedList.stream().map(ServiceRegistryEntry::getProvider).collect(Collectors.toList());
+    Set<String> liveProviders = ProviderProber.getLiveProviders(providers);
+    fetchedList.removeIf(current -> !liveProviders.contains(ProviderProber.toKey(current.getProvider())));
   }
 
-  static void filterOnInterfaces(List<ServiceRegistryEntry> fetchedList, ArrowheadService givenService) {
-    List<ServiceRegistryEntry> toBeRemoved = new ArrayList<>();
-    for (ServiceRegistryEntry entry : fetchedList) {
-      if (Collections.disjoint(entry.getProvidedService().getInterfaces(), givenService.getInterfaces())) {
-        toBeRemoved.add(entry);
-      }
+  //Pings the providers of several query results at once, so every provider is only pinged once
+  static void filterAllOnPing(List<List<ServiceRegistryEntry>> fetchedLists) {
+    if (fetchedLists.isEmpty()) {
+      return;
+    }
+    List<ArrowheadSystem> providers = fetchedLists.stream().flatMap(List::stream).map(ServiceRegistryEntry::getProvider)
+                                                  .collect(Collectors.toList());
+    Set<String> liveProviders = ProviderProber.getLiveProviders(providers);
+    for (List<ServiceRegistryEntry> fetchedList : fetchedLists) {
+      fetchedList.removeIf(current -> !liveProviders.contains(ProviderProber.toKey(current.getProvider())));
     }
-    fetchedList.removeAll(toBeRemoved);
   }
 
 }
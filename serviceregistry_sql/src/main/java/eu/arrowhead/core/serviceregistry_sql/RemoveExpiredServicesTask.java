@@ -9,54 +9,61 @@ package eu.arrowhead.core.serviceregistry_sql;
 
 import eu.arrowhead.common.DatabaseManager;
 import eu.arrowhead.common.database.ServiceRegistryEntry;
-import java.time.Duration;
+import eu.arrowhead.common.misc.ExpiryScheduler;
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.time.ZoneId;
+import java.util.Optional;
+import java.util.function.Consumer;
 import org.apache.log4j.Logger;
 
-class RemoveExpiredServicesTask extends TimerTask {
+/*
+  Removes the service offerings at their endOfValidity. The ServiceRegistryIndex registers the endOfValidity of every entry it holds in a
+  timing wheel, so the service_registry table is not scanned, and there is no Timer per entry. The wheel only exists if "ttl_scheduled" is
+  true.
+ */
+final class RemoveExpiredServicesTask implements Consumer<Long> {
 
+  private static final ExpiryScheduler expiry = new ExpiryScheduler("service-expiry");
   private static final DatabaseManager dm = DatabaseManager.getInstance();
   private static final Logger log = Logger.getLogger(RemoveExpiredServicesTask.class.getName());
 
-  private ServiceRegistryEntry entry;
+  private RemoveExpiredServicesTask() {
+  }
+
+  //Called once at startup, before the index is loaded
+  static void start() {
+    expiry.start(new RemoveExpiredServicesTask());
+  }
 
-  RemoveExpiredServicesTask() {
+  //Schedules (or moves) the removal of a saved entry
+  static void schedule(ServiceRegistryEntry entry) {
+    LocalDateTime endOfValidity = entry.getEndOfValidity();
+    expiry.schedule(entry.getId(), endOfValidity == null ? null : endOfValidity.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
   }
 
-  private RemoveExpiredServicesTask(ServiceRegistryEntry entry) {
-    this.entry = entry;
+  static void cancel(ServiceRegistryEntry entry) {
+    expiry.cancel(entry.getId());
+  }
+
+  static void cancelAll() {
+    expiry.cancelAll();
   }
 
   @Override
-  public void run() {
-    int deleteCount = 0;
-    if (entry == null) {
-      List<ServiceRegistryEntry> srList = dm.getAll(ServiceRegistryEntry.class, null);
-
-      for (ServiceRegistryEntry entry : srList) {
-        if (entry.getEndOfValidity() != null) {
-          if (LocalDateTime.now().isAfter(entry.getEndOfValidity())) {
-            dm.delete(entry);
-            deleteCount++;
-          } else {
-            long ttl = Duration.between(LocalDateTime.now(), entry.getEndOfValidity()).toMillis();
-            if (ttl < (ServiceRegistryMain.TTL_INTERVAL * 60 * 1000 + 200)) { // minutes -> milliseconds conversion + 200 extra ms to avoid edge cases
-              TimerTask removeTask = new RemoveExpiredServicesTask(entry);
-              Timer timer = new Timer();
-              timer.schedule(removeTask, ttl);
-            }
-          }
-        }
-      }
-    } else {
-      dm.delete(entry);
-      deleteCount++;
+  public void accept(Long id) {
+    //The entry might have been removed or updated directly in the database since it was scheduled
+    Optional<ServiceRegistryEntry> stored = dm.get(ServiceRegistryEntry.class, id);
+    if (!stored.isPresent() || stored.get().getEndOfValidity() == null) {
+      return;
     }
-
-    log.debug("Removed " + deleteCount + " expired entries from SR database at " + LocalDateTime.now());
+    ServiceRegistryEntry entry = stored.get();
+    if (entry.getEndOfValidity().isAfter(LocalDateTime.now())) {
+      schedule(entry);
+      return;
+    }
+    dm.delete(entry);
+    ServiceRegistryIndex.remove(entry);
+    log.debug("Removed expired entry " + id + " from SR database at " + LocalDateTime.now());
   }
 
 }
@@ -89,6 +89,7 @@ public class ServiceRegistryApi {
     for (ServiceRegistryEntry entry : providedServices) {
       dm.delete(entry);
     }
+    ServiceRegistryIndex.clear();
     log.info("removeAllServices returns successfully");
     return Response.status(Status.OK).build();
   }
@@ -224,6 +225,8 @@ public class ServiceRegistryApi {
         () -> new DataNotFoundException("ServiceRegistryEntry not found with id: " + id));
     entry.updateEntryWith(updatedEntry);
     entry = dm.merge(entry);
+    //The update can move the entry to another service definition, or change shared service/provider fields
+    ServiceRegistryIndex.reload();
     log.info("updateServiceRegistryEntry successfully returns.");
     return Response.ok().entity(entry).build();
   }
@@ -243,6 +246,7 @@ public class ServiceRegistryApi {
   public Response deleteServiceRegistryEntry(@PathParam("entryId") long entryId) {
     return dm.get(ServiceRegistryEntry.class, entryId).map(entry -> {
       dm.delete(entry);
+      ServiceRegistryIndex.remove(entry);
       log.info(entry.toString() + " deleted");
       return Response.ok().build();
     }).<DataNotFoundException>orElseThrow(() -> {
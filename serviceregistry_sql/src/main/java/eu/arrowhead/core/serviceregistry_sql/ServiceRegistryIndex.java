@@ -0,0 +1,237 @@
+/*
+ * This work is part of the Productive 4.0 innovation project, which receives grants from the
+ * European Commissions H2020 research and innovation programme, ECSEL Joint Undertaking
+ * (project no. 737459), the free state of Saxony, the German Federal Ministry of Education and
+ * national funding authorities from involved countries.
+ */
+
+package eu.arrowhead.core.serviceregistry_sql;
+
+import eu.arrowhead.common.DatabaseManager;
+import eu.arrowhead.common.database.ArrowheadService;
+import eu.arrowhead.common.database.ServiceRegistryEntry;
+import eu.arrowhead.common.misc.OrchestrationCacheNotifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.log4j.Logger;
+
+/**
+ * Read-optimized, in-memory copy of the <i>service_registry</i> table, used to answer {@link
+ * ServiceRegistryResource#queryRegistry} without touching the database.
+ * <p>
+ * Entries are grouped by service definition into immutable buckets, which hold secondary indexes on interface,
+ * version and metadata key-value pairs. Readers never lock: every mutation rebuilds the affected bucket from the
+ * database and swaps it in atomically. Every code path that writes the <i>service_registry</i> table has to notify
+ * this class, otherwise queries will return stale data until the next {@link #reload()}. The index also registers the endOfValidity of the
+ * entries for the {@link RemoveExpiredServicesTask}.
+ * <p>
+ * Every change is forwarded to the Orchestrator too, so it can evict its cached orchestration results.
+ */
+final class ServiceRegistryIndex {
+
+  private static final ConcurrentHashMap<String, ServiceBucket> buckets = new ConcurrentHashMap<>();
+  private static final Object writeLock = new Object();
+  private static final DatabaseManager dm = DatabaseManager.getInstance();
+  private static final Logger log = Logger.getLogger(ServiceRegistryIndex.class.getName());
+
+  private ServiceRegistryIndex() throws AssertionError {
+    throw new AssertionError("ServiceRegistryIndex is a non-instantiable class");
+  }
+
+  //Drops the whole index and loads every Service Registry entry from the database
+  static void reload() {
+    synchronized (writeLock) {
+      List<ServiceRegistryEntry> entries = dm.getAll(ServiceRegistryEntry.class, null);
+      Map<String, List<ServiceRegistryEntry>> grouped = new HashMap<>();
+      for (ServiceRegistryEntry entry : entries) {
+        grouped.computeIfAbsent(entry.getProvidedService().getServiceDefinition(), k -> new ArrayList<>()).add(entry);
+      }
+
+      RemoveExpiredServicesTask.cancelAll();
+      for (ServiceRegistryEntry entry : entries) {
+        RemoveExpiredServicesTask.schedule(entry);
+      }
+      buckets.keySet().retainAll(grouped.keySet());
+      for (Map.Entry<String, List<ServiceRegistryEntry>> group : grouped.entrySet()) {
+        buckets.put(group.getKey(), new ServiceBucket(group.getValue()));
+      }
+      log.info("Service Registry index loaded with " + entries.size() + " entries.");
+    }
+    OrchestrationCacheNotifier.allChanged();
+  }
+
+  //Reloads the entries of a single service definition (interfaces and metadata are shared by all providers of a service)
+  static void refresh(String serviceDefinition) {
+    synchronized (writeLock) {
+      HashMap<String, Object> restrictionMap = new HashMap<>();
+      restrictionMap.put("serviceDefinition", serviceDefinition);
+      ArrowheadService service = dm.get(ArrowheadService.class, restrictionMap);
+      if (service == null) {
+        buckets.remove(serviceDefinition);
+        return;
+      }
+
+      restrictionMap.clear();
+      restrictionMap.put("providedService", service);
+      List<ServiceRegistryEntry> entries = dm.getAll(ServiceRegistryEntry.class, restrictionMap);
+      for (ServiceRegistryEntry entry : entries) {
+        RemoveExpiredServicesTask.schedule(entry);
+      }
+      if (entries.isEmpty()) {
+        buckets.remove(serviceDefinition);
+      } else {
+        buckets.put(serviceDefinition, new ServiceBucket(entries));
+      }
+    }
+    OrchestrationCacheNotifier.serviceChanged(serviceDefinition);
+  }
+
+  static void remove(ServiceRegistryEntry entry) {
+    if (entry.getId() == null || entry.getProvidedService() == null) {
+      return;
+    }
+    String serviceDefinition = entry.getProvidedService().getServiceDefinition();
+    synchronized (writeLock) {
+      RemoveExpiredServicesTask.cancel(entry);
+      ServiceBucket bucket = buckets.get(serviceDefinition);
+      if (bucket != null) {
+        ServiceBucket reduced = bucket.without(entry.getId());
+        if (reduced.entries.isEmpty()) {
+          buckets.remove(serviceDefinition);
+        } else {
+          buckets.put(serviceDefinition, reduced);
+        }
+      }
+    }
+    OrchestrationCacheNotifier.serviceChanged(serviceDefinition);
+  }
+
+  static void clear() {
+    synchronized (writeLock) {
+      buckets.clear();
+      RemoveExpiredServicesTask.cancelAll();
+    }
+    OrchestrationCacheNotifier.allChanged();
+  }
+
+  /**
+   * @return every entry of the service definition (shared with the index, must not be modified)
+   */
+  static List<ServiceRegistryEntry> getEntries(String serviceDefinition) {
+    ServiceBucket bucket = buckets.get(serviceDefinition);
+    return bucket == null ? Collections.emptyList() : new ArrayList<>(bucket.entries.values());
+  }
+
+  /**
+   * Returns the entries providing the given service definition through at least one of the given interfaces, with
+   * a version inside [minVersion, maxVersion] and (if metadata is not null) exactly the given metadata.
+   * <p>
+   * The returned list is a new, modifiable list, but the entries themselves are shared with the index and must not be
+   * modified by the caller.
+   *
+   * @return null if the service definition is not in the registry at all
+   */
+  static List<ServiceRegistryEntry> query(ArrowheadService service, int minVersion, int maxVersion, Map<String, String> metadata) {
+    ServiceBucket bucket = buckets.get(service.getServiceDefinition());
+    if (bucket == null) {
+      return null;
+    }
+    //An empty version range matches nothing (and would make subMap throw)
+    if (minVersion > maxVersion) {
+      return new ArrayList<>();
+    }
+
+    Set<Long> candidates = new HashSet<>();
+    for (String serviceInterface : service.getInterfaces()) {
+      candidates.addAll(bucket.byInterface.getOrDefault(serviceInterface, Collections.emptySet()));
+    }
+
+    if (minVersion > bucket.byVersion.firstKey() || maxVersion < bucket.byVersion.lastKey()) {
+      Set<Long> inVersionRange = new HashSet<>();
+      for (Set<Long> ids : bucket.byVersion.subMap(minVersion, true, maxVersion, true).values()) {
+        inVersionRange.addAll(ids);
+      }
+      candidates.retainAll(inVersionRange);
+    }
+
+    if (metadata != null) {
+      for (Map.Entry<String, String> pair : metadata.entrySet()) {
+        if (candidates.isEmpty()) {
+          break;
+        }
+        candidates.retainAll(bucket.byMetadata.getOrDefault(metadataKey(pair.getKey(), pair.getValue()), Collections.emptySet()));
+      }
+      candidates.removeIf(id -> bucket.entries.get(id).getProvidedService().getServiceMetadata().size() != metadata.size());
+    }
+
+    List<ServiceRegistryEntry> result = new ArrayList<>(candidates.size());
+    for (Long id : candidates) {
+      result.add(bucket.entries.get(id));
+    }
+    return result;
+  }
+
+  private static String metadataKey(String key, String value) {
+    return key + "=" + value;
+  }
+
+  private static final class ServiceBucket {
+
+    private final Map<Long, ServiceRegistryEntry> entries;
+    private final Map<String, Set<Long>> byInterface = new HashMap<>();
+    private final NavigableMap<Integer, Set<Long>> byVersion = new TreeMap<>();
+    private final Map<String, Set<Long>> byMetadata = new HashMap<>();
+
+    private ServiceBucket(List<ServiceRegistryEntry> loadedEntries) {
+      this(toDetachedMap(loadedEntries));
+    }
+
+    private ServiceBucket(Map<Long, ServiceRegistryEntry> entries) {
+      this.entries = entries;
+      for (Map.Entry<Long, ServiceRegistryEntry> mapEntry : entries.entrySet()) {
+        Long id = mapEntry.getKey();
+        ServiceRegistryEntry entry = mapEntry.getValue();
+        for (String serviceInterface : entry.getProvidedService().getInterfaces()) {
+          byInterface.computeIfAbsent(serviceInterface, k -> new HashSet<>()).add(id);
+        }
+        byVersion.computeIfAbsent(entry.getVersion(), k -> new HashSet<>()).add(id);
+        for (Map.Entry<String, String> pair : entry.getProvidedService().getServiceMetadata().entrySet()) {
+          byMetadata.computeIfAbsent(metadataKey(pair.getKey(), pair.getValue()), k -> new HashSet<>()).add(id);
+        }
+      }
+    }
+
+    private ServiceBucket without(Long id) {
+      Map<Long, ServiceRegistryEntry> remaining = new HashMap<>(entries);
+      remaining.remove(id);
+      return new ServiceBucket(remaining);
+    }
+
+    /*
+      Entries loaded in the same Hibernate session share their ArrowheadService instance, but the metadata map of the
+      service is filled from the entry specific metadata column. Every entry gets its own service copy before that.
+     */
+    private static Map<Long, ServiceRegistryEntry> toDetachedMap(List<ServiceRegistryEntry> loadedEntries) {
+      Map<Long, ServiceRegistryEntry> entries = new HashMap<>();
+      for (ServiceRegistryEntry entry : loadedEntries) {
+        ArrowheadService service = entry.getProvidedService();
+        entry.setProvidedService(new ArrowheadService(service.getServiceDefinition(), new HashSet<>(service.getInterfaces()), new HashMap<>()));
+        entry.fromDatabase(true);
+        if (entry.getVersion() == null) {
+          entry.setVersion(1);
+        }
+        entries.put(entry.getId(), entry);
+      }
+      return entries;
+    }
+  }
+
+}
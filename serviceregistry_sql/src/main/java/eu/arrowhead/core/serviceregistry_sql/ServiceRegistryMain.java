@@ -8,11 +8,17 @@
 package eu.arrowhead.core.serviceregistry_sql;
 
 import eu.arrowhead.common.ArrowheadMain;
+import eu.arrowhead.common.Utility;
+import eu.arrowhead.common.database.ServiceRegistryEntry;
 import eu.arrowhead.common.misc.CoreSystem;
+import eu.arrowhead.common.misc.CoreSystemService;
+import eu.arrowhead.common.misc.OrchestrationCacheNotifier;
 import eu.arrowhead.common.web.ArrowheadServiceApi;
 import eu.arrowhead.common.web.ArrowheadSystemApi;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
@@ -20,14 +26,23 @@ import java.util.TimerTask;
 public class ServiceRegistryMain extends ArrowheadMain {
 
   static int PING_TIMEOUT;
-  static int TTL_INTERVAL;
+  static int PING_CONCURRENCY;
+  static int PING_CACHE_TTL;
 
   {
     PING_TIMEOUT = props.getIntProperty("ping_timeout", 7500);
-    TTL_INTERVAL = props.getIntProperty("ttl_interval", 10);
+    PING_CONCURRENCY = props.getIntProperty("ping_concurrency", 64);
+    PING_CACHE_TTL = props.getIntProperty("ping_cache_ttl", 30000);
   }
 
   private ServiceRegistryMain(String[] args) {
+    OrchestrationCacheNotifier.setOrchestratorUriResolver(ServiceRegistryMain::getOrchestrationServiceUri);
+    //if TTL based service removing is requested, the index registers the entries for removal at their endOfValidity
+    if (props.getBooleanProperty("ttl_scheduled", false)) {
+      RemoveExpiredServicesTask.start();
+    }
+    ServiceRegistryIndex.reload();
+
     Set<Class<?>> classes = new HashSet<>(Arrays.asList(ArrowheadSystemApi.class, ArrowheadServiceApi.class));
     String[] packages = {"eu.arrowhead.common.exception", "eu.arrowhead.common.json", "eu.arrowhead.common.filter",
         "eu.arrowhead.core.serviceregistry_sql"};
@@ -40,12 +55,6 @@ public class ServiceRegistryMain extends ArrowheadMain {
       int interval = props.getIntProperty("ping_interval", 60);
       pingTimer.schedule(pingTask, 60L * 1000L, (interval * 60L * 1000L));
     }
-    //if TTL based service removing is scheduled, start the TimerTask that provides it
-    if (props.getBooleanProperty("ttl_scheduled", false)) {
-      TimerTask removeTask = new RemoveExpiredServicesTask();
-      Timer ttlTimer = new Timer();
-      ttlTimer.schedule(removeTask, 45L * 1000L, TTL_INTERVAL * 60L * 1000L);
-    }
 
     listenForInput();
   }
@@ -54,4 +63,17 @@ public class ServiceRegistryMain extends ArrowheadMain {
     new ServiceRegistryMain(args);
   }
 
+  //The Service Registry can not query itself like the other core systems, so the Orchestrator is looked up from the index
+  private static Optional<String> getOrchestrationServiceUri() {
+    for (boolean isSecure : new boolean[]{true, false}) {
+      List<ServiceRegistryEntry> entries = ServiceRegistryIndex
+          .getEntries(Utility.createSD(CoreSystemService.ORCH_SERVICE.getServiceDef(), isSecure));
+      if (!entries.isEmpty()) {
+        ServiceRegistryEntry entry = entries.get(0);
+        return Optional.of(Utility.getUri(entry.getProvider().getAddress(), entry.getProvider().getPort(), entry.getServiceURI(), isSecure, false));
+      }
+    }
+    return Optional.empty();
+  }
+
 }
@@ -14,8 +14,11 @@ import eu.arrowhead.common.database.ServiceRegistryEntry;
 import eu.arrowhead.common.exception.DuplicateEntryException;
 import eu.arrowhead.common.messages.ServiceQueryForm;
 import eu.arrowhead.common.messages.ServiceQueryResult;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import javax.validation.Valid;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
@@ -63,9 +66,11 @@ public class ServiceRegistryResource {
     restrictionMap.put("address", entry.getProvider().getAddress());
     restrictionMap.put("port", entry.getProvider().getPort());
     ArrowheadSystem provider = dm.get(ArrowheadSystem.class, restrictionMap);
+    boolean providerChanged = false;
     if (provider == null) {
       provider = dm.save(entry.getProvider());
     } else {
+      providerChanged = !Objects.equals(provider.getAuthenticationInfo(), entry.getProvider().getAuthenticationInfo());
       provider.setAuthenticationInfo(entry.getProvider().getAuthenticationInfo());
       dm.merge(provider);
     }
@@ -83,6 +88,13 @@ public class ServiceRegistryResource {
               .getServiceDefinition() + ")");
     }
 
+    //Provider and service fields are shared between SR entries, so other index buckets can become stale too
+    if (providerChanged) {
+      ServiceRegistryIndex.reload();
+    } else {
+      ServiceRegistryIndex.refresh(service.getServiceDefinition());
+    }
+
     savedEntry.fromDatabase(true);
     log.info("New " + entry.toString() + " is saved.");
     return Response.status(Status.CREATED).entity(savedEntry).build();
@@ -91,48 +103,67 @@ public class ServiceRegistryResource {
   @PUT
   @Path("query")
   public Response queryRegistry(@Valid ServiceQueryForm queryForm) {
-    restrictionMap.put("serviceDefinition", queryForm.getService().getServiceDefinition());
-    ArrowheadService service = dm.get(ArrowheadService.class, restrictionMap);
-    if (service == null) {
+    List<ServiceRegistryEntry> providedServices = lookupProviders(queryForm);
+    if (providedServices == null) {
       log.info("Service " + queryForm.getService().toString() + " is not in the registry.");
       return Response.status(Status.PARTIAL_CONTENT).entity(new ServiceQueryResult()).build();
     }
 
-    restrictionMap.clear();
-    restrictionMap.put("providedService", service);
-    List<ServiceRegistryEntry> providedServices = dm.getAll(ServiceRegistryEntry.class, restrictionMap);
-    for (ServiceRegistryEntry entry : providedServices) {
-      entry.fromDatabase(true);
+    if (queryForm.isPingProviders()) {
+      RegistryUtils.filterOnPing(providedServices);
+    }
+    log.debug("Potential service providers after filtering:" + providedServices.size());
+
+    log.info("Service " + queryForm.getService().toString() + " queried successfully.");
+    ServiceQueryResult result = new ServiceQueryResult(providedServices);
+    return Response.status(Status.OK).entity(result).build();
+  }
+
+  /**
+   * Answers several queries in one request (used by the batch orchestration of the Orchestrator). The results are in the same order as the query
+   * forms, services not in the registry get an empty result. Providers are pinged together for all the queries with the pingProviders flag.
+   */
+  @PUT
+  @Path("query/batch")
+  public List<ServiceQueryResult> queryRegistryBatch(@Valid List<ServiceQueryForm> queryForms) {
+    List<ServiceQueryResult> results = new ArrayList<>(queryForms.size());
+    List<List<ServiceRegistryEntry>> toPing = new ArrayList<>();
+    for (ServiceQueryForm queryForm : queryForms) {
+      List<ServiceRegistryEntry> providedServices = lookupProviders(queryForm);
+      if (providedServices == null) {
+        providedServices = new ArrayList<>();
+      } else if (queryForm.isPingProviders()) {
+        toPing.add(providedServices);
+      }
+      results.add(new ServiceQueryResult(providedServices));
     }
+    RegistryUtils.filterAllOnPing(toPing);
 
-    log.debug("Potential service providers before filtering:" + providedServices.size());
-    RegistryUtils.filterOnInterfaces(providedServices, queryForm.getService());
+    log.info(queryForms.size() + " services queried in a batch.");
+    return results;
+  }
+
+  //Returns null if the service is not in the registry at all
+  private List<ServiceRegistryEntry> lookupProviders(ServiceQueryForm queryForm) {
+    int minVersion = 0;
+    int maxVersion = Integer.MAX_VALUE;
     if (queryForm.getVersion() != null) {
-      RegistryUtils.filterOnVersion(providedServices, queryForm.getVersion());
+      minVersion = maxVersion = queryForm.getVersion();
     } else {
       String minVersionValue = queryForm.getService().getServiceMetadata().get("minVersion");
-      int minVersion = minVersionValue != null ? Integer.valueOf(minVersionValue) : 0;
+      minVersion = minVersionValue != null ? Integer.valueOf(minVersionValue) : minVersion;
 
       String maxVersionValue = queryForm.getService().getServiceMetadata().get("maxVersion");
-      int maxVersion = maxVersionValue != null ? Integer.valueOf(maxVersionValue) : Integer.MAX_VALUE;
-
-      if (minVersion > 0 || maxVersion < Integer.MAX_VALUE) {
-        RegistryUtils.filterOnVersion(providedServices, minVersion, maxVersion);
-      }
+      maxVersion = maxVersionValue != null ? Integer.valueOf(maxVersionValue) : maxVersion;
     }
+    Map<String, String> metadata = null;
     if (queryForm.isMetadataSearch()) {
       queryForm.getService().getServiceMetadata().remove("minVersion");
       queryForm.getService().getServiceMetadata().remove("maxVersion");
-      RegistryUtils.filterOnMeta(providedServices, queryForm.getService().getServiceMetadata());
+      metadata = queryForm.getService().getServiceMetadata();
     }
-    if (queryForm.isPingProviders()) {
-      RegistryUtils.filterOnPing(providedServices);
-    }
-    log.debug("Potential service providers after filtering:" + providedServices.size());
 
-    log.info("Service " + queryForm.getService().toString() + " queried successfully.");
-    ServiceQueryResult result = new ServiceQueryResult(providedServices);
-    return Response.status(Status.OK).entity(result).build();
+    return ServiceRegistryIndex.query(queryForm.getService(), minVersion, maxVersion, metadata);
   }
 
   @PUT
@@ -153,6 +184,7 @@ public class ServiceRegistryResource {
     ServiceRegistryEntry retrievedEntry = dm.get(ServiceRegistryEntry.class, restrictionMap);
     if (retrievedEntry != null) {
       dm.delete(retrievedEntry);
+      ServiceRegistryIndex.remove(retrievedEntry);
       retrievedEntry.fromDatabase(true);
       log.info(retrievedEntry.toString() + " deleted.");
       return Response.status(Status.OK).entity(retrievedEntry).build();
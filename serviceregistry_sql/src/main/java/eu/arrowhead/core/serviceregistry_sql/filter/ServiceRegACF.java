@@ -49,7 +49,7 @@ public class ServiceRegACF extends AccessControlFilter {
       }
 
       return serverFields[1].equalsIgnoreCase(clientFields[1]);
-    } else if (requestTarget.endsWith("query")) {
+    } else if (requestTarget.endsWith("query") || requestTarget.endsWith("query/batch")) {
       String[] allowedCoreSystems = {"orchestrator", "gatekeeper", "certificateauthority", "certificate_authority"};
       for (String coreSystem : allowedCoreSystems) {
         if (clientCN.equalsIgnoreCase(coreSystem + "." + serverFields[1])) {